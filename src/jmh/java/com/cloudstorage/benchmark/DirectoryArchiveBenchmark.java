@@ -0,0 +1,104 @@
+package com.cloudstorage.benchmark;
+
+import com.cloudstorage.service.DirectoryService.DirectoryArchiveWriter;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.LocalStorageBackend;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Упаковка папки в zip (DirectoryArchiveWriter, через него работает downloadDirectory) из локального хранилища
+ * во временном каталоге: без MinIO замер показывает стоимость самого приложения.
+ * many-small - много небольших текстовых файлов (префетч), few-large - крупные файлы, читаемые потоком,
+ * половина из них - уже сжатые форматы, которые не пережимаются. Все файлы лежат в хранилище по своим путям, каталог блобов пуст
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DirectoryArchiveBenchmark {
+
+    private static final String PREFIX = "user-42-files/archive/";
+
+    @Param({"many-small", "few-large"})
+    private String layout;
+
+    private DirectoryArchiveWriter archiveWriter;
+    private ExecutorService storageExecutor;
+    private Path root;
+
+    @Setup
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("archive-benchmark-");
+        LocalStorageBackend storageBackend = new LocalStorageBackend();
+        ReflectionTestUtils.setField(storageBackend, "root", root);
+        storageBackend.init();
+
+        Random random = new Random(42);
+
+        if (layout.equals("many-small")) {
+            for (int i = 0; i < 1000; i++) {
+                put(storageBackend, PREFIX + "notes/note-" + i + ".txt", text(random, 16 * 1024));
+            }
+        } else {
+            for (int i = 0; i < 8; i++) {
+                put(storageBackend, PREFIX + "logs/log-" + i + ".txt", text(random, 8 * 1024 * 1024));
+
+                byte[] binary = new byte[8 * 1024 * 1024];
+                random.nextBytes(binary);
+                put(storageBackend, PREFIX + "photos/photo-" + i + ".jpg", binary);
+            }
+        }
+
+        storageExecutor = Executors.newFixedThreadPool(16);
+        archiveWriter = new DirectoryArchiveWriter(storageBackend, mock(MetadataService.class), mock(BlobService.class), storageExecutor);
+        ReflectionTestUtils.setField(archiveWriter, "compressionLevel", 6);
+        ReflectionTestUtils.setField(archiveWriter, "prefetchObjects", 4);
+        ReflectionTestUtils.setField(archiveWriter, "prefetchMaxObjectSize", DataSize.ofMegabytes(4));
+        ReflectionTestUtils.setField(archiveWriter, "bufferSize", DataSize.ofKilobytes(64));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storageExecutor.shutdownNow();
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        archiveWriter.write(PREFIX, OutputStream.nullOutputStream());
+    }
+
+    private static void put(LocalStorageBackend storageBackend, String objectName, byte[] content) {
+        storageBackend.put(objectName, new ByteArrayInputStream(content), content.length, null);
+    }
+
+    /**
+     * Текст из повторяющихся слов сжимается примерно как реальные документы и логи
+     */
+    private static byte[] text(Random random, int size) {
+        String[] words = {"storage", "directory", "upload", "minio", "archive", "request", "user", "file", "2024", "ok"};
+        StringBuilder builder = new StringBuilder(size + 16);
+
+        while (builder.length() < size) {
+            builder.append(words[random.nextInt(words.length)]).append(random.nextInt(8) == 0 ? '\n' : ' ');
+        }
+
+        return builder.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,67 @@
+package com.cloudstorage.benchmark;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Построение ответа для большой папки: из строк каталога (как в листинге и поиске)
+ * и из имен объектов MinIO через разбор путей (как листинг работал до каталога)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilePayloadListingBenchmark {
+
+    private static final String DIRECTORY = "projects/2024/q3/reports/";
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    private List<ResourceMetadata> resources;
+    private List<String> objectNames;
+
+    @Setup
+    public void setUp() {
+        resources = new ArrayList<>(size);
+        objectNames = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            boolean directory = i % 10 == 0;
+            String name = directory ? "folder-" + i : "document-" + i + ".pdf";
+            String path = DIRECTORY + name + (directory ? "/" : "");
+
+            resources.add(new ResourceMetadata((long) i, 42, path, DIRECTORY, name,
+                    directory ? "DIRECTORY" : "FILE", directory ? 0L : 1024L * i, 0L, null, null, null, null, null));
+            objectNames.add("user-42-files/" + path);
+        }
+    }
+
+    @Benchmark
+    public List<FilePayload> fromCatalog() {
+        return resources.stream()
+                .map(ResourceMetadata::toFilePayload)
+                .toList();
+    }
+
+    @Benchmark
+    public List<FilePayload> fromObjectNames() {
+        List<FilePayload> payloads = new ArrayList<>(objectNames.size());
+
+        for (String objectName : objectNames) {
+            boolean directory = objectName.endsWith("/");
+            payloads.add(new FilePayload(
+                    ResourcePathParseUtils.getPathWithoutUserPrefix(objectName),
+                    directory ? ResourcePathParseUtils.getResourceName(objectName) : ResourcePathParseUtils.getFileName(objectName),
+                    0L,
+                    directory ? "DIRECTORY" : "FILE"));
+        }
+
+        return payloads;
+    }
+}
@@ -0,0 +1,36 @@
+package com.cloudstorage.benchmark;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Запуск JMH-бенчмарков из профиля benchmark. Кроме времени выводится профиль GC:
+ * gc.alloc.rate (МБ/с) и gc.alloc.rate.norm (байт на операцию). Результаты сохраняются в target/jmh-result.json
+ * для сравнения между сборками.
+ * Параметры: -Djmh.include (регулярное выражение по имени бенчмарка), -Djmh.forks, -Djmh.warmupIterations, -Djmh.iterations
+ */
+class JmhBenchmark {
+
+    @Test
+    void runJmhBenchmarks() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(System.getProperty("jmh.include", "com\\.cloudstorage\\.benchmark\\..*"))
+                .addProfiler(GCProfiler.class)
+                .forks(Integer.getInteger("jmh.forks", 1))
+                .warmupIterations(Integer.getInteger("jmh.warmupIterations", 3))
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(Integer.getInteger("jmh.iterations", 5))
+                .measurementTime(TimeValue.seconds(1))
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,57 @@
+package com.cloudstorage.benchmark;
+
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор путей объектов: вызывается для каждого объекта при листинге, переименовании и переносе папок
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ResourcePathParseBenchmark {
+
+    @Param({
+            "user-42-files/report.pdf",
+            "user-42-files/projects/2024/q3/reports/summary-final.docx",
+            "user-42-files/projects/2024/q3/reports/"
+    })
+    private String path;
+
+    @Benchmark
+    public String getFileName() {
+        return ResourcePathParseUtils.getFileName(path);
+    }
+
+    @Benchmark
+    public String getFilePath() {
+        return ResourcePathParseUtils.getFilePath(path);
+    }
+
+    @Benchmark
+    public String getPathWithoutUserPrefix() {
+        return ResourcePathParseUtils.getPathWithoutUserPrefix(path);
+    }
+
+    @Benchmark
+    public String getDirectoryPathWithoutUserPrefix() {
+        return ResourcePathParseUtils.getDirectoryPathWithoutUserPrefix(path);
+    }
+
+    @Benchmark
+    public String getDirectoryName() {
+        return ResourcePathParseUtils.getDirectoryName(path);
+    }
+
+    @Benchmark
+    public String getParentPath() {
+        return ResourcePathParseUtils.getParentPath(path);
+    }
+
+    @Benchmark
+    public String getResourceName() {
+        return ResourcePathParseUtils.getResourceName(path);
+    }
+}
@@ -0,0 +1,406 @@
+package com.cloudstorage.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import redis.embedded.RedisServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест всего HTTP-стека: контроллеры, Spring Security с сессиями в Redis, каталог в Postgres
+ * и MinioClient. Внешние сервисы не нужны: S3 заменяет InMemoryS3Server, Postgres и Redis запускаются
+ * встроенными бинарниками. Каждый виртуальный пользователь - отдельная сессия, которая в замкнутом цикле
+ * выполняет случайную (воспроизводимую по load.seed) смесь операций. Замеры прогрева не учитываются.
+ * Отчет (p50/p90/p99, пропускная способность и ошибки по операциям) печатается и пишется в target/load-test-report.json.
+ * Запуск: mvn test -Pbenchmark -Dtest=HttpLoadBenchmark [-Dload.users=32 -Dload.duration=60s -Dload.warmup=10s -Dload.seed=42]
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class HttpLoadBenchmark {
+
+    private static final int USERS = Integer.getInteger("load.users", 16);
+    private static final Duration DURATION = DurationStyle.detectAndParse(System.getProperty("load.duration", "60s"));
+    private static final Duration WARMUP = DurationStyle.detectAndParse(System.getProperty("load.warmup", "10s"));
+    private static final long SEED = Long.getLong("load.seed", 42L);
+    private static final int SEED_FILES = 20;
+    private static final int MIN_FILE_SIZE = 4 << 10;
+    private static final int MAX_FILE_SIZE = 64 << 10;
+    private static final Path REPORT = Path.of("target", "load-test-report.json");
+
+    private static InMemoryS3Server s3Server;
+    private static EmbeddedPostgres postgres;
+    private static RedisServer redisServer;
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * Операции и их доли в смеси
+     */
+    private enum Operation {
+        UPLOAD(30), LIST(25), DOWNLOAD(15), SEARCH(15), RENAME(10), ZIP(5);
+
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick(Random random) {
+            int total = Arrays.stream(values()).mapToInt(operation -> operation.weight).sum();
+            int value = random.nextInt(total);
+
+            for (Operation operation : values()) {
+                value -= operation.weight;
+                if (value < 0) return operation;
+            }
+
+            throw new IllegalStateException();
+        }
+    }
+
+    @DynamicPropertySource
+    public static void configureProperties(DynamicPropertyRegistry registry) throws IOException {
+        s3Server = InMemoryS3Server.start();
+        postgres = EmbeddedPostgres.builder().start();
+        int redisPort = freePort();
+        redisServer = new RedisServer(redisPort);
+        redisServer.start();
+
+        registry.add("spring.datasource.url", () -> postgres.getJdbcUrl("postgres", "postgres"));
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "");
+        registry.add("spring.flyway.locations", () -> "classpath:db/migration,classpath:db/vendor/{vendor}");
+        registry.add("spring.data.redis.host", () -> "localhost");
+        registry.add("spring.data.redis.port", () -> redisPort);
+        registry.add("minio.endpoint", s3Server::endpoint);
+        registry.add("minio.accessKey", () -> "load-test");
+        registry.add("minio.secretKey", () -> "load-test-secret");
+        registry.add("minio.bucket.name", () -> "user-files");
+    }
+
+    @Test
+    void replayMixedWorkload() throws Exception {
+        List<VirtualUser> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            VirtualUser user = new VirtualUser("load-user-" + i, new Random(SEED + i));
+            user.setUp();
+            users.add(user);
+        }
+
+        long start = System.nanoTime();
+        long measureFrom = start + WARMUP.toNanos();
+        long deadline = measureFrom + DURATION.toNanos();
+
+        ExecutorService executor = Executors.newFixedThreadPool(USERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (VirtualUser user : users) {
+            futures.add(executor.submit(() -> user.run(measureFrom, deadline)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        Map<Operation, LatencyRecorder> total = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            total.put(operation, new LatencyRecorder());
+        }
+        for (VirtualUser user : users) {
+            user.recorders.forEach((operation, recorder) -> total.get(operation).merge(recorder));
+        }
+
+        List<EndpointReport> endpoints = report(total);
+        writeReport(endpoints);
+
+        long requests = endpoints.stream().mapToLong(EndpointReport::requests).sum();
+        long errors = endpoints.stream().mapToLong(EndpointReport::errors).sum();
+        String firstError = users.stream().map(user -> user.firstError).filter(error -> error != null).findFirst().orElse("");
+
+        assertTrue(requests > 0, "no requests completed in the measurement window");
+        assertEquals(0, errors, firstError);
+    }
+
+    private List<EndpointReport> report(Map<Operation, LatencyRecorder> recorders) {
+        double seconds = DURATION.toNanos() / 1e9;
+        List<EndpointReport> endpoints = new ArrayList<>();
+
+        System.out.printf("%nusers=%d duration=%s warmup=%s seed=%d%n", USERS, DURATION, WARMUP, SEED);
+        System.out.printf("%-10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "operation", "requests", "errors", "req/s", "p50, ms", "p90, ms", "p99, ms", "max, ms");
+
+        for (Map.Entry<Operation, LatencyRecorder> entry : recorders.entrySet()) {
+            LatencyRecorder recorder = entry.getValue();
+            long[] samples = recorder.sorted();
+
+            EndpointReport endpoint = new EndpointReport(entry.getKey().name().toLowerCase(),
+                    samples.length,
+                    recorder.errors,
+                    samples.length / seconds,
+                    millis(percentile(samples, 0.50)),
+                    millis(percentile(samples, 0.90)),
+                    millis(percentile(samples, 0.99)),
+                    millis(samples.length > 0 ? samples[samples.length - 1] : 0));
+            endpoints.add(endpoint);
+
+            System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    endpoint.operation(), endpoint.requests(), endpoint.errors(), endpoint.throughput(),
+                    endpoint.p50(), endpoint.p90(), endpoint.p99(), endpoint.max());
+        }
+
+        return endpoints;
+    }
+
+    private void writeReport(List<EndpointReport> endpoints) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("users", USERS);
+        report.put("durationSeconds", DURATION.toSeconds());
+        report.put("warmupSeconds", WARMUP.toSeconds());
+        report.put("seed", SEED);
+        report.put("endpoints", endpoints);
+
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(REPORT.toFile(), report);
+
+        System.out.println("Report: " + REPORT.toAbsolutePath());
+    }
+
+    /**
+     * Процентиль по методу ближайшего ранга
+     */
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) return 0;
+
+        return sorted[Math.max(0, (int) Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    @AfterAll
+    static void shutDown() throws IOException {
+        if (redisServer != null) redisServer.stop();
+        if (postgres != null) postgres.close();
+        if (s3Server != null) s3Server.close();
+    }
+
+    private record EndpointReport(String operation, long requests, long errors, double throughput,
+                                  double p50, double p90, double p99, double max) {
+    }
+
+    /**
+     * Задержки одного потока, без синхронизации. Объединяются после завершения нагрузки
+     */
+    private static class LatencyRecorder {
+        private long[] samples = new long[1024];
+        private int count;
+        private long errors;
+
+        void record(long nanos) {
+            if (count == samples.length) {
+                samples = Arrays.copyOf(samples, count * 2);
+            }
+            samples[count++] = nanos;
+        }
+
+        void merge(LatencyRecorder other) {
+            for (int i = 0; i < other.count; i++) {
+                record(other.samples[i]);
+            }
+            errors += other.errors;
+        }
+
+        long[] sorted() {
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    /**
+     * Сессия одного пользователя: свой HttpClient с cookie, свои файлы в docs/ и архив в archive/
+     */
+    private class VirtualUser {
+        private final String username;
+        private final Random random;
+        private final HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        private final List<String> files = new ArrayList<>();
+        private final Map<Operation, LatencyRecorder> recorders = new EnumMap<>(Operation.class);
+        private int counter;
+        private String firstError;
+
+        VirtualUser(String username, Random random) {
+            this.username = username;
+            this.random = random;
+            for (Operation operation : Operation.values()) {
+                recorders.put(operation, new LatencyRecorder());
+            }
+        }
+
+        void setUp() throws Exception {
+            String credentials = "{\"username\":\"%s\",\"password\":\"password\"}".formatted(username);
+            expect(send(post("/api/auth/sign-up", HttpRequest.BodyPublishers.ofString(credentials), "application/json")), 201);
+            expect(send(post("/api/auth/sign-in", HttpRequest.BodyPublishers.ofString(credentials), "application/json")), 200);
+            expect(send(post("/api/directory?path=docs/", HttpRequest.BodyPublishers.noBody(), null)), 201);
+            expect(send(post("/api/directory?path=archive/", HttpRequest.BodyPublishers.noBody(), null)), 201);
+
+            for (int i = 0; i < SEED_FILES; i++) {
+                expect(upload("docs/"), 201);
+                expect(upload("archive/"), 201);
+            }
+        }
+
+        void run(long measureFrom, long deadline) {
+            long now;
+
+            while ((now = System.nanoTime()) < deadline) {
+                Operation operation = Operation.pick(random);
+                int status;
+
+                try {
+                    status = execute(operation);
+                } catch (Exception exception) {
+                    status = -1;
+                    if (firstError == null) firstError = operation + ": " + exception;
+                }
+
+                long finished = System.nanoTime();
+                if (now < measureFrom || finished > deadline) continue;
+
+                LatencyRecorder recorder = recorders.get(operation);
+                if (status >= 200 && status < 300) {
+                    recorder.record(finished - now);
+                } else {
+                    recorder.errors++;
+                }
+            }
+        }
+
+        private int execute(Operation operation) throws Exception {
+            return switch (operation) {
+                case UPLOAD -> upload("docs/");
+                case LIST -> send(get("/api/directory?path=docs/"));
+                case DOWNLOAD -> send(get("/api/resource/download?path=" + encode(randomFile())));
+                case SEARCH -> send(get("/api/resource/search?query=" + encode("file-" + random.nextInt(10))));
+                case RENAME -> rename();
+                case ZIP -> send(get("/api/resource/download?path=archive/"));
+            };
+        }
+
+        private int rename() throws Exception {
+            int index = random.nextInt(files.size());
+            String oldName = files.get(index);
+            String newName = "docs/renamed-" + (counter++) + ".bin";
+
+            int status = send(get("/api/resource/rename?oldName=" + encode(oldName) + "&newName=" + encode(newName)));
+            if (status == 200) files.set(index, newName);
+
+            return status;
+        }
+
+        private int upload(String directory) throws Exception {
+            String name = "file-" + (counter++) + ".bin";
+            byte[] content = new byte[MIN_FILE_SIZE + random.nextInt(MAX_FILE_SIZE - MIN_FILE_SIZE)];
+            random.nextBytes(content);
+
+            String boundary = "load-test-" + Long.toHexString(random.nextLong());
+            ByteArrayOutputStream body = new ByteArrayOutputStream(content.length + 256);
+            body.write(("--" + boundary + "\r\n"
+                    + "Content-Disposition: form-data; name=\"files\"; filename=\"" + name + "\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(content);
+            body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+            int status = send(post("/api/resource?path=" + encode(directory),
+                    HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()),
+                    "multipart/form-data; boundary=" + boundary));
+            if (status == 201 && directory.equals("docs/")) files.add(directory + name);
+
+            return status;
+        }
+
+        private String randomFile() {
+            return files.get(random.nextInt(files.size()));
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(uri(path)).GET().build();
+        }
+
+        private HttpRequest post(String path, HttpRequest.BodyPublisher body, String contentType) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri(path)).POST(body);
+            if (contentType != null) request.header("Content-Type", contentType);
+            return request.build();
+        }
+
+        private URI uri(String path) {
+            return URI.create("http://localhost:" + port + path);
+        }
+
+        /**
+         * Тело успешного ответа читается целиком и отбрасывается, чтобы замер включал передачу данных.
+         * Тело первой ошибки сохраняется для отчета
+         */
+        private int send(HttpRequest request) throws Exception {
+            HttpResponse<String> response = client.send(request, info -> info.statusCode() < 300
+                    ? HttpResponse.BodySubscribers.replacing(null)
+                    : HttpResponse.BodySubscribers.ofString(StandardCharsets.UTF_8));
+
+            if (response.statusCode() >= 300 && firstError == null) {
+                firstError = request.method() + " " + request.uri().getRawPath() + ": HTTP " + response.statusCode() + " " + response.body();
+            }
+
+            return response.statusCode();
+        }
+
+        private void expect(int status, int expected) {
+            assertEquals(expected, status, () -> username + ": unexpected status during setup");
+        }
+
+        private static String encode(String value) {
+            return URLEncoder.encode(value, StandardCharsets.UTF_8);
+        }
+    }
+}
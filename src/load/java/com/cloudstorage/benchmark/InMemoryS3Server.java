@@ -0,0 +1,485 @@
+package com.cloudstorage.benchmark;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * S3-совместимая заглушка в памяти процесса для нагрузочных тестов без Docker.
+ * Понимает только path-style запросы и только те операции, которые выполняет MinioStorageBackend:
+ * бакет (location, HEAD, PUT), объекты (PUT, copy, GET с Range, HEAD, DELETE), ListObjectsV2,
+ * multi-delete и multipart-загрузку. Подписи запросов не проверяются, данные хранятся только в памяти
+ */
+class InMemoryS3Server implements AutoCloseable {
+
+    private static final String NAMESPACE = "http://s3.amazonaws.com/doc/2006-03-01/";
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter XML_DATE = DateTimeFormatter
+            .ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US)
+            .withZone(ZoneOffset.UTC);
+    private static final Pattern KEY = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern PART_NUMBER = Pattern.compile("<PartNumber>(\\d+)</PartNumber>");
+    private static final int MAX_KEYS = 1000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, NavigableMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+
+    private InMemoryS3Server(HttpServer server) {
+        this.server = server;
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+    }
+
+    /**
+     * HttpServer закрывает соединения, простаивающие дольше 30 секунд, а пул MinIO держит их minio.http.keep-alive (5 минут).
+     * Запрос с телом по уже закрытому соединению OkHttp не повторяет, поэтому таймаут простоя поднимается до старта сервера
+     */
+    static InMemoryS3Server start() throws IOException {
+        if (System.getProperty("sun.net.httpserver.idleInterval") == null) {
+            System.setProperty("sun.net.httpserver.idleInterval", "600");
+        }
+
+        InMemoryS3Server s3 = new InMemoryS3Server(HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0));
+        s3.server.start();
+        return s3;
+    }
+
+    String endpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            int slash = path.indexOf('/', 1);
+            String bucket = slash < 0 ? path.substring(1) : path.substring(1, slash);
+            String key = slash < 0 ? "" : path.substring(slash + 1);
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            // Тело читается до EOF всегда: иначе после ответа без тела (HEAD, 204) HttpServer закрывает соединение,
+            // а OkHttp отправляет следующий запрос в уже закрытое соединение из пула
+            byte[] body = exchange.getRequestBody().readAllBytes();
+
+            if (key.isEmpty()) {
+                handleBucket(exchange, bucket, query, body);
+            } else {
+                handleObject(exchange, bucket, key, query, body);
+            }
+        } catch (RuntimeException exception) {
+            sendError(exchange, 500, "InternalError", String.valueOf(exception.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBucket(HttpExchange exchange, String bucket, Map<String, String> query, byte[] body) throws IOException {
+        String method = exchange.getRequestMethod();
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+
+        if (method.equals("PUT")) {
+            buckets.putIfAbsent(bucket, new ConcurrentSkipListMap<>());
+            exchange.getResponseHeaders().set("Location", "/" + bucket);
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+
+        if (objects == null) {
+            sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+            return;
+        }
+
+        if (method.equals("HEAD")) {
+            exchange.sendResponseHeaders(200, -1);
+        } else if (method.equals("GET") && query.containsKey("location")) {
+            sendXml(exchange, 200, "<LocationConstraint xmlns=\"" + NAMESPACE + "\">us-east-1</LocationConstraint>");
+        } else if (method.equals("GET") && "2".equals(query.get("list-type"))) {
+            listObjects(exchange, bucket, objects, query);
+        } else if (method.equals("POST") && query.containsKey("delete")) {
+            Matcher matcher = KEY.matcher(new String(body, StandardCharsets.UTF_8));
+            while (matcher.find()) {
+                objects.remove(unescape(matcher.group(1)));
+            }
+            sendXml(exchange, 200, "<DeleteResult xmlns=\"" + NAMESPACE + "\"></DeleteResult>");
+        } else {
+            sendError(exchange, 501, "NotImplemented", method + " " + exchange.getRequestURI());
+        }
+    }
+
+    private void handleObject(HttpExchange exchange, String bucket, String key, Map<String, String> query, byte[] body) throws IOException {
+        NavigableMap<String, StoredObject> objects = buckets.get(bucket);
+
+        if (objects == null) {
+            sendError(exchange, 404, "NoSuchBucket", "The specified bucket does not exist");
+            return;
+        }
+
+        String method = exchange.getRequestMethod();
+        String uploadId = query.get("uploadId");
+
+        switch (method) {
+            case "PUT" -> {
+                if (uploadId != null) {
+                    uploadPart(exchange, uploadId, Integer.parseInt(query.get("partNumber")), body);
+                } else if (exchange.getRequestHeaders().containsKey("x-amz-copy-source")) {
+                    copyObject(exchange, bucket, objects, key);
+                } else {
+                    StoredObject stored = StoredObject.of(body, contentType(exchange.getRequestHeaders()));
+                    objects.put(key, stored);
+                    exchange.getResponseHeaders().set("ETag", stored.quotedEtag());
+                    exchange.sendResponseHeaders(200, -1);
+                }
+            }
+            case "POST" -> {
+                if (query.containsKey("uploads")) {
+                    String newUploadId = UUID.randomUUID().toString();
+                    uploads.put(newUploadId, new MultipartUpload(bucket, key, contentType(exchange.getRequestHeaders())));
+                    sendXml(exchange, 200, "<InitiateMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                            + element("Bucket", bucket) + element("Key", key) + element("UploadId", newUploadId)
+                            + "</InitiateMultipartUploadResult>");
+                } else if (uploadId != null) {
+                    completeMultipartUpload(exchange, objects, key, uploadId, body);
+                } else {
+                    sendError(exchange, 501, "NotImplemented", method + " " + exchange.getRequestURI());
+                }
+            }
+            case "GET" -> {
+                if (uploadId != null) {
+                    listParts(exchange, bucket, key, uploadId);
+                } else {
+                    getObject(exchange, objects.get(key));
+                }
+            }
+            case "HEAD" -> {
+                StoredObject stored = objects.get(key);
+                if (stored == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                    return;
+                }
+                setObjectHeaders(exchange.getResponseHeaders(), stored);
+                exchange.getResponseHeaders().set("Content-Length", String.valueOf(stored.data().length));
+                exchange.sendResponseHeaders(200, -1);
+            }
+            case "DELETE" -> {
+                if (uploadId != null) {
+                    uploads.remove(uploadId);
+                } else {
+                    objects.remove(key);
+                }
+                exchange.sendResponseHeaders(204, -1);
+            }
+            default -> sendError(exchange, 501, "NotImplemented", method + " " + exchange.getRequestURI());
+        }
+    }
+
+    private void copyObject(HttpExchange exchange, String bucket, NavigableMap<String, StoredObject> objects, String key) throws IOException {
+        String source = URLDecoder.decode(exchange.getRequestHeaders().getFirst("x-amz-copy-source"), StandardCharsets.UTF_8);
+        if (source.startsWith("/")) source = source.substring(1);
+        String sourceKey = source.substring(source.indexOf('/') + 1);
+
+        NavigableMap<String, StoredObject> sourceObjects = buckets.get(source.substring(0, source.indexOf('/')));
+        StoredObject stored = sourceObjects != null ? sourceObjects.get(sourceKey) : null;
+        if (stored == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified key does not exist");
+            return;
+        }
+
+        StoredObject copy = new StoredObject(stored.data(), stored.etag(), stored.contentType(), Instant.now());
+        objects.put(key, copy);
+        sendXml(exchange, 200, "<CopyObjectResult xmlns=\"" + NAMESPACE + "\">"
+                + element("LastModified", XML_DATE.format(copy.lastModified()))
+                + element("ETag", copy.quotedEtag())
+                + "</CopyObjectResult>");
+    }
+
+    private void getObject(HttpExchange exchange, StoredObject stored) throws IOException {
+        if (stored == null) {
+            sendError(exchange, 404, "NoSuchKey", "The specified key does not exist");
+            return;
+        }
+
+        byte[] data = stored.data();
+        int start = 0;
+        int end = data.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+
+        if (range != null && range.startsWith("bytes=")) {
+            String[] bounds = range.substring("bytes=".length()).split("-", 2);
+            start = Integer.parseInt(bounds[0]);
+            if (!bounds[1].isEmpty()) end = Math.min(end, Integer.parseInt(bounds[1]));
+            exchange.getResponseHeaders().set("Content-Range", "bytes %d-%d/%d".formatted(start, end, data.length));
+        }
+
+        setObjectHeaders(exchange.getResponseHeaders(), stored);
+        int length = Math.max(0, end - start + 1);
+        exchange.sendResponseHeaders(range != null ? 206 : 200, length == 0 ? -1 : length);
+
+        if (length > 0) {
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(data, start, length);
+            }
+        }
+    }
+
+    /**
+     * ListObjectsV2 с delimiter: вложенные ключи сворачиваются в CommonPrefixes, курсор - последний выданный ключ или префикс
+     */
+    private void listObjects(HttpExchange exchange, String bucket, NavigableMap<String, StoredObject> objects, Map<String, String> query) throws IOException {
+        String prefix = query.getOrDefault("prefix", "");
+        String delimiter = query.get("delimiter");
+        String token = query.get("continuation-token");
+        String after = token != null ? token : query.get("start-after");
+        int maxKeys = Math.min(MAX_KEYS, Integer.parseInt(query.getOrDefault("max-keys", String.valueOf(MAX_KEYS))));
+
+        NavigableMap<String, StoredObject> candidates = after != null && after.compareTo(prefix) >= 0
+                ? objects.tailMap(after, false)
+                : objects.tailMap(prefix, true);
+
+        StringBuilder contents = new StringBuilder();
+        StringBuilder commonPrefixes = new StringBuilder();
+        String skipPrefix = token != null && delimiter != null && token.endsWith(delimiter) ? token : null;
+        String last = null;
+        int count = 0;
+        boolean truncated = false;
+
+        for (Map.Entry<String, StoredObject> entry : candidates.entrySet()) {
+            String key = entry.getKey();
+            if (!key.startsWith(prefix)) break;
+            if (skipPrefix != null && key.startsWith(skipPrefix)) continue;
+
+            if (count == maxKeys) {
+                truncated = true;
+                break;
+            }
+
+            int index = delimiter != null ? key.indexOf(delimiter, prefix.length()) : -1;
+            if (index >= 0) {
+                String commonPrefix = key.substring(0, index + delimiter.length());
+                commonPrefixes.append("<CommonPrefixes>").append(element("Prefix", commonPrefix)).append("</CommonPrefixes>");
+                skipPrefix = commonPrefix;
+                last = commonPrefix;
+            } else {
+                StoredObject stored = entry.getValue();
+                contents.append("<Contents>")
+                        .append(element("Key", key))
+                        .append(element("LastModified", XML_DATE.format(stored.lastModified())))
+                        .append(element("ETag", stored.quotedEtag()))
+                        .append(element("Size", String.valueOf(stored.data().length)))
+                        .append(element("StorageClass", "STANDARD"))
+                        .append("</Contents>");
+                last = key;
+            }
+            count++;
+        }
+
+        sendXml(exchange, 200, "<ListBucketResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Name", bucket)
+                + element("Prefix", prefix)
+                + element("KeyCount", String.valueOf(count))
+                + element("MaxKeys", String.valueOf(maxKeys))
+                + (delimiter != null ? element("Delimiter", delimiter) : "")
+                + element("IsTruncated", String.valueOf(truncated))
+                + (truncated ? element("NextContinuationToken", last) : "")
+                + contents
+                + commonPrefixes
+                + "</ListBucketResult>");
+    }
+
+    private void uploadPart(HttpExchange exchange, String uploadId, int partNumber, byte[] body) throws IOException {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist");
+            return;
+        }
+
+        StoredObject part = StoredObject.of(body, null);
+        upload.parts().put(partNumber, part);
+        exchange.getResponseHeaders().set("ETag", part.quotedEtag());
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void listParts(HttpExchange exchange, String bucket, String key, String uploadId) throws IOException {
+        MultipartUpload upload = uploads.get(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist");
+            return;
+        }
+
+        StringBuilder parts = new StringBuilder();
+        int lastPartNumber = 0;
+        for (Map.Entry<Integer, StoredObject> entry : upload.parts().entrySet()) {
+            parts.append("<Part>")
+                    .append(element("PartNumber", String.valueOf(entry.getKey())))
+                    .append(element("LastModified", XML_DATE.format(entry.getValue().lastModified())))
+                    .append(element("ETag", entry.getValue().quotedEtag()))
+                    .append(element("Size", String.valueOf(entry.getValue().data().length)))
+                    .append("</Part>");
+            lastPartNumber = entry.getKey();
+        }
+
+        sendXml(exchange, 200, "<ListPartsResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Bucket", bucket)
+                + element("Key", key)
+                + element("UploadId", uploadId)
+                + element("StorageClass", "STANDARD")
+                + element("PartNumberMarker", "0")
+                + element("NextPartNumberMarker", String.valueOf(lastPartNumber))
+                + element("MaxParts", String.valueOf(MAX_KEYS))
+                + element("IsTruncated", "false")
+                + parts
+                + "</ListPartsResult>");
+    }
+
+    private void completeMultipartUpload(HttpExchange exchange, NavigableMap<String, StoredObject> objects, String key, String uploadId, byte[] body) throws IOException {
+        MultipartUpload upload = uploads.remove(uploadId);
+        if (upload == null) {
+            sendError(exchange, 404, "NoSuchUpload", "The specified upload does not exist");
+            return;
+        }
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        int partCount = 0;
+        Matcher matcher = PART_NUMBER.matcher(new String(body, StandardCharsets.UTF_8));
+        while (matcher.find()) {
+            StoredObject part = upload.parts().get(Integer.parseInt(matcher.group(1)));
+            if (part == null) {
+                sendError(exchange, 400, "InvalidPart", "Part " + matcher.group(1) + " was not uploaded");
+                return;
+            }
+            data.write(part.data());
+            partCount++;
+        }
+
+        StoredObject stored = StoredObject.of(data.toByteArray(), upload.contentType());
+        stored = new StoredObject(stored.data(), stored.etag() + "-" + partCount, stored.contentType(), stored.lastModified());
+        objects.put(key, stored);
+
+        sendXml(exchange, 200, "<CompleteMultipartUploadResult xmlns=\"" + NAMESPACE + "\">"
+                + element("Location", endpoint() + "/" + upload.bucket() + "/" + key)
+                + element("Bucket", upload.bucket())
+                + element("Key", key)
+                + element("ETag", stored.quotedEtag())
+                + "</CompleteMultipartUploadResult>");
+    }
+
+    private static void setObjectHeaders(Headers headers, StoredObject stored) {
+        headers.set("ETag", stored.quotedEtag());
+        headers.set("Last-Modified", HTTP_DATE.format(stored.lastModified()));
+        headers.set("Content-Type", stored.contentType() != null ? stored.contentType() : "application/octet-stream");
+        headers.set("Accept-Ranges", "bytes");
+    }
+
+    private static void sendXml(HttpExchange exchange, int status, String xml) throws IOException {
+        byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String code, String message) throws IOException {
+        if (exchange.getRequestMethod().equals("HEAD")) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+
+        sendXml(exchange, status, "<Error>" + element("Code", code) + element("Message", message)
+                + element("Resource", exchange.getRequestURI().getPath())
+                + element("RequestId", UUID.randomUUID().toString())
+                + "</Error>");
+    }
+
+    private static String contentType(Headers headers) {
+        return headers.getFirst("Content-Type");
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return query;
+
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+
+        return query;
+    }
+
+    private static String element(String name, String value) {
+        return "<" + name + ">" + escape(value) + "</" + name + ">";
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;")
+                .replace("'", "&apos;");
+    }
+
+    private static String unescape(String value) {
+        return value.replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    private record StoredObject(byte[] data, String etag, String contentType, Instant lastModified) {
+
+        static StoredObject of(byte[] data, String contentType) {
+            try {
+                String etag = HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(data));
+                return new StoredObject(data, etag, contentType, Instant.now());
+            } catch (Exception exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        String quotedEtag() {
+            return "\"" + etag + "\"";
+        }
+    }
+
+    private record MultipartUpload(String bucket, String key, String contentType, NavigableMap<Integer, StoredObject> parts) {
+
+        MultipartUpload(String bucket, String key, String contentType) {
+            this(bucket, key, contentType, new ConcurrentSkipListMap<>());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.cloudstorage.config;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запускает каждую задачу в новом потоке (для виртуальных потоков пул не нужен), но одновременно выполняется
+ * не больше concurrency задач. Если лимит исчерпан, задача выполняется в вызывающем потоке, как у пула с CallerRunsPolicy:
+ * нагрузка на MinIO остается ограниченной, а задача, которая сама раздает подзадачи и ждет их, не может заблокироваться,
+ * ожидая места, занятого ею же
+ */
+public class BoundedThreadPerTaskExecutor extends AbstractExecutorService {
+
+    private final ThreadFactory threadFactory;
+    private final int concurrency;
+    private final Semaphore permits;
+    private final Set<Thread> runningThreads = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean shutdown;
+
+    public BoundedThreadPerTaskExecutor(ThreadFactory threadFactory, int concurrency) {
+        this.threadFactory = threadFactory;
+        this.concurrency = concurrency;
+        this.permits = new Semaphore(concurrency);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor is shut down");
+        }
+
+        if (!permits.tryAcquire()) {
+            command.run();
+            return;
+        }
+
+        try {
+            Thread thread = threadFactory.newThread(() -> {
+                try {
+                    command.run();
+                } finally {
+                    runningThreads.remove(Thread.currentThread());
+                    permits.release();
+                }
+            });
+            runningThreads.add(thread);
+            thread.start();
+        } catch (RuntimeException | Error exception) {
+            permits.release();
+            throw exception;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown = true;
+        runningThreads.forEach(Thread::interrupt);
+        return List.of();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && permits.availablePermits() == concurrency;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(concurrency, timeout, unit)) {
+            return false;
+        }
+
+        permits.release(concurrency);
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package com.cloudstorage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${storage.executor.threads:16}")
+    private int threads;
+
+    @Value("${storage.executor.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${storage.executor.virtual-concurrency:256}")
+    private int virtualConcurrency;
+
+    @Value("${storage.jobs.threads:2}")
+    private int jobThreads;
+
+    @Value("${storage.jobs.queue-capacity:100}")
+    private int jobQueueCapacity;
+
+    @Value("${storage.preview.threads:2}")
+    private int previewThreads;
+
+    @Value("${storage.preview.queue-capacity:500}")
+    private int previewQueueCapacity;
+
+    /**
+     * Общий пул для параллельных операций с хранилищем (копирование, удаление, скачивание).
+     * При переполнении очереди задача выполняется в вызывающем потоке, так что нагрузка на MinIO остается ограниченной
+     */
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
+    public ExecutorService storageExecutor() {
+        return new ThreadPoolExecutor(
+                threads,
+                threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("storage-"),
+                new ThreadPoolExecutor.CallerRunsPolicy()
+        );
+    }
+
+    /**
+     * Режим виртуальных потоков (spring.threads.virtual.enabled=true, Java 21+): каждая операция с хранилищем
+     * выполняется в своем виртуальном потоке, число одновременных операций ограничено storage.executor.virtual-concurrency
+     */
+    @Bean(name = "storageExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualStorageExecutor() {
+        return new BoundedThreadPerTaskExecutor(
+                new VirtualThreadTaskExecutor("storage-").getVirtualThreadFactory(),
+                virtualConcurrency
+        );
+    }
+
+    /**
+     * Пул для фоновых задач (асинхронное удаление и т.п.). Отделен от storageExecutor,
+     * так как задача сама раздает подзадачи в storageExecutor и ждет их.
+     * Очередь ограничена: при переполнении новая задача отклоняется и клиент получает 503, а не копится в памяти
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService jobExecutor() {
+        return new ThreadPoolExecutor(
+                jobThreads,
+                jobThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(jobQueueCapacity),
+                new CustomizableThreadFactory("job-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Пул построения превью. Декодирование изображений нагружает CPU и память, поэтому потоков мало, а очередь ограничена.
+     * При переполнении задача отклоняется, а не выполняется в вызывающем потоке: загрузка не должна ждать превью,
+     * оно будет построено при первом запросе
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService previewExecutor() {
+        return new ThreadPoolExecutor(
+                previewThreads,
+                previewThreads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(previewQueueCapacity),
+                new CustomizableThreadFactory("preview-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+}
@@ -1,13 +1,29 @@
 package com.cloudstorage.config;
 
+import com.cloudstorage.metrics.MinioMetricsEventListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioAsyncClient;
 import io.minio.MinioClient;
+import io.minio.http.HttpUtils;
+import lombok.RequiredArgsConstructor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+@RequiredArgsConstructor
 public class MinioConfig {
 
+    private final MeterRegistry meterRegistry;
+
     @Value("${minio.endpoint}")
     private String minioEndpoint;
 
@@ -17,11 +33,73 @@ public class MinioConfig {
     @Value("${minio.secretKey}")
     private String minioSecretKey;
 
+    @Value("${minio.http.max-idle-connections:32}")
+    private int maxIdleConnections;
+
+    @Value("${minio.http.keep-alive:5m}")
+    private Duration keepAlive;
+
+    @Value("${minio.http.max-requests:256}")
+    private int maxRequests;
+
+    @Value("${minio.http.max-requests-per-host:128}")
+    private int maxRequestsPerHost;
+
+    @Value("${minio.http.connect-timeout:10s}")
+    private Duration connectTimeout;
+
+    @Value("${minio.http.read-timeout:1m}")
+    private Duration readTimeout;
+
+    @Value("${minio.http.write-timeout:1m}")
+    private Duration writeTimeout;
+
+    @Value("${minio.http.call-timeout:0s}")
+    private Duration callTimeout;
+
+    @Bean
+    public ConnectionPool minioConnectionPool() {
+        return new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Общий HTTP-клиент для MinioClient и MinioAsyncClient. MinIO выполняет все запросы через enqueue,
+     * поэтому число одновременных запросов к хранилищу ограничивает Dispatcher (по умолчанию 5 на хост).
+     * read/write-timeout - максимальная пауза между пакетами, call-timeout - предел на весь запрос (0 - без ограничения)
+     */
+    @Bean
+    public OkHttpClient minioHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+
+        return HttpUtils.newDefaultHttpClient(connectTimeout.toMillis(), writeTimeout.toMillis(), readTimeout.toMillis())
+                .newBuilder()
+                .connectionPool(minioConnectionPool())
+                .dispatcher(dispatcher)
+                .callTimeout(callTimeout)
+                .eventListenerFactory(MinioMetricsEventListener.factory(meterRegistry))
+                .build();
+    }
+
     @Bean
     public MinioClient minioClient() {
         return MinioClient.builder()
                 .endpoint(minioEndpoint)
                 .credentials(minioAccessKey, minioSecretKey)
+                .httpClient(minioHttpClient())
+                .build();
+    }
+
+    /**
+     * Низкоуровневые операции multipart-загрузки (create/uploadPart/complete/abort) публичны только в асинхронном клиенте
+     */
+    @Bean
+    public MinioAsyncClient minioAsyncClient() {
+        return MinioAsyncClient.builder()
+                .endpoint(minioEndpoint)
+                .credentials(minioAccessKey, minioSecretKey)
+                .httpClient(minioHttpClient())
                 .build();
     }
 }
@@ -0,0 +1,92 @@
+package com.cloudstorage.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.minio.BucketExistsArgs;
+import io.minio.MinioAsyncClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Прогрев и наблюдение за пулом соединений с MinIO.
+ * При старте отправляется warmupConnections одновременных легких запросов, чтобы первые пользовательские
+ * запросы не платили за установку соединений. Число активных и простаивающих соединений публикуется
+ * в метриках minio.connections.active и minio.connections.idle и периодически пишется в лог
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+@RequiredArgsConstructor
+public class MinioConnectionPoolMonitor implements MeterBinder {
+
+    private final MinioAsyncClient minioAsyncClient;
+    private final ConnectionPool minioConnectionPool;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${minio.http.warmup-connections:8}")
+    private int warmupConnections;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmupConnections <= 0) return;
+
+        try {
+            CompletableFuture.allOf(IntStream.range(0, warmupConnections)
+                    .mapToObj(i -> bucketExists())
+                    .toArray(CompletableFuture[]::new)
+            ).join();
+
+            log.info("MinIO connection pool warmed up: {} connections, {} idle", getConnectionCount(), getIdleConnectionCount());
+        } catch (Exception exception) {
+            log.warn("Failed to warm up MinIO connection pool", exception);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("minio.connections.active", this, MinioConnectionPoolMonitor::getActiveConnectionCount)
+                .description("Соединения с MinIO, занятые запросами")
+                .register(registry);
+        Gauge.builder("minio.connections.idle", this, MinioConnectionPoolMonitor::getIdleConnectionCount)
+                .description("Простаивающие соединения с MinIO в пуле")
+                .register(registry);
+    }
+
+    @Scheduled(fixedDelayString = "${minio.http.stats-interval:10m}", initialDelayString = "${minio.http.stats-interval:10m}")
+    public void logStats() {
+        log.info("MinIO connection pool: {} active, {} idle", getActiveConnectionCount(), getIdleConnectionCount());
+    }
+
+    public int getConnectionCount() {
+        return this.minioConnectionPool.connectionCount();
+    }
+
+    public int getIdleConnectionCount() {
+        return this.minioConnectionPool.idleConnectionCount();
+    }
+
+    public int getActiveConnectionCount() {
+        return Math.max(0, getConnectionCount() - getIdleConnectionCount());
+    }
+
+    private CompletableFuture<Boolean> bucketExists() {
+        try {
+            return this.minioAsyncClient.bucketExists(BucketExistsArgs.builder().bucket(bucketName).build());
+        } catch (Exception exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+}
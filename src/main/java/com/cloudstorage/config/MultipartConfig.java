@@ -0,0 +1,32 @@
+package com.cloudstorage.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.UrlPathHelper;
+
+@Configuration
+public class MultipartConfig {
+
+    public static final String STREAMING_UPLOAD_PATH = "/api/resource/stream";
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    /**
+     * Стандартный резолвер складывает все части запроса во временные файлы до вызова контроллера.
+     * Для потоковой загрузки тело разбирается в самом контроллере, поэтому этот адрес резолвер пропускает
+     */
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver() {
+        return new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                return !STREAMING_UPLOAD_PATH.equals(URL_PATH_HELPER.getPathWithinApplication(request))
+                        && super.isMultipart(request);
+            }
+        };
+    }
+}
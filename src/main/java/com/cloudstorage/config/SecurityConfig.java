@@ -1,10 +1,15 @@
 package com.cloudstorage.config;
 
 import com.cloudstorage.config.filter.RestLoginFilter;
+import com.cloudstorage.config.filter.UploadQuotaFilter;
 import com.cloudstorage.config.filter.validator.PayloadValidator;
+import com.cloudstorage.controller.DirectoryController;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.QuotaService.QuotaService;
 import com.cloudstorage.service.SecurityUserDetailsService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -30,6 +35,7 @@ import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+import org.springframework.web.servlet.HandlerExceptionResolver;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.Arrays;
@@ -45,7 +51,9 @@ public class SecurityConfig implements WebMvcConfigurer {
     private final AuthenticationEntryPoint authEntryPoint;
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationManager authenticationManager, MessageSource messageSource, SecurityContextRepository securityContextRepository, ObjectMapper objectMapper, PayloadValidator payloadValidator) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthenticationManager authenticationManager, MessageSource messageSource, SecurityContextRepository securityContextRepository, ObjectMapper objectMapper, PayloadValidator payloadValidator,
+                                                   AuthService authService, QuotaService quotaService,
+                                                   @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) throws Exception {
         RestLoginFilter restLoginFilter = new RestLoginFilter(
                 "/api/auth/sign-in",
                 authenticationManager,
@@ -62,7 +70,9 @@ public class SecurityConfig implements WebMvcConfigurer {
                                         "/api/auth/sign-up",
                                         "/api/auth/sign-in",
                                         "/swagger-ui/**",
-                                        "/v3/api-docs/**"
+                                        "/v3/api-docs/**",
+                                        "/actuator/health",
+                                        "/actuator/prometheus"
                                 ).permitAll()
                                 .anyRequest().authenticated())
                 .addFilterBefore(restLoginFilter, UsernamePasswordAuthenticationFilter.class)
@@ -83,6 +93,7 @@ public class SecurityConfig implements WebMvcConfigurer {
                         .logoutSuccessHandler(((request, response, authentication) -> {
                             response.setStatus(204);
                         })))
+                .addFilterAfter(new UploadQuotaFilter(authService, quotaService, handlerExceptionResolver), AuthorizationFilter.class)
                 .addFilterAfter((req, res, chain) -> {
 //                    System.out.println("Current auth: " + SecurityContextHolder.getContext().getAuthentication());
                     chain.doFilter(req, res);
@@ -120,6 +131,7 @@ public class SecurityConfig implements WebMvcConfigurer {
         configuration.setAllowedOrigins(List.of("http://localhost:8080"));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "PATCH", "OPTIONS"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of(DirectoryController.NEXT_CURSOR_HEADER));
         configuration.setAllowCredentials(true);
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
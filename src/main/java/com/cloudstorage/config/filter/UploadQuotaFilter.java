@@ -0,0 +1,57 @@
+package com.cloudstorage.config.filter;
+
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+/**
+ * Multipart-загрузка на POST /api/resource разбирается во временные файлы до вызова контроллера, поэтому
+ * квота в сервисе проверяется уже после того, как все тело прочитано. Тело, которое заведомо не поместится в квоту,
+ * отклоняется здесь по Content-Length до разбора. Размер тела включает заголовки частей, поэтому проверка немного
+ * строже фактического размера файлов, как и у потоковой загрузки. Тело без размера проверяет только сервис.
+ * Фильтр стоит в цепочке Spring Security после проверки доступа, анонимный запрос сюда не доходит
+ */
+public class UploadQuotaFilter extends OncePerRequestFilter {
+
+    private static final String UPLOAD_PATH = "/api/resource";
+
+    private static final UrlPathHelper URL_PATH_HELPER = new UrlPathHelper();
+
+    private final AuthService authService;
+    private final QuotaService quotaService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public UploadQuotaFilter(AuthService authService,
+                             QuotaService quotaService,
+                             HandlerExceptionResolver handlerExceptionResolver) {
+        this.authService = authService;
+        this.quotaService = quotaService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod())
+                || request.getContentLengthLong() <= 0
+                || !UPLOAD_PATH.equals(URL_PATH_HELPER.getPathWithinApplication(request));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (request.getContentLengthLong() > this.quotaService.getAvailableBytes(this.authService.getUserIdFromSession())) {
+            this.handlerExceptionResolver.resolveException(request, response, null, new QuotaExceededException("quota.error.exceeded"));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,79 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.controller.payload.BlockSignaturePayload;
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.service.DeltaService.DeltaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/resource")
+@Tag(name = "Контроллер дельта-загрузок", description = "Обновление измененного файла отправкой только изменившихся блоков")
+public class DeltaController {
+
+    private final DeltaService deltaService;
+
+    @GetMapping("/signature")
+    @Operation(summary = "Получить сигнатуры блоков файла", responses = {
+            @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = BlockSignaturePayload.class)
+            )),
+            @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Файл не найден", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<BlockSignaturePayload> getSignature(
+            @Parameter(name = "path", description = "Путь до файла", example = "folder1/disk.img", required = true)
+            @RequestParam("path") String path
+    ) throws NoSuchFileException {
+        if (path.isBlank() || path.endsWith("/")) {
+            throw new IllegalArgumentException("validation.error.path.invalid_path");
+        }
+
+        return ResponseEntity.ok(this.deltaService.getSignature(path));
+    }
+
+    @PutMapping("/delta")
+    @Operation(summary = "Обновить файл дельтой относительно версии из сигнатур",
+            description = "Тело - команды дельты, целые числа big-endian: 0x01 block:int32 count:int32 - скопировать count блоков "
+                    + "старой версии начиная с block, 0x02 length:int32 и length байт - вставить байты, 0x00 - конец дельты",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                            mediaType = "application/json",
+                            schema = @Schema(implementation = FilePayload.class)
+                    )),
+                    @ApiResponse(responseCode = "400", description = "Невалидный путь или формат дельты", content = @Content),
+                    @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+                    @ApiResponse(responseCode = "404", description = "Файл не найден", content = @Content),
+                    @ApiResponse(responseCode = "409", description = "Файл изменился после получения сигнатур", content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+                    @ApiResponse(responseCode = "507", description = "Недостаточно свободного места", content = @Content),
+            })
+    public ResponseEntity<FilePayload> applyDelta(
+            @Parameter(name = "path", description = "Путь до файла", example = "folder1/disk.img", required = true)
+            @RequestParam("path") String path,
+            @Parameter(name = "base", description = "etag из сигнатур, относительно которых построена дельта", required = true)
+            @RequestParam("base") String base,
+            HttpServletRequest request
+    ) throws NoSuchFileException, IOException {
+        if (path.isBlank() || path.endsWith("/")) {
+            throw new IllegalArgumentException("validation.error.path.invalid_path");
+        }
+
+        return ResponseEntity.ok(this.deltaService.applyDelta(path, base, request.getInputStream()));
+    }
+}
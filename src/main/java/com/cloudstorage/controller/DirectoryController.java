@@ -2,6 +2,7 @@ package com.cloudstorage.controller;
 
 import com.cloudstorage.controller.payload.DirectoryPayload;
 import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.service.DirectoryService.DirectoryContentPage;
 import com.cloudstorage.service.DirectoryService.DirectoryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -24,30 +25,57 @@ import java.util.List;
 @Tag(name = "Контроллер директорий", description = "Обеспечивает логику работы с директориями")
 public class DirectoryController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+
     private final DirectoryService directoryService;
 
     @GetMapping
-    @Operation(summary = "Получить содержимое директории", responses = {
+    @Operation(summary = "Получить содержимое директории", description = "Без cursor и limit содержимое отдается целиком. " +
+            "С ними - страницами, и если есть следующая страница, ее курсор возвращается в заголовке " + NEXT_CURSOR_HEADER, responses = {
             @ApiResponse(responseCode = "200",
                     description = "Успех",
                     content = @Content(
                             mediaType = "application/json",
                             array = @ArraySchema(schema = @Schema(implementation = FilePayload.class))
                     )),
-            @ApiResponse(responseCode = "400", description = "Невлидный или отсутствующий path", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Невлидный или отсутствующий path, невалидный курсор или сортировка", content = @Content),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
             @ApiResponse(responseCode = "404", description = "Папка не существует", content = @Content),
             @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
     })
     public ResponseEntity<List<FilePayload>> getDirectoryContent(
             @Parameter(name = "path", description = "Путь до директории, заканчивающийся на /", example = "folder1/folder2/", required = true)
-            @RequestParam("path") String path
+            @RequestParam("path") String path,
+            @Parameter(name = "cursor", description = "Курсор следующей страницы из заголовка " + NEXT_CURSOR_HEADER)
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @Parameter(name = "limit", description = "Количество элементов на странице. Если передан только cursor - " + DEFAULT_PAGE_SIZE, example = "1000")
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @Parameter(name = "sort", description = "Поле сортировки: name, size или type", example = "name")
+            @RequestParam(value = "sort", defaultValue = "name") String sort,
+            @Parameter(name = "order", description = "Порядок сортировки: asc или desc", example = "asc")
+            @RequestParam(value = "order", defaultValue = "asc") String order
     ) throws NoSuchFileException {
         if (path.isBlank()) {
             throw new IllegalArgumentException("validation.error.path.blank_path");
         }
 
-        return ResponseEntity.ok(this.directoryService.getDirectoryContent(path));
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("validation.error.query.invalid_page");
+        }
+
+        // Клиент, который не просил страниц, получает все содержимое, как до появления пагинации
+        Integer pageSize = limit == null && cursor != null ? Integer.valueOf(DEFAULT_PAGE_SIZE) : limit;
+
+        DirectoryContentPage page = this.directoryService.getDirectoryContent(path, cursor, pageSize, sort, order);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+
+        return response.body(page.items());
     }
 
     @PostMapping
@@ -0,0 +1,75 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.controller.payload.JobPayload;
+import com.cloudstorage.service.JobService.JobService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/jobs")
+@Tag(name = "Контроллер фоновых задач", description = "Статус длительных операций с ресурсами")
+public class JobController {
+
+    private final JobService jobService;
+    private final MessageSource messageSource;
+
+    @GetMapping
+    @Operation(summary = "Получить фоновые задачи пользователя",
+            description = "В том числе переносы папок, продолженные после перезапуска приложения",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                            mediaType = "application/json",
+                            array = @ArraySchema(schema = @Schema(implementation = JobPayload.class))
+                    )),
+                    @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+                    @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+            })
+    public ResponseEntity<List<JobPayload>> getJobs(Locale locale) {
+        return ResponseEntity.ok(this.jobService.getJobs().stream().map(job -> localize(job, locale)).toList());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить статус фоновой задачи", responses = {
+            @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = JobPayload.class)
+            )),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Задача не найдена", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<JobPayload> getJob(
+            @Parameter(name = "id", description = "Идентификатор задачи", required = true)
+            @PathVariable("id") String id,
+            Locale locale
+    ) throws NoSuchFileException {
+        return ResponseEntity.ok(localize(this.jobService.getJob(id), locale));
+    }
+
+    /**
+     * В задаче хранится ключ сообщения, текст подставляется на языке запроса
+     */
+    private JobPayload localize(JobPayload job, Locale locale) {
+        if (job.message() == null) return job;
+
+        return new JobPayload(job.id(), job.type(), job.status(), job.processedObjects(),
+                this.messageSource.getMessage(job.message(), null, "error", locale));
+    }
+}
@@ -0,0 +1,62 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.service.PreviewService.PreviewService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/resource")
+@Tag(name = "Контроллер превью", description = "Уменьшенные копии изображений")
+public class PreviewController {
+
+    private final PreviewService previewService;
+
+    @Value("${storage.preview.max-age:1m}")
+    private Duration maxAge;
+
+    /**
+     * ETag превью - дайджест содержимого файла, при совпадении с If-None-Match отвечает 304
+     */
+    @GetMapping("/preview")
+    @Operation(summary = "Получить превью изображения", responses = {
+            @ApiResponse(responseCode = "200", description = "Успех", content = @Content(mediaType = "image/jpeg")),
+            @ApiResponse(responseCode = "202", description = "Превью строится, запрос нужно повторить позже", content = @Content),
+            @ApiResponse(responseCode = "304", description = "Превью не изменилось", content = @Content),
+            @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Файл не найден или для него нет превью", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<byte[]> getPreview(
+            @Parameter(name = "path", description = "Путь до файла", example = "folder1/photo.png", required = true)
+            @RequestParam("path") String path
+    ) throws NoSuchFileException {
+        if (path.isBlank() || path.endsWith("/")) {
+            throw new IllegalArgumentException("validation.error.path.invalid_path");
+        }
+
+        return this.previewService.getPreview(path)
+                .map(preview -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .eTag(preview.etag())
+                        .cacheControl(CacheControl.maxAge(maxAge).cachePrivate())
+                        .body(preview.content()))
+                .orElseGet(() -> ResponseEntity.accepted()
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .build());
+    }
+}
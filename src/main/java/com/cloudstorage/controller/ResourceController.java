@@ -2,26 +2,44 @@ package com.cloudstorage.controller;
 
 import com.cloudstorage.controller.payload.DirectoryPayload;
 import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.JobPayload;
 import com.cloudstorage.service.DirectoryService.DirectoryService;
+import com.cloudstorage.service.FileService.FileMetadata;
 import com.cloudstorage.service.FileService.FileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StreamUtils;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
 import java.util.List;
 
 @RestController
@@ -43,6 +61,7 @@ public class ResourceController {
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
             @ApiResponse(responseCode = "409", description = "Ресурс уже существует", content = @Content),
             @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+            @ApiResponse(responseCode = "507", description = "Недостаточно свободного места", content = @Content),
     })
     public ResponseEntity<?> uploadFile(@Parameter(name = "path", description = "Путь до директории для загрузки, заканчивающийся на /", example = "folder1/folder2/", required = true)
                                         @RequestParam("path") String path,
@@ -67,6 +86,44 @@ public class ResourceController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping("/stream")
+    @Operation(summary = "Загрузить файлы потоком, без временных файлов на сервере", description = "Тело - multipart/form-data с частями files, как у POST /api/resource. Путь передается только в строке запроса", responses = {
+            @ApiResponse(responseCode = "201", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    array = @ArraySchema(schema = @Schema(implementation = FilePayload.class))
+            )),
+            @ApiResponse(responseCode = "400", description = "Невалидное тело запроса", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Ресурс уже существует", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+            @ApiResponse(responseCode = "507", description = "Недостаточно свободного места", content = @Content),
+    })
+    @Parameter(name = "path", in = ParameterIn.QUERY, description = "Путь до директории для загрузки, заканчивающийся на /", example = "folder1/folder2/", required = true)
+    public ResponseEntity<?> uploadFileStream(HttpServletRequest request) throws FileAlreadyExistsException, IOException {
+        // request.getParameter для multipart-запроса заставил бы контейнер разобрать все тело, поэтому путь читается из строки запроса
+        String path = UriComponentsBuilder.newInstance()
+                .query(request.getQueryString())
+                .build()
+                .getQueryParams()
+                .getFirst("path");
+
+        if (path == null || path.isBlank()) {
+            throw new IllegalArgumentException("validation.error.path.blank_path");
+        }
+
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new IllegalArgumentException("validation.error.files.no_files_present");
+        }
+
+        JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+        upload.setHeaderCharset(StandardCharsets.UTF_8);
+
+        var response = this.fileService.uploadFileStream(URLDecoder.decode(path, StandardCharsets.UTF_8), upload.getItemIterator(request),
+                request.getContentLengthLong());
+
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
     @GetMapping
     @Operation(summary = "Получить информацию о ресурсе (файле или папке)", responses = {
             @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
@@ -94,20 +151,32 @@ public class ResourceController {
 
     @DeleteMapping
     @Operation(summary = "Удалить ресурс (файл или папку)", responses = {
+            @ApiResponse(responseCode = "202", description = "Удаление папки запущено в фоне (async=true)", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = JobPayload.class)
+            )),
             @ApiResponse(responseCode = "204", description = "Успех", content = @Content),
             @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь", content = @Content),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
             @ApiResponse(responseCode = "404", description = "Ресурс не найден", content = @Content),
             @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+            @ApiResponse(responseCode = "503", description = "Очередь фоновых задач переполнена (async=true)", content = @Content),
     })
     public ResponseEntity<?> deleteResource(@Parameter(name = "path", description = "Путь до ресурса", example = "folder1/folder2/file.txt", required = true)
-                                            @RequestParam("path") String path
+                                            @RequestParam("path") String path,
+                                            @Parameter(name = "async", description = "Удалить папку в фоне, статус доступен по /api/jobs/{id}", example = "true")
+                                            @RequestParam(value = "async", defaultValue = "false") boolean async
     ) throws NoSuchFileException {
         if (path.isBlank()) {
             throw new IllegalArgumentException("validation.error.path.blank_path");
         }
 
         if (path.charAt(path.length() - 1) == '/') {
+            if (async) {
+                JobPayload job = this.directoryService.deleteDirectoryAsync(path);
+                return ResponseEntity.accepted().location(URI.create("/api/jobs/" + job.id())).body(job);
+            }
+
             this.directoryService.deleteDirectory(path);
         } else {
             this.fileService.deleteFile(path);
@@ -117,17 +186,22 @@ public class ResourceController {
     }
 
     @GetMapping("/download")
-    @Operation(summary = "Скачать ресурс (файл или папку (в формате zip))", responses = {
+    @Operation(summary = "Скачать ресурс (файл или папку (в формате zip))", description = "Для файлов поддерживаются Range (в том числе несколько диапазонов), If-Range, If-None-Match и If-Modified-Since", responses = {
             @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
                     mediaType = "application/octet-stream | application/zip"
             )),
+            @ApiResponse(responseCode = "206", description = "Часть файла по заголовку Range", content = @Content(
+                    mediaType = "application/octet-stream | multipart/byteranges"
+            )),
+            @ApiResponse(responseCode = "304", description = "Файл не изменился", content = @Content),
             @ApiResponse(responseCode = "400", description = "Невалидный или отсутствующий путь", content = @Content),
             @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
             @ApiResponse(responseCode = "404", description = "Ресурс не найден", content = @Content),
+            @ApiResponse(responseCode = "416", description = "Запрошенный диапазон вне файла", content = @Content),
             @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
     })
     public void downloadResource(@Parameter(name = "path", description = "Путь до ресурса", example = "folder1/folder2/file.txt", required = true)
-                                 @RequestParam("path") String path, HttpServletResponse response
+                                 @RequestParam("path") String path, HttpServletRequest request, HttpServletResponse response
     ) throws IOException {
         if (path.isBlank()) {
             throw new IllegalArgumentException("validation.error.path.blank_path");
@@ -136,15 +210,152 @@ public class ResourceController {
         if (path.endsWith("/")) {
             response.setContentType("application/zip");
             this.directoryService.downloadDirectory(path, response.getOutputStream(), response);
-        } else {
+            response.setStatus(HttpStatus.OK.value());
+            response.flushBuffer();
+            return;
+        }
+
+        FileMetadata metadata = this.fileService.getFileMetadata(path);
+
+        // Выставляет ETag и Last-Modified, при совпадении отвечает 304 (или 412 для If-Match)
+        if (new ServletWebRequest(request, response).checkNotModified(metadata.etag(), metadata.lastModified().toEpochMilli())) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + metadata.name() + "\"");
+
+        List<ByteRegion> regions;
+
+        try {
+            regions = isRangeApplicable(request, metadata)
+                    ? toRegions(parseRanges(request.getHeader(HttpHeaders.RANGE)), metadata.size())
+                    : List.of();
+        } catch (IllegalArgumentException exception) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + metadata.size());
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            return;
+        }
+
+        boolean headRequest = HttpMethod.HEAD.matches(request.getMethod());
+
+        if (regions.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType("application/octet-stream");
+            response.setContentLengthLong(metadata.size());
+
+            if (!headRequest) {
+                writeRegion(path, 0, null, response.getOutputStream());
+            }
+        } else if (regions.size() == 1) {
+            ByteRegion region = regions.get(0);
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
             response.setContentType("application/octet-stream");
-            StreamUtils.copy(this.fileService.downloadFile(path, response), response.getOutputStream());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, region.contentRange(metadata.size()));
+            response.setContentLengthLong(region.length());
+
+            if (!headRequest) {
+                writeRegion(path, region.start(), region.length(), response.getOutputStream());
+            }
+        } else {
+            String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setContentType("multipart/byteranges; boundary=" + boundary);
+
+            if (!headRequest) {
+                OutputStream outputStream = response.getOutputStream();
+
+                for (ByteRegion region : regions) {
+                    outputStream.write(("\r\n--" + boundary + "\r\n"
+                            + HttpHeaders.CONTENT_TYPE + ": application/octet-stream\r\n"
+                            + HttpHeaders.CONTENT_RANGE + ": " + region.contentRange(metadata.size()) + "\r\n\r\n")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    writeRegion(path, region.start(), region.length(), outputStream);
+                }
+
+                outputStream.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+            }
         }
 
-        response.setStatus(HttpStatus.OK.value());
         response.flushBuffer();
     }
 
+    private void writeRegion(String path, long offset, Long length, OutputStream outputStream) throws IOException {
+        try (InputStream content = this.fileService.downloadFile(path, offset, length)) {
+            content.transferTo(outputStream);
+        }
+    }
+
+    /**
+     * If-Range сравнивается строго: диапазон отдается, только если файл не менялся с момента первой загрузки,
+     * иначе отправляется весь файл
+     */
+    private boolean isRangeApplicable(HttpServletRequest request, FileMetadata metadata) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals("\"" + metadata.etag() + "\"");
+        }
+
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == metadata.lastModified().getEpochSecond();
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Некорректный заголовок Range игнорируется и отдается весь файл (RFC 9110, 14.2),
+     * 416 возвращается только для корректного диапазона вне файла
+     */
+    private List<HttpRange> parseRanges(String range) {
+        try {
+            return HttpRange.parseRanges(range);
+        } catch (IllegalArgumentException exception) {
+            return List.of();
+        }
+    }
+
+    private List<ByteRegion> toRegions(List<HttpRange> ranges, long size) {
+        List<ByteRegion> regions = new ArrayList<>(ranges.size());
+        long total = 0;
+
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(size);
+            long end = range.getRangeEnd(size);
+
+            if (end < start) {
+                throw new IllegalArgumentException("Unsatisfiable range");
+            }
+
+            regions.add(new ByteRegion(start, end));
+            total += end - start + 1;
+        }
+
+        // Перекрывающиеся диапазоны не должны заставлять отдавать больше самого файла
+        if (regions.size() > 1 && total > size) {
+            throw new IllegalArgumentException("Total of ranges exceeds file size");
+        }
+
+        return regions;
+    }
+
+    private record ByteRegion(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+    }
+
     @GetMapping("/rename")
     @Operation(summary = "Переименовать ресурс (файл или папку)", responses = {
             @ApiResponse(responseCode = "200", description = "Успех", content = @Content),
@@ -206,7 +417,7 @@ public class ResourceController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Поиск по файлам", responses = {
+    @Operation(summary = "Поиск по файлам и папкам", responses = {
             @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
                     mediaType = "application/json",
                     array = @ArraySchema(schema = @Schema(implementation = FilePayload.class))
@@ -217,11 +428,19 @@ public class ResourceController {
     })
     public ResponseEntity<List<FilePayload>> searchResources(
             @Parameter(name = "query", description = "Поисковый запрос в URL-encoded формате", example = "file2", required = true)
-            @RequestParam("query") String query) {
+            @RequestParam("query") String query,
+            @Parameter(name = "page", description = "Номер страницы результатов, с нуля", example = "0")
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @Parameter(name = "limit", description = "Количество результатов на странице", example = "50")
+            @RequestParam(value = "limit", defaultValue = "50") int limit) {
         if (query.isBlank()) {
             throw new IllegalArgumentException("validation.error.query.blank_query");
         }
 
-        return ResponseEntity.ok(this.fileService.findResources(query));
+        if (page < 0 || limit < 1) {
+            throw new IllegalArgumentException("validation.error.query.invalid_page");
+        }
+
+        return ResponseEntity.ok(this.fileService.findResources(query, page, limit));
     }
 }
@@ -0,0 +1,135 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.UploadSessionPayload;
+import com.cloudstorage.service.UploadService.UploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/api/uploads")
+@Tag(name = "Контроллер докачиваемых загрузок", description = "Загрузка больших файлов по частям с возможностью продолжить после обрыва")
+public class UploadController {
+
+    private final UploadService uploadService;
+
+    @PostMapping
+    @Operation(summary = "Начать загрузку файла по частям", responses = {
+            @ApiResponse(responseCode = "201", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadSessionPayload.class)
+            )),
+            @ApiResponse(responseCode = "400", description = "Невалидные параметры загрузки", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Файл уже существует или уже загружается", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+            @ApiResponse(responseCode = "507", description = "Недостаточно свободного места", content = @Content),
+    })
+    public ResponseEntity<UploadSessionPayload> createUpload(
+            @Parameter(name = "path", description = "Путь до директории для загрузки, заканчивающийся на /", example = "folder1/folder2/", required = true)
+            @RequestParam("path") String path,
+            @Parameter(name = "name", description = "Имя файла", example = "video.mp4", required = true)
+            @RequestParam("name") String name,
+            @Parameter(name = "size", description = "Размер файла в байтах", example = "21474836480", required = true)
+            @RequestParam("size") long size,
+            @Parameter(name = "contentType", description = "Тип содержимого файла", example = "video/mp4")
+            @RequestParam(value = "contentType", required = false) String contentType
+    ) throws FileAlreadyExistsException {
+        if (path.isBlank()) {
+            throw new IllegalArgumentException("validation.error.path.blank_path");
+        }
+
+        UploadSessionPayload upload = this.uploadService.createUpload(path, name, size, contentType);
+
+        return ResponseEntity.created(URI.create("/api/uploads/" + upload.id())).body(upload);
+    }
+
+    @PutMapping("/{id}")
+    @Operation(summary = "Загрузить кусок файла", description = "Тело запроса - байты куска. Смещение кратно chunkSize сессии, размер куска равен chunkSize (кроме последнего)", responses = {
+            @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadSessionPayload.class)
+            )),
+            @ApiResponse(responseCode = "400", description = "Смещение или размер куска не соответствуют сессии", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Сессия загрузки не найдена", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<UploadSessionPayload> uploadChunk(
+            @Parameter(name = "id", description = "Идентификатор сессии загрузки", required = true)
+            @PathVariable("id") UUID id,
+            @Parameter(name = "offset", description = "Смещение куска от начала файла", example = "16777216", required = true)
+            @RequestParam("offset") long offset,
+            HttpServletRequest request
+    ) throws NoSuchFileException, IOException {
+        return ResponseEntity.ok(this.uploadService.uploadChunk(id, offset, request.getInputStream(), request.getContentLengthLong()));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Получить состояние загрузки", responses = {
+            @ApiResponse(responseCode = "200", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = UploadSessionPayload.class)
+            )),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Сессия загрузки не найдена", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<UploadSessionPayload> getUpload(
+            @Parameter(name = "id", description = "Идентификатор сессии загрузки", required = true)
+            @PathVariable("id") UUID id
+    ) throws NoSuchFileException {
+        return ResponseEntity.ok(this.uploadService.getUpload(id));
+    }
+
+    @PostMapping("/{id}/complete")
+    @Operation(summary = "Завершить загрузку и собрать файл из частей", responses = {
+            @ApiResponse(responseCode = "201", description = "Успех", content = @Content(
+                    mediaType = "application/json",
+                    schema = @Schema(implementation = FilePayload.class)
+            )),
+            @ApiResponse(responseCode = "400", description = "Загружены не все части", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Сессия загрузки не найдена", content = @Content),
+            @ApiResponse(responseCode = "409", description = "Файл уже существует", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<FilePayload> completeUpload(
+            @Parameter(name = "id", description = "Идентификатор сессии загрузки", required = true)
+            @PathVariable("id") UUID id
+    ) throws NoSuchFileException, FileAlreadyExistsException {
+        return ResponseEntity.status(HttpStatus.CREATED).body(this.uploadService.completeUpload(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Отменить загрузку", responses = {
+            @ApiResponse(responseCode = "204", description = "Успех", content = @Content),
+            @ApiResponse(responseCode = "401", description = "Пользователь не авторизован", content = @Content),
+            @ApiResponse(responseCode = "404", description = "Сессия загрузки не найдена", content = @Content),
+            @ApiResponse(responseCode = "500", description = "Неизвестная ошибка", content = @Content),
+    })
+    public ResponseEntity<?> abortUpload(
+            @Parameter(name = "id", description = "Идентификатор сессии загрузки", required = true)
+            @PathVariable("id") UUID id
+    ) throws NoSuchFileException {
+        this.uploadService.abortUpload(id);
+
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,32 @@
+package com.cloudstorage.controller.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Сигнатуры блоков файла для дельта-загрузки")
+public record BlockSignaturePayload(
+        @Schema(description = "Путь до директории файла", example = "folder1/folder2/")
+        String path,
+        @Schema(description = "Имя файла", example = "disk.img")
+        String name,
+        @Schema(description = "Размер файла в байтах", example = "2147483648")
+        Long size,
+        @Schema(description = "Версия файла, от которой строится дельта. Передается в base при загрузке дельты",
+                example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08")
+        String etag,
+        @Schema(description = "Размер блока в байтах, последний блок может быть короче", example = "1048576")
+        Long blockSize,
+        @Schema(description = "Сигнатуры блоков по порядку, блок i начинается со смещения i * blockSize")
+        List<Block> blocks
+) {
+
+    @Schema(description = "Сигнатура блока")
+    public record Block(
+            @Schema(description = "Скользящая контрольная сумма rsync: (b << 16) | a, где a - сумма байтов, b - сумма префиксных сумм, обе по модулю 65536",
+                    example = "2882400018")
+            Long weak,
+            @Schema(description = "SHA-256 блока в hex", example = "5891b5b522d5df086d0ff0b110fbd9d21bb4fc7163af34d08286a2e846f6be03")
+            String strong
+    ) {}
+}
@@ -1,5 +1,6 @@
 package com.cloudstorage.controller.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Данные папки")
@@ -9,5 +10,15 @@ public record DirectoryPayload(
         @Schema(description = "Название папки", example = "folder3")
         String name,
         @Schema(description = "Тип данных", example = "DIRECTORY")
-        String type
-) {}
+        String type,
+        @Schema(description = "Суммарный размер файлов папки и ее подпапок в байтах", example = "123")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Long size,
+        @Schema(description = "Число файлов в папке и ее подпапках", example = "12")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Long fileCount
+) {
+    public DirectoryPayload(String path, String name, String type) {
+        this(path, name, type, null, null);
+    }
+}
@@ -1,5 +1,6 @@
 package com.cloudstorage.controller.payload;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import io.swagger.v3.oas.annotations.media.Schema;
 
 @Schema(description = "Данные файла")
@@ -11,5 +12,12 @@ public record FilePayload(
         @Schema(name = "Размер файлав байтах", example = "123")
         Long size,
         @Schema(name = "Тип данных", example = "FILE")
-        String type
-) {}
+        String type,
+        @Schema(name = "Число файлов в папке и ее подпапках, только у папок", example = "12")
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        Long fileCount
+) {
+    public FilePayload(String path, String name, Long size, String type) {
+        this(path, name, size, type, null);
+    }
+}
@@ -0,0 +1,17 @@
+package com.cloudstorage.controller.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Фоновая задача")
+public record JobPayload(
+        @Schema(description = "Идентификатор задачи", example = "6f1c2a9e-4b7d-4c2e-9a57-3f0d8f1e2b11")
+        String id,
+        @Schema(description = "Тип задачи", example = "DELETE")
+        String type,
+        @Schema(description = "Статус задачи: RUNNING, COMPLETED, FAILED", example = "RUNNING")
+        String status,
+        @Schema(description = "Количество обработанных объектов", example = "12000")
+        Long processedObjects,
+        @Schema(description = "Сообщение об ошибке, если задача завершилась неудачно", example = "null")
+        String message
+) {}
@@ -0,0 +1,23 @@
+package com.cloudstorage.controller.payload;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+@Schema(description = "Сессия докачиваемой загрузки")
+public record UploadSessionPayload(
+        @Schema(description = "Идентификатор сессии", example = "6f1c2a9e-4b7d-4c2e-9a57-3f0d8f1e2b11")
+        String id,
+        @Schema(description = "Путь до директории загрузки", example = "folder1/folder2/")
+        String path,
+        @Schema(description = "Имя файла", example = "video.mp4")
+        String name,
+        @Schema(description = "Размер файла в байтах", example = "21474836480")
+        Long size,
+        @Schema(description = "Размер куска в байтах, смещения кусков кратны ему", example = "16777216")
+        Long chunkSize,
+        @Schema(description = "Количество уже принятых байт", example = "33554432")
+        Long uploadedBytes,
+        @Schema(description = "Смещения уже принятых кусков", example = "[0, 16777216]")
+        List<Long> uploadedOffsets
+) {}
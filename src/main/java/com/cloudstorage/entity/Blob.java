@@ -0,0 +1,46 @@
+package com.cloudstorage.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(schema = "storage", name = "t_blob")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class Blob {
+
+    /**
+     * SHA-256 содержимого в hex
+     */
+    @Id
+    @Column(name = "c_digest")
+    private String digest;
+
+    @Column(name = "c_size")
+    private Long size;
+
+    /**
+     * Число файлов каталога, ссылающихся на блоб. Блоб без ссылок удаляет BlobCollector
+     */
+    @Column(name = "c_ref_count")
+    private Integer refCount;
+
+    /**
+     * Ключ содержимого в хранилище, если оно лежит не под ключом из дайджеста (блоб потоковой загрузки)
+     */
+    @Column(name = "c_object_name")
+    private String objectName;
+
+    @Column(name = "c_created_at")
+    private Instant createdAt;
+
+    @Column(name = "c_updated_at")
+    private Instant updatedAt;
+}
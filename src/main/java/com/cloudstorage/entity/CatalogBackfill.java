@@ -0,0 +1,28 @@
+package com.cloudstorage.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(schema = "storage", name = "t_catalog_backfill")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogBackfill {
+
+    /**
+     * catalog - весь каталог, user-N-files/ - каталог одного пользователя
+     */
+    @Id
+    @Column(name = "c_scope")
+    private String scope;
+
+    @Column(name = "c_completed_at")
+    private Instant completedAt;
+}
@@ -0,0 +1,34 @@
+package com.cloudstorage.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(schema = "storage", name = "t_relocation_lease")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RelocationLease {
+
+    /**
+     * Идентификатор чекпоинта переноса
+     */
+    @Id
+    @Column(name = "c_id")
+    private String id;
+
+    /**
+     * Идентификатор экземпляра приложения, который выполняет перенос
+     */
+    @Column(name = "c_owner")
+    private String owner;
+
+    @Column(name = "c_leased_until")
+    private Instant leasedUntil;
+}
@@ -0,0 +1,78 @@
+package com.cloudstorage.entity;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@Entity
+@Table(schema = "storage", name = "t_resource")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResourceMetadata {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "c_user_id")
+    private Integer userId;
+
+    /**
+     * Путь от корня пользователя, у директорий заканчивается на /
+     */
+    @Column(name = "c_path")
+    private String path;
+
+    @Column(name = "c_parent")
+    private String parent;
+
+    @Column(name = "c_name")
+    private String name;
+
+    @Column(name = "c_type")
+    private String type;
+
+    /**
+     * У директорий - суммарный размер файлов поддерева
+     */
+    @Column(name = "c_size")
+    private Long size;
+
+    /**
+     * Число файлов в поддереве директории, у файлов 0
+     */
+    @Column(name = "c_file_count")
+    private Long fileCount;
+
+    @Column(name = "c_content_type")
+    private String contentType;
+
+    @Column(name = "c_etag")
+    private String etag;
+
+    /**
+     * SHA-256 содержимого, хранящегося в блобе. null - файл лежит в хранилище по своему пути
+     */
+    @Column(name = "c_blob_digest")
+    private String blobDigest;
+
+    @Column(name = "c_created_at")
+    private Instant createdAt;
+
+    @Column(name = "c_updated_at")
+    private Instant updatedAt;
+
+    /**
+     * Вызывается для каждой строки листинга и поиска, поэтому путь и имя берутся из колонок без разбора строк
+     */
+    public FilePayload toFilePayload() {
+        return new FilePayload(parent.isEmpty() ? "/" : parent, name, size, type, "DIRECTORY".equals(type) ? fileCount : null);
+    }
+}
@@ -0,0 +1,46 @@
+package com.cloudstorage.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(schema = "storage", name = "t_upload_session")
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UploadSession {
+
+    @Id
+    private UUID id;
+
+    @Column(name = "c_user_id")
+    private Integer userId;
+
+    @Column(name = "c_object_name")
+    private String objectName;
+
+    @Column(name = "c_upload_id")
+    private String uploadId;
+
+    @Column(name = "c_size")
+    private Long size;
+
+    @Column(name = "c_chunk_size")
+    private Long chunkSize;
+
+    @Column(name = "c_content_type")
+    private String contentType;
+
+    @Column(name = "c_created_at")
+    private Instant createdAt;
+
+    @Column(name = "c_updated_at")
+    private Instant updatedAt;
+}
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import java.nio.file.NoSuchFileException;
 import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
 
 @ControllerAdvice
 @RequiredArgsConstructor
@@ -48,4 +49,20 @@ public class CommonControllerAdvice {
                 this.messageSource.getMessage(exception.getMessage(), null, "error", locale));
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(problemDetail);
     }
+
+    @ExceptionHandler(QuotaExceededException.class)
+    private ResponseEntity<ProblemDetail> handleQuotaExceededCase(QuotaExceededException exception, Locale locale) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.INSUFFICIENT_STORAGE);
+        problemDetail.setProperty("message",
+                this.messageSource.getMessage(exception.getMessage(), null, "error", locale));
+        return ResponseEntity.status(HttpStatus.INSUFFICIENT_STORAGE).body(problemDetail);
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    private ResponseEntity<ProblemDetail> handleJobRejectedCase(RejectedExecutionException exception, Locale locale) {
+        ProblemDetail problemDetail = ProblemDetail.forStatus(HttpStatus.SERVICE_UNAVAILABLE);
+        problemDetail.setProperty("message",
+                this.messageSource.getMessage("jobs.error.rejected", null, "error", locale));
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(problemDetail);
+    }
 }
@@ -0,0 +1,24 @@
+package com.cloudstorage.metrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Время выполнения метода записывается в таймер storage.operations с тегами operation, type, outcome и exception
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface MeteredOperation {
+
+    /**
+     * upload, download, zip, rename, move, delete, list, search, delta или preview
+     */
+    String value();
+
+    /**
+     * FILE или DIRECTORY
+     */
+    String type() default "FILE";
+}
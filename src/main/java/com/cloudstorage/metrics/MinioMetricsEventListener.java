@@ -0,0 +1,118 @@
+package com.cloudstorage.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.boot.actuate.metrics.http.Outcome;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики запросов HTTP-клиента MinIO: minio.requests (время и количество по операции S3 API и outcome),
+ * minio.bytes.sent и minio.bytes.received. Операция определяется по методу, пути и параметрам запроса,
+ * так по числу вызовов видно, сколько обращений к MinIO делает одна пользовательская операция
+ */
+public class MinioMetricsEventListener extends EventListener {
+
+    private final MeterRegistry meterRegistry;
+    private final String api;
+    private final long start = System.nanoTime();
+    private int status;
+
+    private MinioMetricsEventListener(MeterRegistry meterRegistry, Request request) {
+        this.meterRegistry = meterRegistry;
+        this.api = resolveApi(request);
+    }
+
+    public static EventListener.Factory factory(MeterRegistry meterRegistry) {
+        return call -> new MinioMetricsEventListener(meterRegistry, call.request());
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        counter("minio.bytes.sent").increment(byteCount);
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        this.status = response.code();
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        counter("minio.bytes.received").increment(byteCount);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        record(Outcome.forStatus(status).name());
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        record(status == 0 ? "IO_ERROR" : Outcome.forStatus(status).name());
+    }
+
+    private void record(String outcome) {
+        Timer.builder("minio.requests")
+                .description("Запросы к MinIO")
+                .tag("api", api)
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter counter(String name) {
+        return Counter.builder(name)
+                .baseUnit("bytes")
+                .tag("api", api)
+                .register(this.meterRegistry);
+    }
+
+    /**
+     * Клиент MinIO обращается к бакету по пути (/bucket/object), имя операции берется из документации S3 API
+     */
+    static String resolveApi(Request request) {
+        String path = request.url().encodedPath();
+        int slash = path.indexOf('/', 1);
+        boolean objectLevel = slash > 0 && slash < path.length() - 1;
+        String method = request.method();
+
+        if (!objectLevel) {
+            return switch (method) {
+                case "GET" -> hasParameter(request, "location") ? "GetBucketLocation"
+                        : hasParameter(request, "uploads") ? "ListMultipartUploads"
+                        : "ListObjects";
+                case "HEAD" -> "HeadBucket";
+                case "PUT" -> "CreateBucket";
+                case "POST" -> hasParameter(request, "delete") ? "DeleteObjects" : "PostBucket";
+                case "DELETE" -> "DeleteBucket";
+                default -> method;
+            };
+        }
+
+        return switch (method) {
+            case "GET" -> hasParameter(request, "uploadId") ? "ListParts" : "GetObject";
+            case "HEAD" -> "HeadObject";
+            case "PUT" -> {
+                boolean copy = request.header("x-amz-copy-source") != null;
+                if (hasParameter(request, "partNumber")) yield copy ? "UploadPartCopy" : "UploadPart";
+                yield copy ? "CopyObject" : "PutObject";
+            }
+            case "POST" -> hasParameter(request, "uploads") ? "CreateMultipartUpload"
+                    : hasParameter(request, "uploadId") ? "CompleteMultipartUpload"
+                    : "PostObject";
+            case "DELETE" -> hasParameter(request, "uploadId") ? "AbortMultipartUpload" : "DeleteObject";
+            default -> method;
+        };
+    }
+
+    private static boolean hasParameter(Request request, String name) {
+        return request.url().queryParameterNames().contains(name);
+    }
+}
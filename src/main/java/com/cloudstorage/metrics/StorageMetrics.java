@@ -0,0 +1,158 @@
+package com.cloudstorage.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Метрики пользовательских операций с хранилищем:
+ * storage.operations - время операции по operation, type и outcome (SUCCESS, CLIENT_ERROR, SERVER_ERROR),
+ * storage.operation.bytes - объем переданных данных для upload, download, zip и delta (только присланные клиентом байты),
+ * storage.deduplicated.bytes - объем загруженных файлов, содержимое которых уже было в хранилище и повторно не записывалось
+ */
+@Component
+@RequiredArgsConstructor
+public class StorageMetrics {
+
+    public static final String UPLOAD = "upload";
+    public static final String DOWNLOAD = "download";
+    public static final String ZIP = "zip";
+    public static final String RENAME = "rename";
+    public static final String MOVE = "move";
+    public static final String DELETE = "delete";
+    public static final String LIST = "list";
+    public static final String SEARCH = "search";
+    public static final String DELTA = "delta";
+    public static final String PREVIEW = "preview";
+
+    public static final String FILE = "FILE";
+    public static final String DIRECTORY = "DIRECTORY";
+
+    private final MeterRegistry meterRegistry;
+
+    public void recordOperation(String operation, String type, long durationNanos, Throwable error) {
+        Timer.builder("storage.operations")
+                .description("Время выполнения операций с файлами и папками")
+                .tag("operation", operation)
+                .tag("type", type)
+                .tag("outcome", outcome(error))
+                .tag("exception", error == null ? "none" : error.getClass().getSimpleName())
+                .register(this.meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordBytes(String operation, long bytes) {
+        DistributionSummary.builder("storage.operation.bytes")
+                .description("Объем данных, переданных за одну операцию")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .register(this.meterRegistry)
+                .record(bytes);
+    }
+
+    public void recordDeduplicatedBytes(long bytes) {
+        Counter.builder("storage.deduplicated.bytes")
+                .description("Объем загрузок, не записанных в хранилище благодаря дедупликации")
+                .baseUnit("bytes")
+                .register(this.meterRegistry)
+                .increment(bytes);
+    }
+
+    /**
+     * Скачивание отдается потоком, поэтому время и объем записываются при закрытии потока, а не при его открытии
+     */
+    public InputStream meterDownload(InputStream content) {
+        return new MeteredInputStream(content);
+    }
+
+    /**
+     * Ошибки, которые клиент может исправить сам, соответствуют 4xx в ResourceControllerAdvice
+     */
+    private String outcome(Throwable error) {
+        if (error == null) return "SUCCESS";
+
+        if (error instanceof IllegalArgumentException
+                || error instanceof UnsupportedOperationException
+                || error instanceof NoSuchFileException
+                || error instanceof FileAlreadyExistsException) {
+            return "CLIENT_ERROR";
+        }
+
+        return "SERVER_ERROR";
+    }
+
+    private class MeteredInputStream extends FilterInputStream {
+
+        private final long start = System.nanoTime();
+        private long bytes;
+        private IOException error;
+        private boolean closed;
+
+        MeteredInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b != -1) bytes++;
+                return b;
+            } catch (IOException exception) {
+                this.error = exception;
+                throw exception;
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                int read = super.read(buffer, offset, length);
+                if (read > 0) bytes += read;
+                return read;
+            } catch (IOException exception) {
+                this.error = exception;
+                throw exception;
+            }
+        }
+
+        /**
+         * Передача делегируется исходному потоку, чтобы не терять его собственный transferTo (FileChannel у локального хранилища)
+         */
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            try {
+                long transferred = in.transferTo(out);
+                bytes += transferred;
+                return transferred;
+            } catch (IOException exception) {
+                this.error = exception;
+                throw exception;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) return;
+            closed = true;
+
+            try {
+                super.close();
+            } finally {
+                recordOperation(DOWNLOAD, FILE, System.nanoTime() - start, error);
+                recordBytes(DOWNLOAD, bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cloudstorage.metrics;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class StorageOperationMetricsAspect {
+
+    private final StorageMetrics storageMetrics;
+
+    @Around("@annotation(meteredOperation)")
+    public Object record(ProceedingJoinPoint joinPoint, MeteredOperation meteredOperation) throws Throwable {
+        long start = System.nanoTime();
+        Throwable error = null;
+
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable throwable) {
+            error = throwable;
+            throw throwable;
+        } finally {
+            this.storageMetrics.recordOperation(meteredOperation.value(), meteredOperation.type(), System.nanoTime() - start, error);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.entity.Blob;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+public interface BlobRepository extends CrudRepository<Blob, String> {
+
+    /**
+     * 0 - блоба нет, его содержимое нужно записать в хранилище
+     */
+    @Modifying
+    @Transactional
+    @Query("update Blob b set b.refCount = b.refCount + 1, b.updatedAt = :now where b.digest = :digest")
+    int acquire(@Param("digest") String digest, @Param("now") Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update Blob b set b.refCount = b.refCount - :count, b.updatedAt = :now where b.digest = :digest and b.refCount >= :count")
+    int release(@Param("digest") String digest, @Param("count") int count, @Param("now") Instant now);
+
+    /**
+     * Вставка без предварительного select: если блоб параллельно создал другой запрос, вылетает DataIntegrityViolationException
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into storage.t_blob (c_digest, c_size, c_ref_count, c_object_name, c_created_at, c_updated_at)
+            values (:digest, :size, 1, :objectName, :now, :now)
+            """, nativeQuery = true)
+    int create(@Param("digest") String digest,
+               @Param("size") long size,
+               @Param("objectName") String objectName,
+               @Param("now") Instant now);
+
+    @Query("select b.objectName from Blob b where b.objectName in :objectNames")
+    List<String> findObjectNames(@Param("objectNames") Collection<String> objectNames);
+
+    /**
+     * Блобы без ссылок блокируются до конца транзакции сборщика, поэтому загрузка того же содержимого
+     * ждет его и после удаления записывает блоб заново. Заблокированные другим сборщиком строки пропускаются
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select b from Blob b where b.refCount = 0 and b.updatedAt < :cutoff order by b.updatedAt")
+    List<Blob> findUnreferenced(@Param("cutoff") Instant cutoff, Limit limit);
+}
@@ -0,0 +1,7 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.entity.CatalogBackfill;
+import org.springframework.data.repository.CrudRepository;
+
+public interface CatalogBackfillRepository extends CrudRepository<CatalogBackfill, String> {
+}
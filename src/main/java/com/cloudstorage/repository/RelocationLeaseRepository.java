@@ -0,0 +1,40 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.entity.RelocationLease;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface RelocationLeaseRepository extends CrudRepository<RelocationLease, String> {
+
+    /**
+     * Продлевает свою аренду или забирает просроченную чужую. 0 - аренды нет или ее держит другой экземпляр
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update RelocationLease l set l.owner = :owner, l.leasedUntil = :until
+            where l.id = :id and (l.owner = :owner or l.leasedUntil < :now)
+            """)
+    int renew(@Param("id") String id, @Param("owner") String owner, @Param("now") Instant now, @Param("until") Instant until);
+
+    /**
+     * Если аренду параллельно создал другой экземпляр, вылетает DataIntegrityViolationException
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into storage.t_relocation_lease (c_id, c_owner, c_leased_until)
+            values (:id, :owner, :until)
+            """, nativeQuery = true)
+    int create(@Param("id") String id, @Param("owner") String owner, @Param("until") Instant until);
+
+    @Modifying
+    @Transactional
+    @Query("delete from RelocationLease l where l.id = :id and l.owner = :owner")
+    int release(@Param("id") String id, @Param("owner") String owner);
+}
@@ -0,0 +1,107 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ResourceMetadataRepository extends CrudRepository<ResourceMetadata, Long> {
+    Optional<ResourceMetadata> findByUserIdAndPath(Integer userId, String path);
+
+    boolean existsByUserIdAndPathAndType(Integer userId, String path, String type);
+
+    List<ResourceMetadata> findAllByUserIdAndPathIn(Integer userId, Collection<String> paths);
+
+    Window<ResourceMetadata> findByUserIdAndParent(Integer userId, String parent, ScrollPosition position, Sort sort, Limit limit);
+
+    /**
+     * На Postgres lower(c_name) like '%...%' обслуживает триграммный индекс idx_resource_name_trgm
+     */
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and lower(r.name) like :pattern escape '\\'
+            order by case when lower(r.name) like :prefixPattern escape '\\' then 0 else 1 end, lower(r.name), r.path
+            """)
+    List<ResourceMetadata> searchByName(@Param("userId") Integer userId,
+                                        @Param("pattern") String pattern,
+                                        @Param("prefixPattern") String prefixPattern,
+                                        Pageable pageable);
+
+    List<ResourceMetadata> findAllByUserId(Integer userId);
+
+    /**
+     * Дайджесты блобов файлов директории, по одному на файл: один блоб может встречаться несколько раз
+     */
+    @Query("select r.blobDigest from ResourceMetadata r where r.userId = :userId and r.path like :pattern escape '\\' and r.blobDigest is not null")
+    List<String> findBlobDigestsByPathPattern(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    @Query("select coalesce(sum(r.size), 0) from ResourceMetadata r where r.userId = :userId and r.path like :pattern escape '\\' and r.type = 'FILE'")
+    long sumFileSizesByPathPattern(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    @Query("select count(r) from ResourceMetadata r where r.userId = :userId and r.path like :pattern escape '\\' and r.type = 'FILE'")
+    long countFilesByPathPattern(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    /**
+     * Меняет агрегаты поддерева у перечисленных директорий одним запросом. Время изменения обновляется,
+     * чтобы сверка каталога не перезаписала агрегаты, посчитанные по листингу до изменения
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update ResourceMetadata r
+            set r.size = r.size + :size, r.fileCount = r.fileCount + :fileCount, r.updatedAt = :now
+            where r.userId = :userId and r.path in :paths and r.type = 'DIRECTORY'
+            """)
+    int addToDirectories(@Param("userId") Integer userId,
+                         @Param("paths") Collection<String> paths,
+                         @Param("size") long size,
+                         @Param("fileCount") long fileCount,
+                         @Param("now") Instant now);
+
+    @Query("""
+            select r from ResourceMetadata r
+            where r.userId = :userId and r.path like :pattern escape '\\' and r.blobDigest is not null and r.path > :after
+            order by r.path
+            """)
+    List<ResourceMetadata> findBlobFilesByPathPattern(@Param("userId") Integer userId,
+                                                      @Param("pattern") String pattern,
+                                                      @Param("after") String after,
+                                                      Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from ResourceMetadata r where r.userId = :userId and r.path like :pattern escape '\\'")
+    int deleteAllByPathPattern(@Param("userId") Integer userId, @Param("pattern") String pattern);
+
+    /**
+     * Переносит содержимое директории: префикс source в путях и родителях заменяется на target.
+     * Саму директорию source запрос не трогает. Время изменения обновляется по той же причине, что и в addToDirectories
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update ResourceMetadata r
+            set r.path = concat(:target, substring(r.path, :offset)),
+                r.parent = concat(:target, substring(r.parent, :offset)),
+                r.updatedAt = :now
+            where r.userId = :userId and r.path like :pattern escape '\\' and r.path <> :source
+            """)
+    int relocateChildren(@Param("userId") Integer userId,
+                         @Param("source") String source,
+                         @Param("target") String target,
+                         @Param("pattern") String pattern,
+                         @Param("offset") int offset,
+                         @Param("now") Instant now);
+}
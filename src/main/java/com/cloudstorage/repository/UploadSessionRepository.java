@@ -0,0 +1,22 @@
+package com.cloudstorage.repository;
+
+import com.cloudstorage.entity.UploadSession;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UploadSessionRepository extends CrudRepository<UploadSession, UUID> {
+    Optional<UploadSession> findByIdAndUserId(UUID id, Integer userId);
+
+    boolean existsByObjectName(String objectName);
+
+    List<UploadSession> findAllByUpdatedAtBefore(Instant updatedAt);
+
+    @Query("select coalesce(sum(s.size), 0) from UploadSession s where s.userId = :userId")
+    long sumSizeByUserId(@Param("userId") Integer userId);
+}
@@ -1,14 +1,44 @@
 package com.cloudstorage.repository;
 
 import com.cloudstorage.entity.User;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
+/**
+ * Счетчики места не отображаются в User: сохранение сущности перезаписало бы параллельные изменения счетчика
+ */
 public interface UserRepository extends CrudRepository<User, Integer> {
     boolean existsByUsername(String username);
 
     Optional<User> getByUsername(String username);
 
     Optional<User> findByUsername(String username);
+
+    @Modifying
+    @Transactional
+    @Query(value = "update user_management.t_user set c_used_bytes = c_used_bytes + :delta where id = :userId", nativeQuery = true)
+    int addUsedBytes(@Param("userId") int userId, @Param("delta") long delta);
+
+    /**
+     * Может быть отрицательным, если квоту уменьшили ниже занятого места
+     */
+    @Query(value = "select coalesce(c_quota_bytes, :defaultQuota) - c_used_bytes from user_management.t_user where id = :userId", nativeQuery = true)
+    Optional<Long> findAvailableBytes(@Param("userId") int userId, @Param("defaultQuota") long defaultQuota);
+
+    /**
+     * Возвращает число пользователей, у которых счетчик разошелся с каталогом
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            update user_management.t_user u
+            set c_used_bytes = (select coalesce(sum(r.c_size), 0) from storage.t_resource r where r.c_user_id = u.id and r.c_type = 'FILE')
+            where u.c_used_bytes <> (select coalesce(sum(r.c_size), 0) from storage.t_resource r where r.c_user_id = u.id and r.c_type = 'FILE')
+            """, nativeQuery = true)
+    int reconcileUsedBytes();
 }
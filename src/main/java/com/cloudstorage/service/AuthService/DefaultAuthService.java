@@ -3,11 +3,12 @@ package com.cloudstorage.service.AuthService;
 import com.cloudstorage.controller.payload.UsernamePayload;
 import com.cloudstorage.entity.User;
 import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.service.SecurityUser;
 import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -21,11 +22,19 @@ public class DefaultAuthService implements AuthService {
         return new UsernamePayload(username);
     }
 
+    /**
+     * Id берется из principal сессии. Запрос в Postgres выполняется только для сессий,
+     * созданных до появления SecurityUser
+     */
     @Override
-    @Transactional(readOnly = true)
     public Integer getUserIdFromSession() {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        User user = this.userRepository.getByUsername(username).orElseThrow(() -> new UsernameNotFoundException("users.errors.not_found"));
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication.getPrincipal() instanceof SecurityUser securityUser) {
+            return securityUser.getId();
+        }
+
+        User user = this.userRepository.getByUsername(authentication.getName()).orElseThrow(() -> new UsernameNotFoundException("users.errors.not_found"));
         return user.getId();
     }
 }
@@ -0,0 +1,48 @@
+package com.cloudstorage.service.BlobService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Удаляет блобы, на которые дольше storage.blobs.gc-grace никто не ссылается, и объекты блобов без записи в t_blob.
+ * Задержка дает завершиться загрузкам, которые уже записали содержимое, но еще не сохранили ссылку, и позволяет
+ * повторной загрузке только что удаленного файла обойтись без записи байтов. Запускается по расписанию storage.blobs.gc-cron
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlobCollector {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final BlobService blobService;
+
+    @Value("${storage.blobs.gc-grace:1h}")
+    private Duration gracePeriod;
+
+    @Scheduled(cron = "${storage.blobs.gc-cron:-}")
+    public void collect() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+
+        try {
+            int unreferenced = 0;
+            int removed;
+
+            while ((removed = this.blobService.removeUnreferenced(cutoff, BATCH_SIZE)) > 0) {
+                unreferenced += removed;
+            }
+
+            int orphans = this.blobService.removeOrphans(cutoff);
+
+            log.info("Collected blobs: {} unreferenced, {} orphaned objects removed", unreferenced, orphans);
+        } catch (Exception exception) {
+            log.warn("Failed to collect blobs", exception);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.cloudstorage.service.BlobService;
+
+import org.springframework.core.io.InputStreamSource;
+
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Контентно-адресуемое хранилище содержимого файлов: каждое содержимое хранится один раз под своим SHA-256,
+ * файлы каталога ссылаются на блоб. Число ссылок ведется в t_blob, блобы без ссылок удаляет BlobCollector
+ */
+public interface BlobService {
+
+    /**
+     * Источник читается дважды: сначала считается хеш, и только если такого блоба еще нет, содержимое пишется в хранилище.
+     * Ссылка на возвращенный блоб уже учтена
+     */
+    StoredBlob store(InputStreamSource content, long size, String contentType);
+
+    /**
+     * Поток читается один раз: пишется во временный объект с подсчетом хеша. Новое содержимое остается
+     * в этом объекте и не копируется, если такое содержимое уже есть - объект удаляется. Ссылка на возвращенный блоб уже учтена
+     */
+    StoredBlob store(InputStream content, String contentType);
+
+    /**
+     * Уже записанный в StoredBlob.STAGING_PREFIX объект с известным дайджестом становится блобом на месте
+     * или удаляется, если такое содержимое уже есть. Ссылка на возвращенный блоб уже учтена
+     */
+    StoredBlob adopt(String stagingName, String digest, long size);
+
+    void release(String digest, int references);
+
+    InputStream get(String digest, long offset, Long length) throws NoSuchFileException;
+
+    /**
+     * Ключ содержимого блоба в хранилище
+     */
+    String objectName(String digest) throws NoSuchFileException;
+
+    /**
+     * Ключи содержимого блобов по дайджестам одним запросом, блобов без записи в результате нет
+     */
+    Map<String, String> objectNames(Collection<String> digests);
+
+    /**
+     * Удаляет не больше limit блобов, на которые с cutoff никто не ссылается. Возвращает число удаленных
+     */
+    int removeUnreferenced(Instant cutoff, int limit);
+
+    /**
+     * Удаляет объекты блобов без записи в t_blob и временные объекты незавершенных загрузок, записанные до cutoff
+     */
+    int removeOrphans(Instant cutoff);
+}
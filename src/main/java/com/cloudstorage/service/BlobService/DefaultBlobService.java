@@ -0,0 +1,283 @@
+package com.cloudstorage.service.BlobService;
+
+import com.cloudstorage.entity.Blob;
+import com.cloudstorage.repository.BlobRepository;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Запись в t_blob появляется только после того, как содержимое записано в хранилище, поэтому ссылка на блоб
+ * всегда указывает на существующий объект. Обратное не гарантируется: объект без записи остается,
+ * если загрузка упала между записью в хранилище и в t_blob, такие объекты удаляет removeOrphans.
+ * Потоковая загрузка пишет содержимое один раз: временный объект в .staging/ становится блобом на месте,
+ * его ключ сохраняется в t_blob, а копирование под ключ из дайджеста не выполняется
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultBlobService implements BlobService {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final StorageBackend storageBackend;
+    private final BlobRepository blobRepository;
+
+    @Override
+    public StoredBlob store(InputStreamSource source, long size, String contentType) {
+        String digest;
+
+        try (InputStream content = source.getInputStream()) {
+            digest = digest(content);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        if (acquire(digest)) {
+            return new StoredBlob(digest, size, true);
+        }
+
+        try (InputStream content = source.getInputStream()) {
+            this.storageBackend.put(StoredBlob.objectName(digest), content, size, contentType);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        register(digest, size, null);
+
+        return new StoredBlob(digest, size, false);
+    }
+
+    @Override
+    public StoredBlob store(InputStream content, String contentType) {
+        MessageDigest messageDigest = sha256();
+        String stagingName = stagingName();
+
+        StorageObject staged = this.storageBackend.put(stagingName, new DigestInputStream(content, messageDigest), -1, contentType);
+
+        return adopt(stagingName, HexFormat.of().formatHex(messageDigest.digest()), staged.size());
+    }
+
+    /**
+     * Если то же содержимое параллельно зарегистрировал другой запрос, берется ссылка на его блоб, а свой объект удаляется
+     */
+    @Override
+    public StoredBlob adopt(String stagingName, String digest, long size) {
+        if (acquire(digest)) {
+            removeStaging(stagingName);
+            return new StoredBlob(digest, size, true);
+        }
+
+        boolean created;
+
+        try {
+            created = register(digest, size, stagingName);
+        } catch (RuntimeException exception) {
+            removeStaging(stagingName);
+            throw exception;
+        }
+
+        if (!created) {
+            removeStaging(stagingName);
+        }
+
+        return new StoredBlob(digest, size, false);
+    }
+
+    @Override
+    public void release(String digest, int references) {
+        if (this.blobRepository.release(digest, references, Instant.now()) == 0) {
+            log.warn("Blob {} has fewer than {} references", digest, references);
+        }
+    }
+
+    @Override
+    public InputStream get(String digest, long offset, Long length) throws NoSuchFileException {
+        return this.storageBackend.get(objectName(digest), offset, length);
+    }
+
+    @Override
+    public String objectName(String digest) throws NoSuchFileException {
+        return this.blobRepository.findById(digest)
+                .map(DefaultBlobService::contentObjectName)
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
+    }
+
+    @Override
+    public Map<String, String> objectNames(Collection<String> digests) {
+        Map<String, String> objectNames = new HashMap<>();
+        this.blobRepository.findAllById(digests).forEach(blob -> objectNames.put(blob.getDigest(), contentObjectName(blob)));
+
+        return objectNames;
+    }
+
+    /**
+     * Объекты удаляются раньше записей и под блокировкой строк: загрузка того же содержимого ждет конца транзакции,
+     * не находит блоб и записывает его заново. Вместе с блобом удаляются его производные объекты
+     */
+    @Override
+    @Transactional
+    public int removeUnreferenced(Instant cutoff, int limit) {
+        List<Blob> blobs = this.blobRepository.findUnreferenced(cutoff,
+                Limit.of(Math.min(limit, DELETE_BATCH_SIZE / StoredBlob.objectsPerBlob())));
+
+        if (blobs.isEmpty()) return 0;
+
+        this.storageBackend.delete(blobs.stream()
+                .flatMap(blob -> StoredBlob.objectNames(blob.getDigest(), contentObjectName(blob)).stream())
+                .toList());
+        this.blobRepository.deleteAll(blobs);
+
+        return blobs.size();
+    }
+
+    @Override
+    public int removeOrphans(Instant cutoff) {
+        List<String> orphans = new ArrayList<>();
+        List<StorageObject> candidates = new ArrayList<>(DELETE_BATCH_SIZE);
+
+        for (StorageObject storedObject : this.storageBackend.list(StoredBlob.PREFIX, true, null)) {
+            if (storedObject.isDirectory() || !isWrittenBefore(storedObject, cutoff)) continue;
+
+            candidates.add(storedObject);
+
+            if (candidates.size() == DELETE_BATCH_SIZE) {
+                collectUntracked(candidates, orphans);
+                candidates.clear();
+            }
+        }
+
+        collectUntracked(candidates, orphans);
+        candidates.clear();
+
+        for (StorageObject storedObject : this.storageBackend.list(StoredBlob.STAGING_PREFIX, true, null)) {
+            if (storedObject.isDirectory() || !isWrittenBefore(storedObject, cutoff)) continue;
+
+            candidates.add(storedObject);
+
+            if (candidates.size() == DELETE_BATCH_SIZE) {
+                collectUnregisteredStaging(candidates, orphans);
+                candidates.clear();
+            }
+        }
+
+        collectUnregisteredStaging(candidates, orphans);
+
+        for (int i = 0; i < orphans.size(); i += DELETE_BATCH_SIZE) {
+            this.storageBackend.delete(orphans.subList(i, Math.min(i + DELETE_BATCH_SIZE, orphans.size())));
+        }
+
+        return orphans.size();
+    }
+
+    private void collectUntracked(List<StorageObject> candidates, List<String> orphans) {
+        if (candidates.isEmpty()) return;
+
+        Set<String> tracked = new HashSet<>();
+        this.blobRepository.findAllById(candidates.stream().map(storedObject -> StoredBlob.digestOf(storedObject.objectName())).distinct().toList())
+                .forEach(blob -> tracked.add(blob.getDigest()));
+
+        candidates.stream()
+                .map(StorageObject::objectName)
+                .filter(objectName -> !tracked.contains(StoredBlob.digestOf(objectName)))
+                .forEach(orphans::add);
+    }
+
+    /**
+     * Временные объекты, которые стали блобами, не удаляются
+     */
+    private void collectUnregisteredStaging(List<StorageObject> candidates, List<String> orphans) {
+        if (candidates.isEmpty()) return;
+
+        Set<String> registered = new HashSet<>(this.blobRepository.findObjectNames(
+                candidates.stream().map(StorageObject::objectName).toList()));
+
+        candidates.stream()
+                .map(StorageObject::objectName)
+                .filter(objectName -> !registered.contains(objectName))
+                .forEach(orphans::add);
+    }
+
+    private boolean acquire(String digest) {
+        return this.blobRepository.acquire(digest, Instant.now()) > 0;
+    }
+
+    /**
+     * То же содержимое могли параллельно загрузить несколько запросов: кто не успел создать запись, берет ссылку на созданную.
+     * false - запись создал другой запрос. objectName - ключ содержимого, null - ключ из дайджеста
+     */
+    private boolean register(String digest, long size, String objectName) {
+        try {
+            this.blobRepository.create(digest, size, objectName, Instant.now());
+            return true;
+        } catch (DataIntegrityViolationException exception) {
+            if (!acquire(digest)) {
+                throw new IllegalStateException("Blob " + digest + " was removed while being registered", exception);
+            }
+
+            return false;
+        }
+    }
+
+    private static String stagingName() {
+        return StoredBlob.STAGING_PREFIX + UUID.randomUUID();
+    }
+
+    private void removeStaging(String stagingName) {
+        try {
+            this.storageBackend.delete(stagingName);
+        } catch (Exception exception) {
+            log.warn("Failed to remove staging object {}", stagingName, exception);
+        }
+    }
+
+    private static String contentObjectName(Blob blob) {
+        return blob.getObjectName() != null ? blob.getObjectName() : StoredBlob.objectName(blob.getDigest());
+    }
+
+    private static boolean isWrittenBefore(StorageObject storedObject, Instant cutoff) {
+        return storedObject.lastModified() != null && storedObject.lastModified().isBefore(cutoff);
+    }
+
+    private static String digest(InputStream content) throws IOException {
+        MessageDigest messageDigest = sha256();
+
+        try (DigestInputStream digestContent = new DigestInputStream(content, messageDigest)) {
+            digestContent.transferTo(OutputStream.nullOutputStream());
+        }
+
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
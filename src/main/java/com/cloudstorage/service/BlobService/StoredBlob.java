@@ -0,0 +1,71 @@
+package com.cloudstorage.service.BlobService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Блоб, на который после загрузки ссылается файл. deduplicated - такое содержимое уже было, байты в хранилище не писались
+ */
+public record StoredBlob(
+        String digest,
+        long size,
+        boolean deduplicated
+) {
+
+    public static final String PREFIX = "blobs/";
+
+    /**
+     * Временные объекты загрузок. Объект, который не стал блобом, удаляет BlobService.removeOrphans
+     */
+    public static final String STAGING_PREFIX = ".staging/";
+
+    /**
+     * Производные объекты блоба (сигнатуры блоков, превью и т.п.) лежат рядом с ним под ключом блоба с суффиксом
+     * и удаляются вместе с ним. Содержимое блоба не меняется, поэтому они не устаревают
+     */
+    public static final String SIGNATURE_SUFFIX = ".blocks";
+    public static final String PREVIEW_SUFFIX = ".preview";
+    private static final List<String> SIDE_OBJECT_SUFFIXES = List.of(SIGNATURE_SUFFIX, PREVIEW_SUFFIX);
+
+    /**
+     * Ключ блоба в хранилище: blobs/ab/abcdef..., первые два символа дайджеста не дают собрать
+     * все блобы под одним префиксом в локальном хранилище. Блоб потоковой загрузки лежит под своим ключом,
+     * его возвращает BlobService.objectName, производные объекты всегда лежат рядом с этим ключом
+     */
+    public static String objectName(String digest) {
+        return PREFIX + digest.substring(0, 2) + "/" + digest;
+    }
+
+    public static String sideObjectName(String digest, String suffix) {
+        return objectName(digest) + suffix;
+    }
+
+    /**
+     * Содержимое блоба (по ключу contentObjectName) и все его производные объекты
+     */
+    public static List<String> objectNames(String digest, String contentObjectName) {
+        List<String> objectNames = new ArrayList<>(SIDE_OBJECT_SUFFIXES.size() + 1);
+        objectNames.add(contentObjectName);
+        SIDE_OBJECT_SUFFIXES.forEach(suffix -> objectNames.add(sideObjectName(digest, suffix)));
+
+        return objectNames;
+    }
+
+    public static int objectsPerBlob() {
+        return SIDE_OBJECT_SUFFIXES.size() + 1;
+    }
+
+    /**
+     * Дайджест по ключу блоба или его производного объекта
+     */
+    public static String digestOf(String objectName) {
+        String name = objectName.substring(objectName.lastIndexOf('/') + 1);
+        int suffix = name.indexOf('.');
+
+        return suffix < 0 ? name : name.substring(0, suffix);
+    }
+
+    public String objectName() {
+        return objectName(digest);
+    }
+}
@@ -0,0 +1,282 @@
+package com.cloudstorage.service.DeltaService;
+
+import com.cloudstorage.controller.payload.BlockSignaturePayload;
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.metrics.MeteredOperation;
+import com.cloudstorage.metrics.StorageMetrics;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.QuotaService.QuotaLimitedInputStream;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Новая версия собирается из диапазонов старой версии в хранилище и присланных байтов и сохраняется блобом:
+ * от клиента приходят только изменившиеся блоки. Если хранилище копирует части на своей стороне (MinIO/S3),
+ * длинные неизмененные диапазоны не проходят через приложение на запись (DeltaAssembler), иначе новая версия
+ * пишется одним потоком через BlobService. Сигнатуры файла в блобе считаются один раз и хранятся рядом с блобом
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultDeltaService implements DeltaService {
+
+    private static final int STRONG_HASH_LENGTH = 32;
+
+    private final StorageBackend storageBackend;
+    private final BlobService blobService;
+    private final MetadataService metadataService;
+    private final QuotaService quotaService;
+    private final AuthService authService;
+    private final StorageMetrics storageMetrics;
+
+    @Value("${storage.delta.block-size:1MB}")
+    private DataSize blockSize;
+
+    @Value("${storage.delta.part-size:8MB}")
+    private DataSize partSize;
+
+    @Override
+    public BlockSignaturePayload getSignature(String path) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
+        String objectName = getUserPrefix() + path;
+        ResourceMetadata file = findFile(objectName);
+
+        List<BlockSignaturePayload.Block> blocks = file.getBlobDigest() != null
+                ? loadSignature(file.getBlobDigest())
+                : computeSignature(objectName);
+
+        return new BlockSignaturePayload(ResourcePathParseUtils.getFilePath(path),
+                ResourcePathParseUtils.getFileName(path),
+                file.getSize(),
+                file.getEtag(),
+                blockSize.toBytes(),
+                blocks);
+    }
+
+    /**
+     * Старая версия файла в блобе не меняется, пока на нее есть ссылка, поэтому после сборки остается только
+     * убедиться, что файл не перезаписали параллельно. Старая версия, лежавшая по пути файла, удаляется.
+     * Размер новой версии заранее неизвестен, поэтому сборка обрывается, когда прирост размера превысил свободное место
+     */
+    @Override
+    @MeteredOperation(StorageMetrics.DELTA)
+    public FilePayload applyDelta(String path, String baseEtag, InputStream delta) throws NoSuchFileException {
+        int userId = this.authService.getUserIdFromSession();
+        path = ResourcePathParseUtils.requireRelativePath(path);
+        String objectName = getUserPrefix() + path;
+        ResourceMetadata file = findFile(objectName);
+
+        if (!Objects.equals(file.getEtag(), baseEtag)) {
+            throw new UnsupportedOperationException("deltas.error.base_changed");
+        }
+
+        String baseObjectName = file.getBlobDigest() != null ? this.blobService.objectName(file.getBlobDigest()) : objectName;
+        String contentType = file.getContentType() != null ? file.getContentType() : "application/octet-stream";
+
+        DeltaReader reader = new DeltaReader(delta, file.getSize(), blockSize.toBytes());
+        long sizeLimit = file.getSize() + Math.max(this.quotaService.getAvailableBytes(userId), 0);
+
+        StoredBlob blob = this.storageBackend.supportsPartCopy()
+                ? storeWithPartCopy(reader, baseObjectName, contentType, sizeLimit)
+                : storeStream(reader, baseObjectName, contentType, sizeLimit);
+
+        if (blob.size() == 0) {
+            this.blobService.release(blob.digest(), 1);
+            throw new IllegalArgumentException("validation.error.files.blank_file");
+        }
+
+        if (!this.metadataService.find(objectName).map(ResourceMetadata::getEtag).filter(baseEtag::equals).isPresent()) {
+            this.blobService.release(blob.digest(), 1);
+            throw new UnsupportedOperationException("deltas.error.base_changed");
+        }
+
+        this.metadataService.saveFile(objectName, blob.size(), file.getContentType(), blob.digest(), blob.digest());
+
+        if (file.getBlobDigest() == null) {
+            try {
+                this.storageBackend.delete(objectName);
+            } catch (Exception exception) {
+                log.warn("Failed to remove previous version of {}", objectName, exception);
+            }
+        }
+
+        this.storageMetrics.recordBytes(StorageMetrics.DELTA, reader.getLiteralBytes());
+
+        return new FilePayload(ResourcePathParseUtils.getFilePath(path), ResourcePathParseUtils.getFileName(path), blob.size(), "FILE");
+    }
+
+    /**
+     * Новая версия целиком проходит через приложение и пишется одним потоком
+     */
+    private StoredBlob storeStream(DeltaReader reader, String baseObjectName, String contentType, long sizeLimit) {
+        QuotaLimitedInputStream content = new QuotaLimitedInputStream(
+                new DeltaInputStream(reader, this.storageBackend, baseObjectName), sizeLimit);
+
+        try (content) {
+            return this.blobService.store(content, contentType);
+        } catch (IOException | RuntimeException exception) {
+            throw toFailure(exception, reader, content.isExceeded());
+        }
+    }
+
+    /**
+     * Длинные неизмененные диапазоны копируются на стороне хранилища, пишутся только присланные байты и короткие диапазоны
+     */
+    private StoredBlob storeWithPartCopy(DeltaReader reader, String baseObjectName, String contentType, long sizeLimit) {
+        String stagingName = StoredBlob.STAGING_PREFIX + UUID.randomUUID();
+        DeltaAssembler assembler = new DeltaAssembler(reader, this.storageBackend, baseObjectName, sizeLimit, (int) partSize.toBytes());
+        long size;
+
+        try {
+            size = assembler.assemble(stagingName, contentType);
+        } catch (IOException | RuntimeException exception) {
+            throw toFailure(exception, reader, assembler.isExceeded());
+        }
+
+        if (size == 0) {
+            throw new IllegalArgumentException("validation.error.files.blank_file");
+        }
+
+        return this.blobService.adopt(stagingName, assembler.digest(), size);
+    }
+
+    private RuntimeException toFailure(Exception exception, DeltaReader reader, boolean exceeded) {
+        if (reader.isMalformed()) {
+            return new IllegalArgumentException("deltas.error.invalid_delta");
+        }
+
+        if (exceeded) {
+            return new QuotaExceededException("quota.error.exceeded");
+        }
+
+        return new RuntimeException(exception.getMessage(), exception);
+    }
+
+    /**
+     * Сигнатуры, посчитанные с другим размером блока, пересчитываются
+     */
+    private List<BlockSignaturePayload.Block> loadSignature(String digest) throws NoSuchFileException {
+        String signatureObjectName = StoredBlob.sideObjectName(digest, StoredBlob.SIGNATURE_SUFFIX);
+
+        try (DataInputStream signature = new DataInputStream(this.storageBackend.get(signatureObjectName))) {
+            if (signature.readLong() == blockSize.toBytes()) {
+                return readSignature(signature);
+            }
+        } catch (NoSuchFileException exception) {
+            // сигнатуры блоба еще не запрашивали
+        } catch (IOException exception) {
+            log.warn("Failed to read block signatures {}", signatureObjectName, exception);
+        }
+
+        List<BlockSignaturePayload.Block> blocks = computeSignature(this.blobService.objectName(digest));
+
+        try {
+            byte[] encoded = writeSignature(blocks);
+            this.storageBackend.put(signatureObjectName, new ByteArrayInputStream(encoded), encoded.length, "application/octet-stream");
+        } catch (Exception exception) {
+            log.warn("Failed to store block signatures {}", signatureObjectName, exception);
+        }
+
+        return blocks;
+    }
+
+    private List<BlockSignaturePayload.Block> computeSignature(String objectName) throws NoSuchFileException {
+        int size = (int) blockSize.toBytes();
+        byte[] buffer = new byte[size];
+        MessageDigest messageDigest = sha256();
+        List<BlockSignaturePayload.Block> blocks = new ArrayList<>();
+
+        try (InputStream content = this.storageBackend.get(objectName)) {
+            int read;
+
+            while ((read = content.readNBytes(buffer, 0, size)) > 0) {
+                messageDigest.update(buffer, 0, read);
+                blocks.add(new BlockSignaturePayload.Block(RollingChecksum.of(buffer, 0, read),
+                        HexFormat.of().formatHex(messageDigest.digest())));
+            }
+        } catch (NoSuchFileException exception) {
+            throw new NoSuchFileException("minio.file.error.resource_not_found");
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        return blocks;
+    }
+
+    /**
+     * Размер блока (int64), число блоков (int32), затем для каждого блока слабая сумма (int32) и SHA-256
+     */
+    private byte[] writeSignature(List<BlockSignaturePayload.Block> blocks) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream(12 + blocks.size() * (4 + STRONG_HASH_LENGTH));
+
+        try (DataOutputStream out = new DataOutputStream(encoded)) {
+            out.writeLong(blockSize.toBytes());
+            out.writeInt(blocks.size());
+
+            for (BlockSignaturePayload.Block block : blocks) {
+                out.writeInt((int) block.weak().longValue());
+                out.write(HexFormat.of().parseHex(block.strong()));
+            }
+        }
+
+        return encoded.toByteArray();
+    }
+
+    private List<BlockSignaturePayload.Block> readSignature(DataInputStream signature) throws IOException {
+        int count = signature.readInt();
+        List<BlockSignaturePayload.Block> blocks = new ArrayList<>(count);
+        byte[] strong = new byte[STRONG_HASH_LENGTH];
+
+        for (int i = 0; i < count; i++) {
+            long weak = Integer.toUnsignedLong(signature.readInt());
+            signature.readFully(strong);
+            blocks.add(new BlockSignaturePayload.Block(weak, HexFormat.of().formatHex(strong)));
+        }
+
+        return blocks;
+    }
+
+    private ResourceMetadata findFile(String objectName) throws NoSuchFileException {
+        return this.metadataService.find(objectName)
+                .filter(resource -> "FILE".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
+    }
+
+    private String getUserPrefix() {
+        return "user-%d-files/".formatted(this.authService.getUserIdFromSession());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
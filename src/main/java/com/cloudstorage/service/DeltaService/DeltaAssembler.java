@@ -0,0 +1,192 @@
+package com.cloudstorage.service.DeltaService;
+
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+
+/**
+ * Сборка новой версии multipart-загрузкой, когда хранилище копирует части на своей стороне.
+ * Диапазоны старой версии не короче минимальной части S3 (5 МБ) копируются UploadPartCopy и через приложение не пишутся.
+ * Присланные байты и короткие диапазоны копятся в буфере и загружаются частями по partSize. Часть перед копией
+ * тоже должна быть не меньше 5 МБ, поэтому недостающее добирается байтами из начала копируемого диапазона.
+ * Дайджест блоба считается по всему содержимому: скопированные диапазоны читаются из хранилища только ради хеша
+ */
+@Slf4j
+class DeltaAssembler {
+
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    static final long MAX_PART_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    private final DeltaReader delta;
+    private final StorageBackend storageBackend;
+    private final String baseObjectName;
+    private final long sizeLimit;
+    private final byte[] buffer;
+    private final MessageDigest messageDigest = sha256();
+
+    private String objectName;
+    private String uploadId;
+    private int buffered;
+    private int partNumber;
+    private long size;
+    private boolean exceeded;
+
+    DeltaAssembler(DeltaReader delta, StorageBackend storageBackend, String baseObjectName, long sizeLimit, int partSize) {
+        this.delta = delta;
+        this.storageBackend = storageBackend;
+        this.baseObjectName = baseObjectName;
+        this.sizeLimit = sizeLimit;
+        this.buffer = new byte[(int) Math.max(partSize, MIN_PART_SIZE)];
+    }
+
+    /**
+     * Записывает новую версию в objectName и возвращает ее размер. Пустая версия не записывается, возвращается 0.
+     * При ошибке загрузка отменяется
+     */
+    long assemble(String objectName, String contentType) throws IOException {
+        this.objectName = objectName;
+        this.uploadId = this.storageBackend.createMultipartUpload(objectName, contentType);
+
+        try {
+            DeltaReader.Command command;
+
+            while ((command = this.delta.next()) != null) {
+                if (command.type() == DeltaReader.COPY) {
+                    copy(command.offset(), command.length());
+                } else {
+                    appendLiteral();
+                }
+            }
+
+            flush();
+
+            if (partNumber == 0) {
+                abort();
+                return 0;
+            }
+
+            this.storageBackend.completeMultipartUpload(objectName, uploadId, this.storageBackend.listParts(objectName, uploadId));
+
+            return size;
+        } catch (IOException | RuntimeException exception) {
+            abort();
+            throw exception;
+        }
+    }
+
+    String digest() {
+        return HexFormat.of().formatHex(messageDigest.digest());
+    }
+
+    boolean isExceeded() {
+        return exceeded;
+    }
+
+    private void copy(long offset, long length) throws IOException {
+        long fill = buffered > 0 ? Math.max(0, MIN_PART_SIZE - buffered) : 0;
+
+        if (length - fill < MIN_PART_SIZE) {
+            appendBase(offset, length);
+            return;
+        }
+
+        appendBase(offset, fill);
+        flush();
+
+        long start = offset + fill;
+        long remaining = length - fill;
+        long parts = (remaining + MAX_PART_SIZE - 1) / MAX_PART_SIZE;
+
+        for (long i = 0; i < parts; i++) {
+            long partLength = remaining / parts + (i < remaining % parts ? 1 : 0);
+            copyPart(start, partLength);
+            start += partLength;
+        }
+    }
+
+    private void copyPart(long offset, long length) throws IOException {
+        count(length);
+        this.storageBackend.uploadPartCopy(objectName, uploadId, ++partNumber, baseObjectName, offset, length);
+
+        byte[] hashBuffer = new byte[HASH_BUFFER_SIZE];
+
+        try (InputStream content = this.storageBackend.get(baseObjectName, offset, length)) {
+            int read;
+
+            while ((read = content.read(hashBuffer)) != -1) {
+                messageDigest.update(hashBuffer, 0, read);
+            }
+        }
+    }
+
+    private void appendBase(long offset, long length) throws IOException {
+        if (length == 0) return;
+
+        try (InputStream content = this.storageBackend.get(baseObjectName, offset, length)) {
+            int read;
+
+            while ((read = content.read(buffer, buffered, buffer.length - buffered)) != -1) {
+                accept(read);
+            }
+        }
+    }
+
+    private void appendLiteral() throws IOException {
+        int read;
+
+        while ((read = this.delta.readLiteral(buffer, buffered, buffer.length - buffered)) != -1) {
+            accept(read);
+        }
+    }
+
+    private void accept(int read) throws IOException {
+        messageDigest.update(buffer, buffered, read);
+        buffered += read;
+        count(read);
+
+        if (buffered == buffer.length) {
+            flush();
+        }
+    }
+
+    private void count(long bytes) throws IOException {
+        size += bytes;
+
+        if (size > sizeLimit) {
+            exceeded = true;
+            throw new IOException("Assembled version exceeds " + sizeLimit + " bytes");
+        }
+    }
+
+    private void flush() {
+        if (buffered == 0) return;
+
+        this.storageBackend.uploadPart(objectName, uploadId, ++partNumber,
+                buffered == buffer.length ? buffer : Arrays.copyOf(buffer, buffered));
+        buffered = 0;
+    }
+
+    private void abort() {
+        try {
+            this.storageBackend.abortMultipartUpload(objectName, uploadId);
+        } catch (Exception exception) {
+            log.warn("Failed to abort assembly of {}", objectName, exception);
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.cloudstorage.service.DeltaService;
+
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Новая версия файла, собираемая на лету из команд дельты. Диапазоны старой версии читаются из хранилища по мере чтения потока
+ */
+class DeltaInputStream extends InputStream {
+
+    private final DeltaReader delta;
+    private final StorageBackend storageBackend;
+    private final String baseObjectName;
+
+    private InputStream copy;
+    private boolean literal;
+    private boolean finished;
+
+    DeltaInputStream(DeltaReader delta, StorageBackend storageBackend, String baseObjectName) {
+        this.delta = delta;
+        this.storageBackend = storageBackend;
+        this.baseObjectName = baseObjectName;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) return 0;
+
+        while (true) {
+            if (literal) {
+                int read = this.delta.readLiteral(buffer, offset, length);
+
+                if (read != -1) return read;
+
+                literal = false;
+            }
+
+            if (copy != null) {
+                int read = copy.read(buffer, offset, length);
+
+                if (read != -1) return read;
+
+                copy.close();
+                copy = null;
+            }
+
+            if (finished) return -1;
+
+            DeltaReader.Command command = this.delta.next();
+
+            if (command == null) {
+                finished = true;
+            } else if (command.type() == DeltaReader.COPY) {
+                copy = this.storageBackend.get(baseObjectName, command.offset(), command.length());
+            } else {
+                literal = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (copy != null) {
+            copy.close();
+            copy = null;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.cloudstorage.service.DeltaService;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Команды дельты (формат описан в DeltaService) с проверкой диапазонов старой версии.
+ * Ошибка формата запоминается, чтобы отличить ее от сбоя хранилища, когда она вернется обернутой в RuntimeException
+ */
+class DeltaReader {
+
+    static final int END = 0;
+    static final int COPY = 1;
+    static final int LITERAL = 2;
+
+    private final DataInputStream delta;
+    private final long baseSize;
+    private final long blockSize;
+
+    private long literalRemaining;
+    private long literalBytes;
+    private boolean malformed;
+
+    DeltaReader(InputStream delta, long baseSize, long blockSize) {
+        this.delta = new DataInputStream(delta);
+        this.baseSize = baseSize;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Следующая команда, null - конец дельты. Байты команды LITERAL читаются через readLiteral до следующего вызова
+     */
+    Command next() throws IOException {
+        if (literalRemaining > 0) {
+            throw new IllegalStateException("Literal is not read to the end");
+        }
+
+        try {
+            switch (this.delta.read()) {
+                case END -> {
+                    return null;
+                }
+                case COPY -> {
+                    long block = Integer.toUnsignedLong(this.delta.readInt());
+                    long count = Integer.toUnsignedLong(this.delta.readInt());
+                    long start = block * blockSize;
+
+                    if (count == 0 || start + (count - 1) * blockSize >= baseSize) {
+                        throw malformed("Blocks " + block + "+" + count + " are outside of the base version");
+                    }
+
+                    return new Command(COPY, start, Math.min(count * blockSize, baseSize - start));
+                }
+                case LITERAL -> {
+                    literalRemaining = Integer.toUnsignedLong(this.delta.readInt());
+
+                    if (literalRemaining == 0) {
+                        throw malformed("Empty literal");
+                    }
+
+                    return new Command(LITERAL, -1, literalRemaining);
+                }
+                case -1 -> throw malformed("Delta has no end command");
+                default -> throw malformed("Unknown command");
+            }
+        } catch (EOFException exception) {
+            throw malformed("Command is truncated");
+        }
+    }
+
+    /**
+     * -1 - байты текущей команды LITERAL прочитаны
+     */
+    int readLiteral(byte[] buffer, int offset, int length) throws IOException {
+        if (literalRemaining == 0) return -1;
+
+        int read = this.delta.read(buffer, offset, (int) Math.min(length, literalRemaining));
+
+        if (read == -1) {
+            throw malformed("Literal is truncated");
+        }
+
+        literalRemaining -= read;
+        literalBytes += read;
+
+        return read;
+    }
+
+    boolean isMalformed() {
+        return malformed;
+    }
+
+    /**
+     * Байты новой версии, присланные клиентом, а не скопированные из старой
+     */
+    long getLiteralBytes() {
+        return literalBytes;
+    }
+
+    private IOException malformed(String message) {
+        malformed = true;
+
+        return new IOException(message);
+    }
+
+    /**
+     * offset - начало диапазона старой версии для COPY
+     */
+    record Command(int type, long offset, long length) {}
+}
@@ -0,0 +1,25 @@
+package com.cloudstorage.service.DeltaService;
+
+import com.cloudstorage.controller.payload.BlockSignaturePayload;
+import com.cloudstorage.controller.payload.FilePayload;
+
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * Дельта-загрузка измененного файла в духе rsync. Клиент получает сигнатуры блоков текущей версии,
+ * ищет совпадающие блоки в новой версии по любому смещению и присылает только изменившиеся байты.
+ * Дельта - последовательность команд, целые числа big-endian:
+ * 0x01 block:int32 count:int32 - скопировать count блоков старой версии начиная с block,
+ * 0x02 length:int32 bytes - вставить length присланных байтов,
+ * 0x00 - конец дельты
+ */
+public interface DeltaService {
+
+    BlockSignaturePayload getSignature(String path) throws NoSuchFileException;
+
+    /**
+     * baseEtag - etag из сигнатуры. Если файл с тех пор изменился, дельта не применяется
+     */
+    FilePayload applyDelta(String path, String baseEtag, InputStream delta) throws NoSuchFileException;
+}
@@ -0,0 +1,41 @@
+package com.cloudstorage.service.DeltaService;
+
+/**
+ * Слабая контрольная сумма блока из rsync: a - сумма байтов, b - сумма префиксных сумм, обе по модулю 2^16,
+ * значение - (b << 16) | a. Сдвиг окна на байт пересчитывается за O(1), поэтому клиент может искать
+ * блоки старой версии файла по любому смещению в новой
+ */
+public final class RollingChecksum {
+
+    private int a;
+    private int b;
+    private int length;
+
+    public static long of(byte[] data, int offset, int length) {
+        RollingChecksum checksum = new RollingChecksum();
+        checksum.update(data, offset, length);
+
+        return checksum.value();
+    }
+
+    public void update(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            a += data[i] & 0xff;
+            b += a;
+        }
+
+        this.length += length;
+    }
+
+    /**
+     * Окно сдвигается на байт: out уходит из начала окна, in добавляется в конец
+     */
+    public void roll(byte out, byte in) {
+        a += (in & 0xff) - (out & 0xff);
+        b += a - length * (out & 0xff);
+    }
+
+    public long value() {
+        return ((long) (b & 0xffff) << 16) | (a & 0xffff);
+    }
+}
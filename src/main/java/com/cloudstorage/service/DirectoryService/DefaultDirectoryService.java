@@ -2,116 +2,186 @@ package com.cloudstorage.service.DirectoryService;
 
 import com.cloudstorage.controller.payload.DirectoryPayload;
 import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.JobPayload;
 import com.cloudstorage.controller.payload.UserPayload;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.metrics.MeteredOperation;
+import com.cloudstorage.metrics.StorageMetrics;
 import com.cloudstorage.service.AuthService.AuthService;
-import com.cloudstorage.service.FileService.FileService;
+import com.cloudstorage.service.JobService.JobService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
 import com.cloudstorage.service.UserService.UserService;
 import com.cloudstorage.utils.ResourcePathParseUtils;
-import io.minio.*;
-import io.minio.messages.Item;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.NoSuchFileException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.LongConsumer;
 
 @Service
 @RequiredArgsConstructor
 public class DefaultDirectoryService implements DirectoryService {
 
-    private final MinioClient minioClient;
-    private final FileService fileService;
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final StorageBackend storageBackend;
     private final AuthService authService;
     private final UserService userService;
+    private final DirectoryRelocationEngine relocationEngine;
+    private final DirectoryArchiveWriter archiveWriter;
+    private final JobService jobService;
+    private final MetadataService metadataService;
+    private final ObjectMapper objectMapper;
+    private final StorageMetrics storageMetrics;
+
+    @Qualifier("storageExecutor")
+    private final ExecutorService storageExecutor;
+
+    @Value("${storage.delete.batches-in-flight:4}")
+    private int deleteBatchesInFlight;
 
-    @Value("${minio.bucket.name}")
-    private String bucketName;
+    @Value("${storage.listing.max-limit:1000}")
+    private int listingMaxLimit;
 
+    /**
+     * Размер и число файлов поддерева хранятся в записи директории, поддерево не обходится
+     */
     @Override
     public DirectoryPayload getDirectoryInfo(String path) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
         String fullDirectoryPath = getUserPrefix() + path;
 
-        if (!isDirectoryExists(fullDirectoryPath)) {
-            throw new NoSuchFileException("minio.directory.error.directory_not_exists");
-        }
+        ResourceMetadata directory = this.metadataService.find(fullDirectoryPath)
+                .filter(resource -> "DIRECTORY".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.directory.error.directory_not_exists"));
 
-        return new DirectoryPayload(getDirectoryPath(path), getDirectoryName(path), "DIRECTORY");
+        return new DirectoryPayload(getDirectoryPath(path), getDirectoryName(path), "DIRECTORY",
+                directory.getSize(), directory.getFileCount());
     }
 
     @Override
     public boolean isDirectoryExists(String path) {
-        Iterable<Result<Item>> results = this.minioClient.listObjects(
-                ListObjectsArgs.builder()
-                        .bucket(bucketName)
-                        .prefix(path)
-                        .maxKeys(1)
-                        .build()
-        );
-
-        return results.iterator().hasNext();
+        return this.metadataService.isDirectoryExists(path);
     }
 
     private String getDirectoryName(String fullDirectoryPath) {
-        if (fullDirectoryPath.equals("/")) return "/";
-
-        String[] parts = fullDirectoryPath.split("/");
-
-        return parts[parts.length - 1];
+        return ResourcePathParseUtils.getDirectoryName(fullDirectoryPath);
     }
 
     private String getDirectoryPath(String fullDirectoryPath) {
-        if (fullDirectoryPath.equals("/")) return "/";
-
-        String[] parts = fullDirectoryPath.split("/");
-
-        return Arrays.stream(parts)
-                .limit(parts.length - 1)
-                .collect(Collectors.joining("/")) + "/";
+        return ResourcePathParseUtils.getFilePath(fullDirectoryPath);
     }
 
 
     @Override
+    @MeteredOperation(value = StorageMetrics.DELETE, type = StorageMetrics.DIRECTORY)
     public void deleteDirectory(String path) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
         String fullDirectoryPath = getUserPrefix() + path;
 
         if (!isDirectoryExists(fullDirectoryPath)) {
             throw new NoSuchFileException("minio.directory.error.directory_not_exists");
         }
 
+        removeAllObjects(fullDirectoryPath, processed -> {});
+    }
+
+    @Override
+    public JobPayload deleteDirectoryAsync(String path) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
+        String fullDirectoryPath = getUserPrefix() + path;
+
+        if (!isDirectoryExists(fullDirectoryPath)) {
+            throw new NoSuchFileException("minio.directory.error.directory_not_exists");
+        }
+
+        return this.jobService.submit("DELETE", progress -> removeAllObjects(fullDirectoryPath, progress));
+    }
+
+    /**
+     * Удаляет все объекты под префиксом пачками по DELETE_BATCH_SIZE ключей (лимит multi-delete в S3),
+     * одновременно выполняется не больше deleteBatchesInFlight пачек. Локальное хранилище удаляет папку целиком
+     */
+    private void removeAllObjects(String prefix, LongConsumer progress) {
+        Deque<CompletableFuture<Integer>> inFlight = new ArrayDeque<>();
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        long removed = 0;
+
         try {
-            Iterable<Result<Item>> results = this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullDirectoryPath)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (Result<Item> res : results) {
-                this.minioClient.removeObject(
-                        RemoveObjectArgs.builder()
-                                .bucket(bucketName)
-                                .object(res.get().objectName())
-                                .build()
-                );
+            if (this.storageBackend.deletePrefix(prefix)) {
+                this.metadataService.deleteDirectory(prefix);
+                return;
+            }
+
+            for (StorageObject storedObject : this.storageBackend.list(prefix, true, null)) {
+                batch.add(storedObject.objectName());
+
+                if (batch.size() == DELETE_BATCH_SIZE) {
+                    if (inFlight.size() == deleteBatchesInFlight) {
+                        removed += inFlight.poll().join();
+                        progress.accept(removed);
+                    }
+
+                    inFlight.add(submitRemoveBatch(batch));
+                    batch = new ArrayList<>(DELETE_BATCH_SIZE);
+                }
+            }
+
+            if (!batch.isEmpty()) {
+                inFlight.add(submitRemoveBatch(batch));
             }
+
+            while (!inFlight.isEmpty()) {
+                removed += inFlight.poll().join();
+                progress.accept(removed);
+            }
+
+            this.metadataService.deleteDirectory(prefix);
+        } catch (CompletionException exception) {
+            throw new RuntimeException(exception.getCause().getMessage(), exception.getCause());
         } catch (Exception exception) {
-            throw new RuntimeException();
+            throw new RuntimeException(exception.getMessage(), exception);
         }
     }
 
+    private CompletableFuture<Integer> submitRemoveBatch(List<String> batch) {
+        return CompletableFuture.supplyAsync(() -> {
+            this.storageBackend.delete(batch);
+
+            return batch.size();
+        }, storageExecutor);
+    }
+
     @Override
+    @MeteredOperation(value = StorageMetrics.ZIP, type = StorageMetrics.DIRECTORY)
     public void downloadDirectory(String path, ServletOutputStream outputStream, HttpServletResponse response) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
         String fullDirectoryPath = getUserPrefix() + path;
 
         if (!isDirectoryExists(fullDirectoryPath)) {
@@ -120,43 +190,23 @@ public class DefaultDirectoryService implements DirectoryService {
 
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + getDirectoryName(fullDirectoryPath) + "\"");
 
-        try (ZipOutputStream zipOut = new ZipOutputStream(outputStream)) {
-            Iterable<Result<Item>> results = this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullDirectoryPath)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (var result : results) {
-                String zipEntryName = result.get().objectName().substring(fullDirectoryPath.length());
-
-                zipOut.putNextEntry(new ZipEntry(zipEntryName));
-
-                InputStream fileData = this.minioClient.getObject(
-                        GetObjectArgs.builder()
-                                .bucket(bucketName)
-                                .object(result.get().objectName())
-                                .build()
-                );
-
-                byte[] buffer = new byte[1024];
-                int len;
-                while ((len = fileData.read(buffer)) > 0) {
-                    zipOut.write(buffer, 0, len);
-                }
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
 
-                zipOut.closeEntry();
-            }
+        try {
+            this.archiveWriter.write(fullDirectoryPath, countingOutputStream);
         } catch (Exception exception) {
             throw new RuntimeException(exception.getMessage());
+        } finally {
+            this.storageMetrics.recordBytes(StorageMetrics.ZIP, countingOutputStream.getByteCount());
         }
     }
 
     @Override
+    @MeteredOperation(value = StorageMetrics.RENAME, type = StorageMetrics.DIRECTORY)
     public DirectoryPayload renameDirectory(String oldDirectoryName, String newDirectoryName) throws NoSuchFileException {
+        oldDirectoryName = ResourcePathParseUtils.requireRelativePath(oldDirectoryName);
         String fullOldDirectoryPath = getUserPrefix() + oldDirectoryName;
+        newDirectoryName = ResourcePathParseUtils.requireRelativePath(newDirectoryName);
         String fullNewDirectoryPath = getUserPrefix() + newDirectoryName;
 
         if (!isDirectoryExists(fullOldDirectoryPath)) {
@@ -167,56 +217,29 @@ public class DefaultDirectoryService implements DirectoryService {
             throw new UnsupportedOperationException("minio.directory.error.already_exists");
         }
 
-        try {
-            Iterable<Result<Item>> results = this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullOldDirectoryPath)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (var result : results) {
-                String oldFileName = cutUserPrefix(result.get().objectName());
-                String newFileName = newDirectoryName + oldFileName.substring(oldDirectoryName.length());
-
-                this.fileService.renameFile(oldFileName, newFileName);
-            }
-        } catch (Exception exception) {
-            throw new RuntimeException();
-        }
+        this.relocationEngine.relocate(this.authService.getUserIdFromSession(), fullOldDirectoryPath, fullNewDirectoryPath);
 
         return new DirectoryPayload(getDirectoryPath(newDirectoryName), getDirectoryName(newDirectoryName), "DIRECTORY");
     }
 
     @Override
+    @MeteredOperation(value = StorageMetrics.MOVE, type = StorageMetrics.DIRECTORY)
     public DirectoryPayload moveDirectory(String fromDirectory, String toDirectory) throws NoSuchFileException {
+        fromDirectory = ResourcePathParseUtils.requireRelativePath(fromDirectory);
         String fullFromDirectoryPath = getUserPrefix() + fromDirectory;
-        String fullToDirectoryPath = getUserPrefix() + toDirectory;
+        toDirectory = ResourcePathParseUtils.requireRelativePath(toDirectory);
+        String fullMovedDirectoryPath = getUserPrefix() + ResourcePathParseUtils.requireRelativePath(toDirectory + getDirectoryName(fromDirectory) + "/");
 
         if (!isDirectoryExists(fullFromDirectoryPath)) {
             throw new NoSuchFileException("minio.directory.error.directory_not_exists");
         }
 
-        try {
-            Iterable<Result<Item>> results = this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullFromDirectoryPath)
-                            .recursive(true)
-                            .build()
-            );
-
-            for (var result : results) {
-                String oldFileName = cutUserPrefix(result.get().objectName());
-                String newDirectoryName = toDirectory + cutInnerDirectoryPath(oldFileName, fromDirectory);
-
-                this.fileService.moveFile(oldFileName, newDirectoryName);
-            }
-        } catch (Exception exception) {
-            throw new RuntimeException();
+        if (isDirectoryExists(fullMovedDirectoryPath)) {
+            throw new UnsupportedOperationException("minio.directory.error.already_exists");
         }
 
+        this.relocationEngine.relocate(this.authService.getUserIdFromSession(), fullFromDirectoryPath, fullMovedDirectoryPath);
+
         return new DirectoryPayload(getDirectoryPathAfterMoving(toDirectory), getDirectoryName(toDirectory), "DIRECTORY");
     }
 
@@ -225,57 +248,106 @@ public class DefaultDirectoryService implements DirectoryService {
     }
 
     /**
-     * Метод нужен для таких случаев: пермещаем папку ...folder/ и у нее есть внутренняя папка
-     * ...folder/innerFolder/file.txt
-     * метод обрежет хвост (...) до папки folder и уберет название файла и выдаст в итоге внутреннюю структуру папок
-     * Используется для перемещения внутренних папок при перемещении родительской папки
+     * Содержимое читается из каталога keyset-пагинацией: курсор хранит значения ключей сортировки последнего элемента,
+     * поэтому стоимость страницы не зависит от ее номера. Без limit каталог читается теми же страницами по listingMaxLimit
+     * до конца, а ответ собирается целиком
      */
-    private String cutInnerDirectoryPath(String fullPath, String fromDirectory) {
-        return fullPath.substring(fromDirectory.length() - (getDirectoryName(fromDirectory)).length() - 1,
-                fullPath.length() - ResourcePathParseUtils.getFileName(fullPath).length());
+    @Override
+    @MeteredOperation(value = StorageMetrics.LIST, type = StorageMetrics.DIRECTORY)
+    public DirectoryContentPage getDirectoryContent(String directoryPath, String cursor, Integer limit, String sort, String order) throws NoSuchFileException {
+        // Корень можно запросить как "/": после отбрасывания ведущих разделителей остается пустой путь
+        directoryPath = ResourcePathParseUtils.requireRelativePath(directoryPath);
+        String fullDirectoryPath = getUserPrefix() + directoryPath;
+
+        Sort.Direction direction = Sort.Direction.fromOptionalString(order)
+                .orElseThrow(() -> new IllegalArgumentException("validation.error.sort.invalid_sort"));
+        ScrollPosition position = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : decodeCursor(cursor, sort, direction);
+
+        if (!isDirectoryExists(fullDirectoryPath)) {
+            throw new NoSuchFileException("minio.directory.error.directory_not_exists");
+        }
+
+        if (limit == null) {
+            return new DirectoryContentPage(getAllDirectoryContent(fullDirectoryPath, position, createSort(sort, direction)), null);
+        }
+
+        Window<ResourceMetadata> window = this.metadataService.getDirectoryContent(fullDirectoryPath, position,
+                createSort(sort, direction), Math.min(limit, listingMaxLimit));
+
+        List<FilePayload> items = window.stream()
+                .map(ResourceMetadata::toFilePayload)
+                .toList();
+
+        String nextCursor = window.hasNext()
+                ? encodeCursor(new ListingCursor(sort, direction, ((KeysetScrollPosition) window.positionAt(window.size() - 1)).getKeys()))
+                : null;
+
+        return new DirectoryContentPage(items, nextCursor);
     }
 
-    private String cutUserPrefix(String fullPath) {
-        return Arrays.stream(fullPath.split("/"))
-                .skip(1)
-                .collect(Collectors.joining("/")) + "/";
+    private List<FilePayload> getAllDirectoryContent(String fullDirectoryPath, ScrollPosition position, Sort sort) {
+        List<FilePayload> items = new ArrayList<>();
+        Window<ResourceMetadata> window;
+
+        do {
+            window = this.metadataService.getDirectoryContent(fullDirectoryPath, position, sort, listingMaxLimit);
+            window.forEach(metadata -> items.add(metadata.toFilePayload()));
+
+            if (window.hasNext()) {
+                position = window.positionAt(window.size() - 1);
+            }
+        } while (window.hasNext());
+
+        return items;
     }
 
-    @Override
-    public List<FilePayload> getDirectoryContent(String directoryPath) throws NoSuchFileException {
-        String fullDirectoryPath = getUserPrefix() + ((directoryPath.equals("/")) ? "" : directoryPath);
+    private Sort createSort(String sort, Sort.Direction direction) {
+        return switch (sort) {
+            case "name" -> Sort.by(direction, "name", "path");
+            case "size" -> Sort.by(direction, "size", "name", "path");
+            case "type" -> Sort.by(direction, "type", "name", "path");
+            default -> throw new IllegalArgumentException("validation.error.sort.invalid_sort");
+        };
+    }
 
-        if (!isDirectoryExists(fullDirectoryPath)) {
-            throw new NoSuchFileException("minio.directory.error.directory_not_exists");
+    private String encodeCursor(ListingCursor cursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(this.objectMapper.writeValueAsBytes(cursor));
+        } catch (JsonProcessingException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
         }
+    }
 
-        List<FilePayload> resources = new ArrayList<>();
+    /**
+     * Курсор действителен только для той сортировки, с которой он был выдан
+     */
+    private ScrollPosition decodeCursor(String value, String sort, Sort.Direction direction) {
+        ListingCursor cursor;
 
         try {
-            for (var result : this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(fullDirectoryPath)
-                            .build()
-            )) {
-                Item currItem = result.get();
-                if(currItem.objectName().equals(fullDirectoryPath)) continue;
-
-                resources.add(new FilePayload(
-                        ResourcePathParseUtils.getPathWithoutUserPrefix(currItem.objectName()),
-                        getDirectoryName(currItem.objectName()),
-                        currItem.size(), (!currItem.objectName().endsWith("/")) ? "FILE" : "DIRECTORY")
-                );
-            }
-        } catch (Exception exception) {
-            throw new RuntimeException();
+            cursor = this.objectMapper.readValue(Base64.getUrlDecoder().decode(value), ListingCursor.class);
+        } catch (IllegalArgumentException | IOException exception) {
+            throw new IllegalArgumentException("validation.error.cursor.invalid_cursor");
         }
 
-        return resources;
+        if (!sort.equals(cursor.sort()) || direction != cursor.direction() || cursor.keys() == null || cursor.keys().isEmpty()) {
+            throw new IllegalArgumentException("validation.error.cursor.invalid_cursor");
+        }
+
+        // JSON не сохраняет тип чисел, а ключи сравниваются с колонками bigint
+        Map<String, Object> keys = new LinkedHashMap<>(cursor.keys());
+        keys.replaceAll((key, keyValue) -> keyValue instanceof Number number ? number.longValue() : keyValue);
+
+        return ScrollPosition.forward(keys);
     }
 
+    private record ListingCursor(String sort, Sort.Direction direction, Map<String, Object> keys) {}
+
     @Override
     public DirectoryPayload createDirectory(String directoryPath) throws NoSuchFileException, UnsupportedOperationException {
+        directoryPath = ResourcePathParseUtils.requireRelativePath(directoryPath);
         String fullDirectoryPath = getUserPrefix() + directoryPath;
 
         if (!isDirectoryInRoot(getDirectoryPath(fullDirectoryPath)) && !isDirectoryExists(getDirectoryPath(fullDirectoryPath))) {
@@ -287,17 +359,13 @@ public class DefaultDirectoryService implements DirectoryService {
         }
 
         try {
-            this.minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullDirectoryPath)
-                            .stream(InputStream.nullInputStream(), 0, -1)
-                            .build()
-            );
+            this.storageBackend.put(fullDirectoryPath, InputStream.nullInputStream(), 0, null);
         } catch (Exception exception) {
             throw new RuntimeException();
         }
 
+        this.metadataService.saveDirectory(fullDirectoryPath);
+
         return new DirectoryPayload(getDirectoryPath(directoryPath),
                 getDirectoryName(directoryPath),
                 "DIRECTORY");
@@ -309,20 +377,14 @@ public class DefaultDirectoryService implements DirectoryService {
         String userRootDirectoryName = "user-%d-files/".formatted(userId);
 
         try {
-            this.minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(userRootDirectoryName)
-                            .stream(InputStream.nullInputStream(), 0, -1)
-                            .build()
-            );
+            this.storageBackend.put(userRootDirectoryName, InputStream.nullInputStream(), 0, null);
         } catch (Exception exception) {
             throw new RuntimeException();
         }
     }
 
     private boolean isDirectoryInRoot(String directoryPath) {
-        return directoryPath.split("/").length <= 1;
+        return ResourcePathParseUtils.isTopLevel(directoryPath);
     }
 
     private String getUserPrefix() {
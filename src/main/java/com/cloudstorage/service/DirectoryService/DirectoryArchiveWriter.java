@@ -0,0 +1,226 @@
+package com.cloudstorage.service.DirectoryService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Потоковая упаковка содержимого папки в zip.
+ * Небольшие объекты скачиваются заранее параллельно (не больше prefetchObjects штук, не больше prefetchMaxObjectSize каждый),
+ * но в архив пишутся строго в порядке листинга. Крупные объекты читаются потоком в момент записи.
+ * Уже сжатые форматы (jpg, mp4, zip...) не пережимаются. ZIP64 для архивов и записей больше 4 ГБ
+ * ZipOutputStream добавляет сам. Файлы из блобов в листинге хранилища не видны, они добавляются в конец архива по каталогу
+ */
+@Component
+@RequiredArgsConstructor
+public class DirectoryArchiveWriter {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "jpg", "jpeg", "png", "gif", "webp", "heic", "avif",
+            "mp4", "m4v", "mkv", "mov", "avi", "webm",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "zip", "gz", "tgz", "bz2", "xz", "zst", "7z", "rar", "jar",
+            "docx", "xlsx", "pptx", "odt", "epub"
+    );
+
+    private static final int BLOB_FILES_PAGE_SIZE = 1000;
+
+    private final StorageBackend storageBackend;
+    private final MetadataService metadataService;
+    private final BlobService blobService;
+
+    @Qualifier("storageExecutor")
+    private final ExecutorService storageExecutor;
+
+    @Value("${storage.archive.compression-level:6}")
+    private int compressionLevel;
+
+    @Value("${storage.archive.prefetch-objects:4}")
+    private int prefetchObjects;
+
+    @Value("${storage.archive.prefetch-max-object-size:4MB}")
+    private DataSize prefetchMaxObjectSize;
+
+    @Value("${storage.archive.buffer-size:64KB}")
+    private DataSize bufferSize;
+
+    public void write(String directoryPrefix, OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[(int) bufferSize.toBytes()];
+        Deque<PendingEntry> window = new ArrayDeque<>(prefetchObjects);
+
+        Iterator<ArchiveItem> listing = listItems(directoryPrefix);
+
+        ZipOutputStream zipOut = new ZipOutputStream(new BufferedOutputStream(outputStream, buffer.length));
+        zipOut.setLevel(compressionLevel);
+
+        try {
+            while (true) {
+                while (window.size() < prefetchObjects && listing.hasNext()) {
+                    window.add(schedule(listing.next()));
+                }
+
+                if (window.isEmpty()) break;
+
+                writeEntry(zipOut, window.poll(), buffer);
+            }
+
+            zipOut.finish();
+            zipOut.flush();
+        } catch (IOException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new IOException(exception.getMessage(), exception);
+        } finally {
+            window.forEach(entry -> {
+                if (entry.content() != null) entry.content().cancel(true);
+            });
+        }
+    }
+
+    private Iterator<ArchiveItem> listItems(String directoryPrefix) {
+        Stream<ArchiveItem> storedObjects = StreamSupport.stream(this.storageBackend.list(directoryPrefix, true, null).spliterator(), false)
+                .map(storedObject -> new ArchiveItem(storedObject.objectName().substring(directoryPrefix.length()),
+                        storedObject.objectName(), storedObject.size()));
+
+        String userRoot = directoryPrefix.substring(0, directoryPrefix.indexOf('/') + 1);
+
+        Stream<ArchiveItem> blobFiles = Stream.iterate(
+                        this.metadataService.findBlobFiles(directoryPrefix, "", BLOB_FILES_PAGE_SIZE),
+                        page -> !page.isEmpty(),
+                        page -> page.size() < BLOB_FILES_PAGE_SIZE
+                                ? List.of()
+                                : this.metadataService.findBlobFiles(directoryPrefix, page.get(page.size() - 1).getPath(), BLOB_FILES_PAGE_SIZE))
+                .flatMap(page -> toArchiveItems(page, userRoot, directoryPrefix).stream());
+
+        return Stream.concat(storedObjects, blobFiles).iterator();
+    }
+
+    /**
+     * Ключи содержимого блобов запрашиваются одним запросом на страницу
+     */
+    private List<ArchiveItem> toArchiveItems(List<ResourceMetadata> page, String userRoot, String directoryPrefix) {
+        Map<String, String> objectNames = this.blobService.objectNames(page.stream().map(ResourceMetadata::getBlobDigest).distinct().toList());
+
+        return page.stream()
+                .filter(resource -> objectNames.containsKey(resource.getBlobDigest()))
+                .map(resource -> new ArchiveItem((userRoot + resource.getPath()).substring(directoryPrefix.length()),
+                        objectNames.get(resource.getBlobDigest()), resource.getSize()))
+                .toList();
+    }
+
+        private PendingEntry schedule(ArchiveItem item) {
+        if (item.isDirectory() || item.size() > prefetchMaxObjectSize.toBytes()) {
+            return new PendingEntry(item, null);
+        }
+
+        return new PendingEntry(item, CompletableFuture.supplyAsync(() -> {
+            try (InputStream content = this.storageBackend.get(item.objectName())) {
+                return content.readAllBytes();
+            } catch (Exception exception) {
+                throw new CompletionException(exception);
+            }
+        }, storageExecutor));
+    }
+
+    private void writeEntry(ZipOutputStream zipOut, PendingEntry pending, byte[] buffer) throws Exception {
+        String entryName = pending.item().entryName();
+
+        if (entryName.isEmpty()) return;
+
+        ZipEntry entry = new ZipEntry(entryName);
+
+        if (pending.item().isDirectory()) {
+            zipOut.putNextEntry(entry);
+            zipOut.closeEntry();
+            return;
+        }
+
+        boolean alreadyCompressed = isAlreadyCompressed(entryName);
+
+        if (pending.content() != null) {
+            byte[] content = joinContent(pending.content());
+
+            if (alreadyCompressed) {
+                CRC32 crc = new CRC32();
+                crc.update(content);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(content.length);
+                entry.setCompressedSize(content.length);
+                entry.setCrc(crc.getValue());
+            }
+
+            zipOut.putNextEntry(entry);
+            zipOut.write(content);
+            zipOut.closeEntry();
+            return;
+        }
+
+        // Для STORED нужен CRC до начала записи, поэтому крупные сжатые файлы пишутся через deflate без сжатия
+        zipOut.setLevel(alreadyCompressed ? Deflater.NO_COMPRESSION : compressionLevel);
+        zipOut.putNextEntry(entry);
+
+        try (InputStream content = this.storageBackend.get(pending.item().objectName())) {
+            int len;
+            while ((len = content.read(buffer)) != -1) {
+                zipOut.write(buffer, 0, len);
+            }
+        }
+
+        zipOut.closeEntry();
+        zipOut.setLevel(compressionLevel);
+    }
+
+    private byte[] joinContent(CompletableFuture<byte[]> content) throws Exception {
+        try {
+            return content.join();
+        } catch (CompletionException exception) {
+            throw exception.getCause() instanceof Exception cause ? cause : exception;
+        }
+    }
+
+    private boolean isAlreadyCompressed(String entryName) {
+        int dot = entryName.lastIndexOf('.');
+        if (dot < 0 || dot < entryName.lastIndexOf('/')) return false;
+
+        return COMPRESSED_EXTENSIONS.contains(entryName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * objectName - ключ, по которому содержимое лежит в хранилище: путь файла или ключ его блоба
+     */
+    private record ArchiveItem(String entryName, String objectName, long size) {
+
+        boolean isDirectory() {
+            return entryName.endsWith("/");
+        }
+    }
+
+    private record PendingEntry(ArchiveItem item, CompletableFuture<byte[]> content) {}
+}
@@ -0,0 +1,13 @@
+package com.cloudstorage.service.DirectoryService;
+
+import com.cloudstorage.controller.payload.FilePayload;
+
+import java.util.List;
+
+/**
+ * Страница содержимого директории. nextCursor - непрозрачный курсор следующей страницы, null если страница последняя
+ */
+public record DirectoryContentPage(
+        List<FilePayload> items,
+        String nextCursor
+) {}
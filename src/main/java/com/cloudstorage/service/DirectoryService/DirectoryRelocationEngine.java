@@ -0,0 +1,294 @@
+package com.cloudstorage.service.DirectoryService;
+
+import com.cloudstorage.repository.RelocationLeaseRepository;
+import com.cloudstorage.service.JobService.JobProgress;
+import com.cloudstorage.service.JobService.JobService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Перенос всех объектов одного префикса в другой (переименование и перемещение папок).
+ * Листинг обрабатывается страницами: объекты страницы копируются на стороне хранилища параллельно,
+ * затем исходники удаляются одним запросом. После каждой страницы сохраняется чекпоинт,
+ * при старте приложения незавершенные переносы доводятся до конца.
+ * Перенос выполняет только экземпляр, который держит его аренду в Postgres: аренда продлевается после каждой страницы,
+ * поэтому чекпоинт продолжает один экземпляр, а живой перенос не подхватывается вовсе.
+ * Незавершенные переносы ищутся периодически (storage.relocation.resume-interval): перенос, упавший с ошибкой,
+ * отпускает аренду и повторяется, а аренда упавшего экземпляра подхватывается после истечения storage.relocation.lease.
+ * С постоянным storage.relocation.node-id перезапущенный экземпляр продолжает свои переносы сразу, не дожидаясь истечения.
+ * Прогресс публикуется как фоновая задача RELOCATE владельца папки.
+ * Локальное хранилище переносит папку целиком одной операцией, без страниц и чекпоинтов
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DirectoryRelocationEngine {
+
+    private static final String CHECKPOINT_PREFIX = ".relocations/";
+    private static final String JOB_TYPE = "RELOCATE";
+
+    private final StorageBackend storageBackend;
+    private final ObjectMapper objectMapper;
+    private final MetadataService metadataService;
+    private final RelocationLeaseRepository relocationLeaseRepository;
+    private final JobService jobService;
+
+    @Qualifier("storageExecutor")
+    private final ExecutorService storageExecutor;
+
+    private final String randomNodeId = UUID.randomUUID().toString();
+
+    /**
+     * Переносы, которые выполняет этот экземпляр: свою аренду он продлил бы и при поиске незавершенных переносов
+     */
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    @Value("${storage.relocation.node-id:}")
+    private String nodeId;
+
+    @Value("${storage.relocation.page-size:1000}")
+    private int pageSize;
+
+    @Value("${storage.relocation.lease:5m}")
+    private Duration lease;
+
+    /**
+     * Возвращает число перенесенных объектов, 0 - папка перенесена хранилищем одной операцией
+     */
+    public long relocate(Integer userId, String sourcePrefix, String targetPrefix) {
+        if (targetPrefix.startsWith(sourcePrefix)) {
+            throw new UnsupportedOperationException("validation.error.logic.invalid_operation");
+        }
+
+        if (this.storageBackend.movePrefix(sourcePrefix, targetPrefix)) {
+            this.metadataService.relocateDirectory(sourcePrefix, targetPrefix);
+            return 0;
+        }
+
+        RelocationCheckpoint checkpoint = new RelocationCheckpoint(
+                UUID.randomUUID().toString(), userId, sourcePrefix, targetPrefix, null, 0);
+        this.running.add(checkpoint.id());
+
+        try {
+            claim(checkpoint.id());
+            saveCheckpoint(checkpoint);
+
+            return run(checkpoint);
+        } finally {
+            this.running.remove(checkpoint.id());
+        }
+    }
+
+    /**
+     * Чекпоинты, аренду которых держит другой экземпляр, пропускаются до следующего запуска
+     */
+    @Scheduled(fixedDelayString = "${storage.relocation.resume-interval:1m}")
+    public void resumeInterruptedRelocations() {
+        try {
+            for (StorageObject storedObject : this.storageBackend.list(CHECKPOINT_PREFIX, false, null)) {
+                if (storedObject.isDirectory()) continue;
+
+                String id = storedObject.objectName().substring(CHECKPOINT_PREFIX.length());
+
+                if (!this.running.add(id)) continue;
+
+                try {
+                    if (!claim(id)) {
+                        log.debug("Relocation {} is being run by another instance", id);
+                        continue;
+                    }
+
+                    resume(storedObject.objectName(), id);
+                } finally {
+                    this.running.remove(id);
+                }
+            }
+        } catch (Exception exception) {
+            log.warn("Failed to resume interrupted relocations", exception);
+        }
+    }
+
+    private void resume(String checkpointObjectName, String id) throws Exception {
+        RelocationCheckpoint checkpoint;
+
+        try {
+            checkpoint = loadCheckpoint(checkpointObjectName);
+        } catch (NoSuchFileException exception) {
+            // перенос завершился, пока аренда была свободна
+            this.relocationLeaseRepository.release(id, instanceId());
+            return;
+        }
+
+        log.info("Resuming relocation {} from {} to {} after {} objects",
+                checkpoint.id(), checkpoint.sourcePrefix(), checkpoint.targetPrefix(), checkpoint.processedObjects());
+
+        try {
+            run(checkpoint);
+        } catch (Exception exception) {
+            log.warn("Failed to resume relocation {}", checkpoint.id(), exception);
+        }
+    }
+
+    /**
+     * Если аренду не удалось продлить, перенос продолжает другой экземпляр, а этот останавливается,
+     * не отмечая задачу неудачной. При ошибке аренда отпускается, а чекпоинт остается для повтора
+     */
+    private long run(RelocationCheckpoint checkpoint) {
+        JobProgress progress = checkpoint.userId() != null
+                ? this.jobService.track(checkpoint.id(), checkpoint.userId(), JOB_TYPE)
+                : null;
+        List<StorageObject> page;
+
+        try {
+            while (!(page = nextPage(checkpoint.sourcePrefix(), checkpoint.lastObjectName())).isEmpty()) {
+                copyPage(page, checkpoint);
+                removePage(page);
+
+                StorageObject last = page.get(page.size() - 1);
+                checkpoint = checkpoint.withProgress(last.objectName(), checkpoint.processedObjects() + page.size());
+
+                if (!claim(checkpoint.id())) {
+                    throw new LeaseLostException(checkpoint.id());
+                }
+
+                saveCheckpoint(checkpoint);
+
+                if (progress != null) {
+                    progress.update(checkpoint.processedObjects());
+                }
+
+                log.info("Relocation {}: {} objects moved from {} to {}",
+                        checkpoint.id(), checkpoint.processedObjects(), checkpoint.sourcePrefix(), checkpoint.targetPrefix());
+            }
+
+            this.metadataService.relocateDirectory(checkpoint.sourcePrefix(), checkpoint.targetPrefix());
+            removeCheckpoint(checkpoint);
+        } catch (LeaseLostException exception) {
+            throw exception;
+        } catch (RuntimeException exception) {
+            this.relocationLeaseRepository.release(checkpoint.id(), instanceId());
+
+            if (progress != null) {
+                progress.fail(checkpoint.processedObjects(), "jobs.error.failed");
+            }
+
+            throw exception;
+        }
+
+        this.relocationLeaseRepository.release(checkpoint.id(), instanceId());
+
+        if (progress != null) {
+            progress.complete(checkpoint.processedObjects());
+        }
+
+        return checkpoint.processedObjects();
+    }
+
+    /**
+     * Продлевает свою или просроченную аренду, а если аренды нет - создает ее. false - аренду держит другой экземпляр
+     */
+    private boolean claim(String id) {
+        Instant now = Instant.now();
+
+        if (this.relocationLeaseRepository.renew(id, instanceId(), now, now.plus(lease)) > 0) {
+            return true;
+        }
+
+        try {
+            this.relocationLeaseRepository.create(id, instanceId(), now.plus(lease));
+            return true;
+        } catch (DataIntegrityViolationException exception) {
+            return false;
+        }
+    }
+
+    private String instanceId() {
+        return nodeId == null || nodeId.isBlank() ? randomNodeId : nodeId;
+    }
+
+    private List<StorageObject> nextPage(String prefix, String startAfter) {
+        List<StorageObject> page = new ArrayList<>(pageSize);
+
+        for (StorageObject storedObject : this.storageBackend.list(prefix, true, startAfter)) {
+            page.add(storedObject);
+            if (page.size() == pageSize) break;
+        }
+
+        return page;
+    }
+
+    private void copyPage(List<StorageObject> page, RelocationCheckpoint checkpoint) {
+        List<CompletableFuture<Void>> copies = new ArrayList<>(page.size());
+
+        for (StorageObject storedObject : page) {
+            String targetObjectName = checkpoint.targetPrefix() + storedObject.objectName().substring(checkpoint.sourcePrefix().length());
+
+            copies.add(CompletableFuture.runAsync(
+                    () -> this.storageBackend.copy(storedObject.objectName(), targetObjectName, storedObject.size()),
+                    storageExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(copies.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException exception) {
+            throw new RuntimeException(exception.getCause().getMessage(), exception.getCause());
+        }
+    }
+
+    private void removePage(List<StorageObject> page) {
+        this.storageBackend.delete(page.stream().map(StorageObject::objectName).toList());
+    }
+
+    private void saveCheckpoint(RelocationCheckpoint checkpoint) {
+        byte[] content;
+
+        try {
+            content = objectMapper.writeValueAsBytes(checkpoint);
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        this.storageBackend.put(CHECKPOINT_PREFIX + checkpoint.id(), new ByteArrayInputStream(content),
+                content.length, "application/json");
+    }
+
+    private RelocationCheckpoint loadCheckpoint(String objectName) throws Exception {
+        try (InputStream content = this.storageBackend.get(objectName)) {
+            return objectMapper.readValue(content, RelocationCheckpoint.class);
+        }
+    }
+
+    private void removeCheckpoint(RelocationCheckpoint checkpoint) {
+        this.storageBackend.delete(CHECKPOINT_PREFIX + checkpoint.id());
+    }
+
+    private static class LeaseLostException extends IllegalStateException {
+
+        LeaseLostException(String id) {
+            super("Relocation %s was taken over by another instance".formatted(id));
+        }
+    }
+}
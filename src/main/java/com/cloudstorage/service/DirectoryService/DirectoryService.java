@@ -1,7 +1,7 @@
 package com.cloudstorage.service.DirectoryService;
 
 import com.cloudstorage.controller.payload.DirectoryPayload;
-import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.JobPayload;
 import com.cloudstorage.controller.payload.UserPayload;
 import io.minio.errors.*;
 import jakarta.servlet.ServletOutputStream;
@@ -11,7 +11,6 @@ import java.io.IOException;
 import java.nio.file.NoSuchFileException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
-import java.util.List;
 
 public interface DirectoryService {
 
@@ -19,13 +18,21 @@ public interface DirectoryService {
 
     void deleteDirectory(String path) throws NoSuchFileException;
 
+    JobPayload deleteDirectoryAsync(String path) throws NoSuchFileException;
+
     void downloadDirectory(String path, ServletOutputStream outputStream, HttpServletResponse response) throws NoSuchFileException;
 
     DirectoryPayload renameDirectory(String oldName, String newName) throws NoSuchFileException;
 
     DirectoryPayload moveDirectory(String from, String to) throws NoSuchFileException;
 
-    List<FilePayload> getDirectoryContent(String path) throws NoSuchFileException;
+    /**
+     * @param cursor курсор из предыдущей страницы, null - первая страница
+     * @param limit  размер страницы, null - все содержимое без курсора следующей страницы
+     * @param sort   name, size или type
+     * @param order  asc или desc
+     */
+    DirectoryContentPage getDirectoryContent(String path, String cursor, Integer limit, String sort, String order) throws NoSuchFileException;
 
     DirectoryPayload createDirectory(String path) throws NoSuchFileException, UnsupportedOperationException;
 
@@ -0,0 +1,19 @@
+package com.cloudstorage.service.DirectoryService;
+
+/**
+ * Состояние переноса папки, сохраняется в бакете после каждой обработанной страницы.
+ * lastObjectName - последний перенесенный объект, с него продолжается листинг после сбоя.
+ * id совпадает с идентификатором фоновой задачи, по которой владелец папки видит прогресс переноса
+ */
+public record RelocationCheckpoint(
+        String id,
+        Integer userId,
+        String sourcePrefix,
+        String targetPrefix,
+        String lastObjectName,
+        long processedObjects
+) {
+    public RelocationCheckpoint withProgress(String lastObjectName, long processedObjects) {
+        return new RelocationCheckpoint(id, userId, sourcePrefix, targetPrefix, lastObjectName, processedObjects);
+    }
+}
@@ -1,66 +1,262 @@
 package com.cloudstorage.service.FileService;
 
 import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.metrics.MeteredOperation;
+import com.cloudstorage.metrics.StorageMetrics;
 import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.MetadataService.MetadataCache;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.PreviewService.PreviewService;
+import com.cloudstorage.service.QuotaService.QuotaLimitedInputStream;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
 import com.cloudstorage.utils.ResourcePathParseUtils;
-import io.minio.*;
-import io.minio.errors.ErrorResponseException;
-import io.minio.messages.Item;
-import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Загружаемые файлы хранятся в блобах BlobService: одинаковое содержимое записывается в хранилище один раз,
+ * а переименование и перенос меняют только каталог. Файлы, загруженные до появления блобов и через UploadService,
+ * лежат в хранилище по своему пути, для них операции работают с объектом по пути.
+ * Квота проверяется до записи в хранилище: файлы занимают место пользователя целиком, даже если их содержимое уже было в блобах
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class DefaultFileService implements FileService {
 
-    private final MinioClient minioClient;
+    private final StorageBackend storageBackend;
+    private final BlobService blobService;
     private final AuthService authService;
+    private final MetadataService metadataService;
+    private final QuotaService quotaService;
+    private final PreviewService previewService;
+    private final MetadataCache metadataCache;
+    private final StorageMetrics storageMetrics;
+
+    @Qualifier("storageExecutor")
+    private final ExecutorService storageExecutor;
+
+    @Value("${storage.search.max-limit:200}")
+    private int searchMaxLimit;
+
+    /**
+     * Файлы одного запроса загружаются параллельно в storageExecutor, существование проверяется заранее одним запросом к каталогу.
+     * Загрузка атомарна: если не удалось загрузить хотя бы один файл, ссылки на уже загруженные блобы запроса освобождаются
+     */
+    @Override
+    @MeteredOperation(StorageMetrics.UPLOAD)
+    public List<FilePayload> uploadFile(String path, List<MultipartFile> files) throws FileAlreadyExistsException {
+        int userId = this.authService.getUserIdFromSession();
+        path = ResourcePathParseUtils.requireRelativePath(path);
+        String directoryPrefix = getUserPrefix() + path;
+        Set<String> requestedObjects = new HashSet<>();
+
+        for (var file : files) {
+            ResourcePathParseUtils.requireRelativePath(path + file.getOriginalFilename());
+
+            if (!requestedObjects.add(directoryPrefix + file.getOriginalFilename())) {
+                throw new FileAlreadyExistsException(file.getOriginalFilename(), path, "minio.file.error.already_exists");
+            }
+        }
 
-    @Value("${minio.bucket.name}")
-    private String bucketName;
+        Set<String> existingObjects = this.metadataService.findExistingObjects(requestedObjects);
+
+        for (var file : files) {
+            if (existingObjects.contains(directoryPrefix + file.getOriginalFilename())) {
+                throw new FileAlreadyExistsException(file.getOriginalFilename(), path, "minio.file.error.already_exists");
+            }
+        }
 
+        this.quotaService.checkQuota(userId, files.stream().mapToLong(MultipartFile::getSize).sum());
+
+        Collection<UploadedObject> uploadedObjects = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<UploadedObject>> uploads = new ArrayList<>(files.size());
+
+        for (var file : files) {
+            String fullFileName = directoryPrefix + file.getOriginalFilename();
+
+            uploads.add(CompletableFuture.supplyAsync(() -> {
+                StoredBlob blob = this.blobService.store(file, file.getSize(), file.getContentType());
+
+                UploadedObject uploadedObject = new UploadedObject(fullFileName, file.getContentType(), blob);
+                uploadedObjects.add(uploadedObject);
+
+                return uploadedObject;
+            }, storageExecutor));
+        }
+
+        // allOf завершается только после всех загрузок, поэтому список загруженных объектов к этому моменту полный
+        try {
+            CompletableFuture.allOf(uploads.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException exception) {
+            releaseUploadedBlobs(uploadedObjects);
+            throw new RuntimeException(exception.getCause().getMessage(), exception.getCause());
+        }
+
+        List<FilePayload> uploadedFiles = new ArrayList<>(files.size());
+
+        for (int i = 0; i < files.size(); i++) {
+            UploadedObject uploadedObject = uploads.get(i).join();
+            saveMetadata(uploadedObject);
+            uploadedFiles.add(createFilePayload(path, files.get(i).getOriginalFilename(), uploadedObject.size(), "FILE"));
+        }
+
+        recordUploadedBytes(uploadedObjects);
+
+        return uploadedFiles;
+    }
+
+    /**
+     * Тело, которое заведомо не поместится в квоту, отклоняется до чтения. Размер тела включает заголовки частей,
+     * поэтому эта проверка немного строже фактического размера файлов. Тело без размера обрывается, когда загруженные
+     * файлы заняли все свободное место
+     */
     @Override
-    public List<FilePayload> uploadFile(String path, List<MultipartFile> files) {
+    @MeteredOperation(StorageMetrics.UPLOAD)
+    public List<FilePayload> uploadFileStream(String path, FileItemInputIterator items, long contentLength) throws FileAlreadyExistsException {
+        int userId = this.authService.getUserIdFromSession();
+        path = ResourcePathParseUtils.requireRelativePath(path);
+
+        if (contentLength > 0) {
+            this.quotaService.checkQuota(userId, contentLength);
+        }
+
+        long availableBytes = this.quotaService.getAvailableBytes(userId);
         List<FilePayload> uploadedFiles = new ArrayList<>();
+        List<UploadedObject> uploadedObjects = new ArrayList<>();
 
         try {
-            for (var file : files) {
-                String fullFileName = getUserPrefix() + path + file.getOriginalFilename();
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
 
-                if (isFileExists(fullFileName)) {
-                    throw new FileAlreadyExistsException(file.getOriginalFilename(), path, "minio.file.error.already_exists");
+                if (item.isFormField() || !"files".equals(item.getFieldName())) continue;
+
+                String filename = item.getName();
+                if (filename == null || filename.isBlank()) {
+                    throw new IllegalArgumentException("validation.error.files.blank_file");
                 }
 
-                this.minioClient.putObject(
-                        PutObjectArgs.builder()
-                                .bucket(bucketName)
-                                .object(fullFileName)
-                                .stream(file.getInputStream(), file.getSize(), -1)
-                                .contentType(file.getContentType())
-                                .build()
-                );
+                String fullFileName = getUserPrefix() + ResourcePathParseUtils.requireRelativePath(path + filename);
 
-                uploadedFiles.add(createFilePayload(path, file.getOriginalFilename(), file.getSize(), "FILE"));
+                if (uploadedObjects.stream().anyMatch(uploaded -> uploaded.objectName().equals(fullFileName))
+                        || isFileExists(fullFileName)) {
+                    throw new FileAlreadyExistsException(filename, path, "minio.file.error.already_exists");
+                }
+
+                UploadedObject uploadedObject = putStream(fullFileName, item, availableBytes);
+                uploadedObjects.add(uploadedObject);
+                availableBytes -= uploadedObject.size();
+                uploadedFiles.add(createFilePayload(path, filename, uploadedObject.size(), "FILE"));
             }
+        } catch (FileAlreadyExistsException | IllegalArgumentException | QuotaExceededException exception) {
+            releaseUploadedBlobs(uploadedObjects);
+            throw exception;
         } catch (Exception exception) {
-            throw new RuntimeException();
+            releaseUploadedBlobs(uploadedObjects);
+            throw new RuntimeException(exception.getMessage(), exception);
         }
 
+        if (uploadedFiles.isEmpty()) {
+            throw new IllegalArgumentException("validation.error.files.no_files_present");
+        }
+
+        uploadedObjects.forEach(this::saveMetadata);
+
+        recordUploadedBytes(uploadedObjects);
+
         return uploadedFiles;
     }
 
+    /**
+     * Размер части заранее неизвестен, хранилище пишет поток как есть (MinIO - multipart-ом частями ограниченного размера),
+     * хеш считается на лету
+     */
+    private UploadedObject putStream(String objectName, FileItemInput item, long availableBytes) throws Exception {
+        QuotaLimitedInputStream limitedContent = new QuotaLimitedInputStream(item.getInputStream(), availableBytes);
+
+        try (PushbackInputStream content = new PushbackInputStream(limitedContent)) {
+            int firstByte = content.read();
+            if (firstByte == -1) {
+                throw new IllegalArgumentException("validation.error.files.blank_file");
+            }
+            content.unread(firstByte);
+
+            String contentType = item.getContentType() != null ? item.getContentType() : "application/octet-stream";
+
+            return new UploadedObject(objectName, contentType, this.blobService.store(content, contentType));
+        } catch (Exception exception) {
+            if (limitedContent.isExceeded()) {
+                throw new QuotaExceededException("quota.error.exceeded");
+            }
+
+            throw exception;
+        }
+    }
+
+    /**
+     * ETag файла в блобе - дайджест содержимого, он не меняется при переименовании и совпадает у одинаковых файлов.
+     * Превью изображения строится в фоне уже после ответа на загрузку
+     */
+    private void saveMetadata(UploadedObject uploadedObject) {
+        this.metadataService.saveFile(uploadedObject.objectName(), uploadedObject.size(),
+                uploadedObject.contentType(), uploadedObject.blob().digest(), uploadedObject.blob().digest());
+        this.previewService.schedule(uploadedObject.blob().digest(), uploadedObject.contentType(), uploadedObject.size());
+    }
+
+    private void recordUploadedBytes(Collection<UploadedObject> uploadedObjects) {
+        this.storageMetrics.recordBytes(StorageMetrics.UPLOAD, uploadedObjects.stream().mapToLong(UploadedObject::size).sum());
+        this.storageMetrics.recordDeduplicatedBytes(uploadedObjects.stream()
+                .filter(uploadedObject -> uploadedObject.blob().deduplicated())
+                .mapToLong(UploadedObject::size)
+                .sum());
+    }
+
+    /**
+     * Блобы без ссылок удалит BlobCollector
+     */
+    private void releaseUploadedBlobs(Collection<UploadedObject> uploadedObjects) {
+        for (UploadedObject uploadedObject : uploadedObjects) {
+            try {
+                this.blobService.release(uploadedObject.blob().digest(), 1);
+            } catch (Exception exception) {
+                log.warn("Failed to release blob of {} after failed upload", uploadedObject.objectName(), exception);
+            }
+        }
+    }
+
+    private record UploadedObject(String objectName, String contentType, StoredBlob blob) {
+
+        long size() {
+            return blob.size();
+        }
+    }
+
     private String getUserPrefix() {
         return "user-%d-files/".formatted(this.authService.getUserIdFromSession());
     }
@@ -71,92 +267,106 @@ public class DefaultFileService implements FileService {
 
     @Override
     public boolean isFileExists(String fileName) {
-        try {
-            this.minioClient.statObject(StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fileName)
-                    .build());
-            return true;
-        } catch (ErrorResponseException e) {
-            return false;
-        } catch (Exception e) {
-            throw new RuntimeException(e.getMessage());
-        }
+        return this.metadataService.isFileExists(fileName);
     }
 
     @Override
     public FilePayload getFileInfo(String fullFilePath) throws NoSuchFileException {
+        fullFilePath = ResourcePathParseUtils.requireRelativePath(fullFilePath);
         String fullFileName = getUserPrefix() + fullFilePath;
 
-        if (!isFileExists(fullFileName)) {
-            throw new NoSuchFileException("minio.file.error.resource_not_found");
-        }
+        ResourceMetadata fileInfo = this.metadataService.find(fullFileName)
+                .filter(resource -> "FILE".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
 
-        try {
-            var fileInfo = this.minioClient.statObject(StatObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fullFileName)
-                    .build());
-
-            return createFilePayload(ResourcePathParseUtils.getFilePath(fullFilePath),
-                    ResourcePathParseUtils.getFileName(fullFilePath),
-                    fileInfo.size(),
-                    "FILE");
-        } catch (Exception exception) {
-            throw new RuntimeException();
-        }
+        return createFilePayload(ResourcePathParseUtils.getFilePath(fullFilePath),
+                ResourcePathParseUtils.getFileName(fullFilePath),
+                fileInfo.getSize(),
+                "FILE");
     }
 
     @Override
+    @MeteredOperation(StorageMetrics.DELETE)
     public void deleteFile(String fullFilePath) throws NoSuchFileException {
+        fullFilePath = ResourcePathParseUtils.requireRelativePath(fullFilePath);
         String fullFileName = getUserPrefix() + fullFilePath;
 
-        if (!isFileExists(fullFileName)) {
-            throw new NoSuchFileException("minio.file.error.resource_not_found");
-        }
+        ResourceMetadata fileInfo = this.metadataService.find(fullFileName)
+                .filter(resource -> "FILE".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
 
-        try {
-            this.minioClient.removeObject(RemoveObjectArgs.builder()
-                    .bucket(bucketName)
-                    .object(fullFileName)
-                    .build()
-            );
-        } catch (Exception exception) {
-            throw new RuntimeException();
+        if (fileInfo.getBlobDigest() == null) {
+            try {
+                this.storageBackend.delete(fullFileName);
+            } catch (Exception exception) {
+                throw new RuntimeException();
+            }
         }
+
+        this.metadataService.deleteFile(fullFileName);
     }
 
     @Override
-    public InputStream downloadFile(String path, HttpServletResponse response) throws NoSuchFileException {
-        String fullFileName = getUserPrefix() + path;
+    public FileMetadata getFileMetadata(String path) throws NoSuchFileException {
+        return statObject(getUserPrefix() + ResourcePathParseUtils.requireRelativePath(path))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
+    }
 
-        if (!isFileExists(fullFileName)) {
-            throw new NoSuchFileException("minio.file.error.resource_not_found");
-        }
+    /**
+     * Метаданные файла в блобе берутся из каталога, остальных - из хранилища
+     */
+    private Optional<FileMetadata> statObject(String objectName) {
+        return this.metadataCache.getObject(objectName, () -> findBlobFile(objectName)
+                .map(resource -> new FileMetadata(resource.getName(),
+                        resource.getSize(),
+                        resource.getContentType(),
+                        resource.getEtag(),
+                        resource.getUpdatedAt()))
+                .or(() -> this.storageBackend.stat(objectName)
+                        .filter(storedObject -> !storedObject.isDirectory())
+                        .map(storedObject -> new FileMetadata(ResourcePathParseUtils.getFileName(objectName),
+                                storedObject.size(),
+                                storedObject.contentType(),
+                                storedObject.etag(),
+                                storedObject.lastModified()))));
+    }
 
-        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
-                "attachment; filename=\"" + ResourcePathParseUtils.getFileName(fullFileName) + "\"");
+    private Optional<ResourceMetadata> findBlobFile(String objectName) {
+        return this.metadataService.find(objectName)
+                .filter(resource -> "FILE".equals(resource.getType()) && resource.getBlobDigest() != null);
+    }
+
+    /**
+     * Из хранилища читается только запрошенный диапазон
+     */
+    @Override
+    public InputStream downloadFile(String path, long offset, Long length) throws NoSuchFileException {
+        path = ResourcePathParseUtils.requireRelativePath(path);
+        String fullFileName = getUserPrefix() + path;
 
         try {
-            return this.minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullFileName)
-                            .build()
-            );
-        } catch (Exception exception) {
-            throw new RuntimeException();
+            Optional<ResourceMetadata> blobFile = findBlobFile(fullFileName);
+            InputStream content = blobFile.isPresent()
+                    ? this.blobService.get(blobFile.get().getBlobDigest(), offset, length)
+                    : this.storageBackend.get(fullFileName, offset, length);
+
+            return this.storageMetrics.meterDownload(content);
+        } catch (NoSuchFileException exception) {
+            throw new NoSuchFileException("minio.file.error.resource_not_found");
         }
     }
 
     @Override
+    @MeteredOperation(StorageMetrics.RENAME)
     public FilePayload renameFile(String oldName, String newName) throws NoSuchFileException, FileAlreadyExistsException {
+        oldName = ResourcePathParseUtils.requireRelativePath(oldName);
         String fullOldFileName = getUserPrefix() + oldName;
+        newName = ResourcePathParseUtils.requireRelativePath(newName);
         String fullNewFileName = getUserPrefix() + newName;
 
-        if (!isFileExists(fullOldFileName)) {
-            throw new NoSuchFileException("minio.file.error.resource_not_found");
-        }
+        ResourceMetadata oldFileInfo = this.metadataService.find(fullOldFileName)
+                .filter(resource -> "FILE".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
 
         if (isFileExists(fullNewFileName)) {
             throw new FileAlreadyExistsException(fullNewFileName,
@@ -167,34 +377,15 @@ public class DefaultFileService implements FileService {
         FilePayload filePayload;
 
         try {
-            InputStream oldFile = this.minioClient.getObject(
-                    GetObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullOldFileName)
-                            .build()
-            );
-
-            StatObjectResponse oldFileInfo = this.minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullOldFileName)
-                            .build()
-            );
-
-            this.deleteFile(oldName);
-
-            this.minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(fullNewFileName)
-                            .stream(oldFile, oldFileInfo.size(), -1)
-                            .contentType(oldFileInfo.contentType())
-                            .build()
-            );
+            if (oldFileInfo.getBlobDigest() == null) {
+                this.storageBackend.move(fullOldFileName, fullNewFileName, oldFileInfo.getSize());
+            }
+
+            this.metadataService.moveFile(fullOldFileName, fullNewFileName);
 
             filePayload = new FilePayload(ResourcePathParseUtils.getFilePath(newName),
                     ResourcePathParseUtils.getFileName(newName),
-                    oldFileInfo.size(),
+                    oldFileInfo.getSize(),
                     "FILE");
         } catch (Exception exception) {
             throw new RuntimeException();
@@ -204,6 +395,7 @@ public class DefaultFileService implements FileService {
     }
 
     @Override
+    @MeteredOperation(StorageMetrics.MOVE)
     public FilePayload moveFile(String file, String directoryForMoving) throws NoSuchFileException, FileAlreadyExistsException {
         String newFilePath = directoryForMoving + ResourcePathParseUtils.getFileName(file);
 
@@ -211,41 +403,10 @@ public class DefaultFileService implements FileService {
     }
 
     @Override
-    public List<FilePayload> findResources(String query) {
-        List<FilePayload> resources = new ArrayList<>();
-
-        Map<String, Boolean> foundDirectories = new HashMap<>();
-
-        try {
-            Iterable<Result<Item>> results = this.minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(getUserPrefix())
-                            .recursive(true)
-                            .build()
-            );
-
-            for (Result<Item> result : results) {
-                Item item = result.get();
-
-                if (!isDirectory(item.objectName()) && ResourcePathParseUtils.getFileName(item.objectName()).contains(query)) {
-                    resources.add(this.createFilePayload(
-                            ResourcePathParseUtils.getPathWithoutUserPrefix(item.objectName()),
-                            ResourcePathParseUtils.getFileName(item.objectName()),
-                            item.size(),
-                            "FILE"
-                    ));
-                }
-            }
-
-        } catch (Exception e) {
-            throw new RuntimeException();
-        }
-
-        return resources;
-    }
-
-    private boolean isDirectory(String path) {
-        return path.endsWith("/");
+    @MeteredOperation(StorageMetrics.SEARCH)
+    public List<FilePayload> findResources(String query, int page, int limit) {
+        return this.metadataService.search(this.authService.getUserIdFromSession(), query, page, Math.min(limit, searchMaxLimit)).stream()
+                .map(ResourceMetadata::toFilePayload)
+                .toList();
     }
 }
\ No newline at end of file
@@ -0,0 +1,14 @@
+package com.cloudstorage.service.FileService;
+
+import java.time.Instant;
+
+/**
+ * Метаданные объекта, нужные для HTTP-кэширования и докачки (ETag, Last-Modified, размер)
+ */
+public record FileMetadata(
+        String name,
+        long size,
+        String contentType,
+        String etag,
+        Instant lastModified
+) {}
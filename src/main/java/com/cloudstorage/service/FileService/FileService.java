@@ -1,7 +1,7 @@
 package com.cloudstorage.service.FileService;
 
 import com.cloudstorage.controller.payload.FilePayload;
-import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.InputStream;
@@ -12,17 +12,34 @@ import java.util.List;
 public interface FileService {
     List<FilePayload> uploadFile(String path, List<MultipartFile> files) throws FileAlreadyExistsException;
 
+    /**
+     * Загружает части multipart-запроса по мере чтения тела, без временных файлов.
+     * Если хотя бы один файл загрузить не удалось, уже загруженные в этом запросе файлы удаляются
+     *
+     * @param contentLength размер тела запроса, -1 - неизвестен
+     */
+    List<FilePayload> uploadFileStream(String path, FileItemInputIterator items, long contentLength) throws FileAlreadyExistsException;
+
     FilePayload getFileInfo(String fullPath) throws NoSuchFileException;
 
     void deleteFile(String path) throws NoSuchFileException;
 
-    InputStream downloadFile(String path, HttpServletResponse response) throws NoSuchFileException;
+    FileMetadata getFileMetadata(String path) throws NoSuchFileException;
+
+    /**
+     * @param offset смещение от начала файла
+     * @param length количество байт, null - до конца файла
+     */
+    InputStream downloadFile(String path, long offset, Long length) throws NoSuchFileException;
 
     FilePayload renameFile(String oldName, String newName) throws NoSuchFileException, FileAlreadyExistsException;
 
     FilePayload moveFile(String file, String directoryForMoving) throws NoSuchFileException, FileAlreadyExistsException;
 
-    List<FilePayload> findResources(String query);
+    /**
+     * Поиск файлов и папок по подстроке в имени без учета регистра. Совпадения с начала имени идут первыми
+     */
+    List<FilePayload> findResources(String query, int page, int limit);
 
     boolean isFileExists(String fileName);
 }
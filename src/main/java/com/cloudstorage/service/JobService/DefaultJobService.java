@@ -0,0 +1,168 @@
+package com.cloudstorage.service.JobService;
+
+import com.cloudstorage.controller.payload.JobPayload;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultJobService implements JobService {
+
+    private static final String KEY_PREFIX = "storage:jobs:";
+    private static final String USER_KEY_PREFIX = "storage:jobs:user:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final AuthService authService;
+
+    @Qualifier("jobExecutor")
+    private final ExecutorService jobExecutor;
+
+    @Value("${storage.jobs.ttl:24h}")
+    private Duration ttl;
+
+    /**
+     * В задаче сохраняется ключ сообщения, а не текст исключения: он уходит клиенту и не должен раскрывать детали хранилища.
+     * Если очередь задач переполнена, задача отмечается неудачной, а исключение пробрасывается вызывающему
+     */
+    @Override
+    public JobPayload submit(String type, Consumer<LongConsumer> task) {
+        String id = UUID.randomUUID().toString();
+        JobProgress progress = track(id, this.authService.getUserIdFromSession(), type);
+
+        try {
+            this.jobExecutor.execute(() -> {
+                AtomicLong processed = new AtomicLong();
+
+                try {
+                    task.accept(count -> {
+                        processed.set(count);
+                        progress.update(count);
+                    });
+                    progress.complete(processed.get());
+                } catch (Exception exception) {
+                    log.error("Job {} ({}) failed", id, type, exception);
+                    progress.fail(processed.get(), "jobs.error.failed");
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            log.warn("Job queue is full, job {} ({}) is rejected", id, type);
+            progress.fail(0, "jobs.error.rejected");
+            throw exception;
+        }
+
+        return new JobPayload(id, type, "RUNNING", 0L, null);
+    }
+
+    /**
+     * Задача попадает в список задач пользователя, список живет не меньше самих задач
+     */
+    @Override
+    public JobProgress track(String id, Integer userId, String type) {
+        StorageJob job = new StorageJob(id, userId, type, "RUNNING", 0, null);
+        save(job);
+
+        String userKey = USER_KEY_PREFIX + userId;
+        this.redisTemplate.opsForSet().add(userKey, id);
+        this.redisTemplate.expire(userKey, ttl);
+
+        return new JobProgress() {
+            @Override
+            public void update(long processedObjects) {
+                save(job.withState("RUNNING", processedObjects, null));
+            }
+
+            @Override
+            public void complete(long processedObjects) {
+                save(job.withState("COMPLETED", processedObjects, null));
+            }
+
+            @Override
+            public void fail(long processedObjects, String message) {
+                save(job.withState("FAILED", processedObjects, message));
+            }
+        };
+    }
+
+    @Override
+    public JobPayload getJob(String id) throws NoSuchFileException {
+        String value = this.redisTemplate.opsForValue().get(KEY_PREFIX + id);
+
+        if (value == null) {
+            throw new NoSuchFileException("jobs.error.not_found");
+        }
+
+        StorageJob job = read(value);
+
+        if (!job.userId().equals(this.authService.getUserIdFromSession())) {
+            throw new NoSuchFileException("jobs.error.not_found");
+        }
+
+        return job.toPayload();
+    }
+
+    /**
+     * Задачи с истекшим TTL убираются из списка пользователя при чтении
+     */
+    @Override
+    public List<JobPayload> getJobs() {
+        String userKey = USER_KEY_PREFIX + this.authService.getUserIdFromSession();
+        Set<String> members = this.redisTemplate.opsForSet().members(userKey);
+
+        if (members == null || members.isEmpty()) {
+            return List.of();
+        }
+
+        List<String> ids = new ArrayList<>(members);
+        List<String> values = this.redisTemplate.opsForValue().multiGet(ids.stream().map(id -> KEY_PREFIX + id).toList());
+        List<JobPayload> jobs = new ArrayList<>(ids.size());
+
+        for (int i = 0; i < ids.size(); i++) {
+            String value = values != null ? values.get(i) : null;
+
+            if (value == null) {
+                this.redisTemplate.opsForSet().remove(userKey, ids.get(i));
+            } else {
+                jobs.add(read(value).toPayload());
+            }
+        }
+
+        return jobs;
+    }
+
+    private StorageJob read(String value) {
+        try {
+            return this.objectMapper.readValue(value, StorageJob.class);
+        } catch (JsonProcessingException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    private void save(StorageJob job) {
+        try {
+            this.redisTemplate.opsForValue().set(KEY_PREFIX + job.id(), this.objectMapper.writeValueAsString(job), ttl);
+        } catch (JsonProcessingException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.cloudstorage.service.JobService;
+
+/**
+ * Обновление статуса фоновой задачи, которую выполняет вызывающий код
+ */
+public interface JobProgress {
+
+    void update(long processedObjects);
+
+    void complete(long processedObjects);
+
+    void fail(long processedObjects, String message);
+}
@@ -0,0 +1,26 @@
+package com.cloudstorage.service.JobService;
+
+import com.cloudstorage.controller.payload.JobPayload;
+
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+public interface JobService {
+
+    JobPayload submit(String type, Consumer<LongConsumer> task);
+
+    /**
+     * Регистрирует задачу, которую выполняет сам вызывающий код (например, перенос папки, в том числе продолженный
+     * после сбоя другим экземпляром приложения), статус обновляется через возвращенный JobProgress
+     */
+    JobProgress track(String id, Integer userId, String type);
+
+    JobPayload getJob(String id) throws NoSuchFileException;
+
+    /**
+     * Задачи текущего пользователя, статус которых еще хранится
+     */
+    List<JobPayload> getJobs();
+}
@@ -0,0 +1,23 @@
+package com.cloudstorage.service.JobService;
+
+import com.cloudstorage.controller.payload.JobPayload;
+
+/**
+ * Состояние фоновой задачи, хранится в Redis, чтобы статус был доступен с любого инстанса
+ */
+public record StorageJob(
+        String id,
+        Integer userId,
+        String type,
+        String status,
+        long processedObjects,
+        String message
+) {
+    public StorageJob withState(String status, long processedObjects, String message) {
+        return new StorageJob(id, userId, type, status, processedObjects, message);
+    }
+
+    public JobPayload toPayload() {
+        return new JobPayload(id, type, status, processedObjects, message);
+    }
+}
@@ -0,0 +1,337 @@
+package com.cloudstorage.service.MetadataService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.repository.ResourceMetadataRepository;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Каталог синхронизируется после успешной операции в MinIO. Если запись в каталог не удалась,
+ * расхождение исправляет MetadataReconciler. Каждое изменение каталога сбрасывает затронутые записи MetadataCache.
+ * Удаление файлов, хранящихся в блобах, освобождает ссылки на блобы в той же транзакции.
+ * Изменения размеров файлов сразу учитываются в занятом пользователем месте, перенос места не меняет.
+ * Размер и число файлов поддерева директории меняются одним запросом у всей цепочки предков измененного ресурса,
+ * поэтому чтение агрегатов не обходит поддерево. Расхождения агрегатов исправляет MetadataReconciler.
+ * Чтение каталога пользователя ждет его первичного заполнения по содержимому хранилища
+ */
+@Service
+@RequiredArgsConstructor
+public class DefaultMetadataService implements MetadataService {
+
+    private static final Pattern OBJECT_NAME = Pattern.compile("^user-(\\d+)-files/(.*)$", Pattern.DOTALL);
+
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final MetadataCache metadataCache;
+    private final BlobService blobService;
+    private final QuotaService quotaService;
+    private final MetadataReconciler metadataReconciler;
+
+    /**
+     * Без общей транзакции: ensureDirectories переживает конфликт вставки, который прервал бы транзакцию
+     */
+    @Override
+    public void saveFile(String objectName, long size, String contentType, String etag, String blobDigest) {
+        CatalogPath catalogPath = parse(objectName);
+        Instant now = Instant.now();
+
+        try {
+            ensureDirectories(catalogPath.userId(), ResourcePathParseUtils.getParentPath(catalogPath.path()), now);
+
+            ResourceMetadata metadata = this.resourceMetadataRepository.findByUserIdAndPath(catalogPath.userId(), catalogPath.path())
+                    .orElseGet(() -> createMetadata(catalogPath.userId(), catalogPath.path(), "FILE", now));
+            long previousSize = metadata.getSize();
+            boolean created = metadata.getId() == null;
+            metadata.setSize(size);
+            metadata.setContentType(contentType);
+            metadata.setEtag(etag);
+            metadata.setUpdatedAt(now);
+
+            String previousDigest = metadata.getBlobDigest();
+            metadata.setBlobDigest(blobDigest);
+
+            this.resourceMetadataRepository.save(metadata);
+            this.quotaService.addUsage(catalogPath.userId(), size - previousSize);
+            addToAncestors(catalogPath.userId(), catalogPath.path(), size - previousSize, created ? 1 : 0);
+
+            if (previousDigest != null) {
+                this.blobService.release(previousDigest, 1);
+            }
+        } finally {
+            this.metadataCache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public void saveDirectory(String objectName) {
+        CatalogPath catalogPath = parse(objectName);
+
+        try {
+            ensureDirectories(catalogPath.userId(), catalogPath.path(), Instant.now());
+        } finally {
+            this.metadataCache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public void moveFile(String sourceObjectName, String targetObjectName) {
+        CatalogPath source = parse(sourceObjectName);
+        CatalogPath target = parse(targetObjectName);
+        Instant now = Instant.now();
+
+        try {
+            ensureDirectories(target.userId(), ResourcePathParseUtils.getParentPath(target.path()), now);
+
+            this.resourceMetadataRepository.findByUserIdAndPath(source.userId(), source.path()).ifPresent(metadata -> {
+                metadata.setPath(target.path());
+                metadata.setParent(ResourcePathParseUtils.getParentPath(target.path()));
+                metadata.setName(ResourcePathParseUtils.getResourceName(target.path()));
+                metadata.setUpdatedAt(now);
+                this.resourceMetadataRepository.save(metadata);
+
+                moveBetweenAncestors(source.userId(), source.path(), target.path(), metadata.getSize(), 1);
+            });
+        } finally {
+            this.metadataCache.invalidate(sourceObjectName);
+            this.metadataCache.invalidate(targetObjectName);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void deleteFile(String objectName) {
+        CatalogPath catalogPath = parse(objectName);
+
+        try {
+            this.resourceMetadataRepository.findByUserIdAndPath(catalogPath.userId(), catalogPath.path()).ifPresent(metadata -> {
+                this.resourceMetadataRepository.delete(metadata);
+                this.quotaService.addUsage(catalogPath.userId(), -metadata.getSize());
+                addToAncestors(catalogPath.userId(), catalogPath.path(), -metadata.getSize(), -1);
+
+                if (metadata.getBlobDigest() != null) {
+                    this.blobService.release(metadata.getBlobDigest(), 1);
+                }
+            });
+        } finally {
+            this.metadataCache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public void relocateDirectory(String sourcePrefix, String targetPrefix) {
+        CatalogPath source = parse(sourcePrefix);
+        CatalogPath target = parse(targetPrefix);
+        Instant now = Instant.now();
+
+        try {
+            ensureDirectories(target.userId(), ResourcePathParseUtils.getParentPath(target.path()), now);
+
+            this.resourceMetadataRepository.relocateChildren(source.userId(), source.path(), target.path(),
+                    toPrefixPattern(source.path()), source.path().length() + 1, now);
+
+            ResourceMetadata directory = this.resourceMetadataRepository.findByUserIdAndPath(source.userId(), source.path())
+                    .orElseGet(() -> {
+                        // Без записи директории агрегаты считаются по уже перенесенному содержимому
+                        ResourceMetadata created = createMetadata(target.userId(), target.path(), "DIRECTORY", now);
+                        created.setSize(this.resourceMetadataRepository.sumFileSizesByPathPattern(target.userId(), toPrefixPattern(target.path())));
+                        created.setFileCount(this.resourceMetadataRepository.countFilesByPathPattern(target.userId(), toPrefixPattern(target.path())));
+                        return created;
+                    });
+            directory.setPath(target.path());
+            directory.setParent(ResourcePathParseUtils.getParentPath(target.path()));
+            directory.setName(ResourcePathParseUtils.getResourceName(target.path()));
+            directory.setUpdatedAt(now);
+
+            this.resourceMetadataRepository.save(directory);
+
+            moveBetweenAncestors(source.userId(), source.path(), target.path(), directory.getSize(), directory.getFileCount());
+        } finally {
+            this.metadataCache.invalidatePrefix(sourcePrefix);
+            this.metadataCache.invalidatePrefix(targetPrefix);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void deleteDirectory(String prefix) {
+        CatalogPath catalogPath = parse(prefix);
+        String pattern = toPrefixPattern(catalogPath.path());
+
+        try {
+            Map<String, Long> references = this.resourceMetadataRepository.findBlobDigestsByPathPattern(catalogPath.userId(), pattern)
+                    .stream()
+                    .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            long size = this.resourceMetadataRepository.sumFileSizesByPathPattern(catalogPath.userId(), pattern);
+            long fileCount = this.resourceMetadataRepository.countFilesByPathPattern(catalogPath.userId(), pattern);
+
+            this.resourceMetadataRepository.deleteAllByPathPattern(catalogPath.userId(), pattern);
+            this.quotaService.addUsage(catalogPath.userId(), -size);
+            addToAncestors(catalogPath.userId(), catalogPath.path(), -size, -fileCount);
+
+            references.forEach((digest, count) -> this.blobService.release(digest, count.intValue()));
+        } finally {
+            this.metadataCache.invalidatePrefix(prefix);
+        }
+    }
+
+    @Override
+    public Optional<ResourceMetadata> find(String objectName) {
+        CatalogPath catalogPath = parse(objectName);
+        this.metadataReconciler.ensureBackfilled(catalogPath.userId());
+
+        return this.metadataCache.getResource(objectName,
+                () -> this.resourceMetadataRepository.findByUserIdAndPath(catalogPath.userId(), catalogPath.path()));
+    }
+
+    @Override
+    public boolean isFileExists(String objectName) {
+        return find(objectName).filter(metadata -> "FILE".equals(metadata.getType())).isPresent();
+    }
+
+    /**
+     * Корень пользователя существует всегда, он создается при регистрации
+     */
+    @Override
+    public boolean isDirectoryExists(String prefix) {
+        CatalogPath catalogPath = parse(prefix);
+
+        return catalogPath.path().isEmpty()
+                || find(prefix).filter(metadata -> "DIRECTORY".equals(metadata.getType())).isPresent();
+    }
+
+    @Override
+    public Set<String> findExistingObjects(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) return Set.of();
+
+        CatalogPath first = parse(objectNames.iterator().next());
+        String userPrefix = "user-%d-files/".formatted(first.userId());
+        this.metadataReconciler.ensureBackfilled(first.userId());
+
+        return this.resourceMetadataRepository.findAllByUserIdAndPathIn(first.userId(),
+                        objectNames.stream().map(objectName -> parse(objectName).path()).toList())
+                .stream()
+                .map(metadata -> userPrefix + metadata.getPath())
+                .collect(Collectors.toSet());
+    }
+
+    @Override
+    public List<ResourceMetadata> findBlobFiles(String prefix, String afterPath, int limit) {
+        CatalogPath catalogPath = parse(prefix);
+        this.metadataReconciler.ensureBackfilled(catalogPath.userId());
+
+        return this.resourceMetadataRepository.findBlobFilesByPathPattern(catalogPath.userId(), toPrefixPattern(catalogPath.path()),
+                afterPath, Limit.of(limit));
+    }
+
+    @Override
+    public Window<ResourceMetadata> getDirectoryContent(String prefix, ScrollPosition position, Sort sort, int limit) {
+        CatalogPath catalogPath = parse(prefix);
+        this.metadataReconciler.ensureBackfilled(catalogPath.userId());
+
+        return this.resourceMetadataRepository.findByUserIdAndParent(catalogPath.userId(), catalogPath.path(),
+                position, sort, Limit.of(limit));
+    }
+
+    @Override
+    public List<ResourceMetadata> search(int userId, String query, int page, int limit) {
+        this.metadataReconciler.ensureBackfilled(userId);
+        String escapedQuery = escapeLikePattern(query.toLowerCase(Locale.ROOT));
+
+        return this.resourceMetadataRepository.searchByName(userId, "%" + escapedQuery + "%", escapedQuery + "%",
+                PageRequest.of(page, limit));
+    }
+
+    /**
+     * Создает записи для директории и всех ее предков. В MinIO директории без маркера существуют неявно,
+     * в каталоге у каждой директории есть своя запись
+     */
+    private void ensureDirectories(int userId, String directoryPath, Instant now) {
+        for (String path = directoryPath; !path.isEmpty(); path = ResourcePathParseUtils.getParentPath(path)) {
+            if (this.resourceMetadataRepository.existsByUserIdAndPathAndType(userId, path, "DIRECTORY")) return;
+
+            try {
+                this.resourceMetadataRepository.save(createMetadata(userId, path, "DIRECTORY", now));
+            } catch (DataIntegrityViolationException exception) {
+                // Директорию параллельно создал другой запрос
+                return;
+            }
+        }
+    }
+
+    private void addToAncestors(int userId, String path, long size, long fileCount) {
+        addToDirectories(userId, getAncestors(path), size, fileCount);
+    }
+
+    /**
+     * Общие предки старого и нового пути не меняются
+     */
+    private void moveBetweenAncestors(int userId, String sourcePath, String targetPath, long size, long fileCount) {
+        List<String> sourceAncestors = getAncestors(sourcePath);
+        List<String> targetAncestors = getAncestors(targetPath);
+
+        addToDirectories(userId, sourceAncestors.stream().filter(ancestor -> !targetAncestors.contains(ancestor)).toList(), -size, -fileCount);
+        addToDirectories(userId, targetAncestors.stream().filter(ancestor -> !sourceAncestors.contains(ancestor)).toList(), size, fileCount);
+    }
+
+    private void addToDirectories(int userId, List<String> paths, long size, long fileCount) {
+        if (!paths.isEmpty() && (size != 0 || fileCount != 0)) {
+            this.resourceMetadataRepository.addToDirectories(userId, paths, size, fileCount, Instant.now());
+        }
+    }
+
+    private List<String> getAncestors(String path) {
+        List<String> ancestors = new ArrayList<>();
+
+        for (String parent = ResourcePathParseUtils.getParentPath(path); !parent.isEmpty(); parent = ResourcePathParseUtils.getParentPath(parent)) {
+            ancestors.add(parent);
+        }
+
+        return ancestors;
+    }
+
+    private ResourceMetadata createMetadata(int userId, String path, String type, Instant now) {
+        return new ResourceMetadata(null, userId, path, ResourcePathParseUtils.getParentPath(path), ResourcePathParseUtils.getResourceName(path), type, 0L, 0L, null, null, null, now, now);
+    }
+
+    private String toPrefixPattern(String prefix) {
+        return escapeLikePattern(prefix) + "%";
+    }
+
+    private String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private CatalogPath parse(String objectName) {
+        Matcher matcher = OBJECT_NAME.matcher(objectName);
+
+        if (!matcher.matches()) {
+            throw new IllegalStateException("Object " + objectName + " is outside of user directories");
+        }
+
+        return new CatalogPath(Integer.parseInt(matcher.group(1)), matcher.group(2));
+    }
+
+    private record CatalogPath(int userId, String path) {}
+}
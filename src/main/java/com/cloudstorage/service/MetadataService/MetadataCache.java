@@ -0,0 +1,137 @@
+package com.cloudstorage.service.MetadataService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.service.FileService.FileMetadata;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш метаданных объектов в памяти процесса: записи каталога (проверки существования, информация о файле)
+ * и результаты statObject (скачивание). Промахи тоже кэшируются, но на меньшее время negativeTtl.
+ * Ключ - полное имя объекта в бакете. Записи сбрасываются при каждом изменении каталога, TTL ограничивает
+ * время жизни устаревших записей, если объект изменил другой экземпляр приложения.
+ * Значение загружается вне блокировок кэша: загрузка внутри compute держала бы монитор на время запроса
+ * в Postgres или MinIO и закрепляла бы виртуальный поток за несущим.
+ * Статистика публикуется в метриках cache.* с тегами cache=metadata.catalog и cache=metadata.objects
+ */
+@Slf4j
+@Component
+public class MetadataCache implements MeterBinder {
+
+    private final Cache<String, Optional<ResourceMetadata>> resources;
+    private final Cache<String, Optional<FileMetadata>> objects;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public MetadataCache(@Value("${storage.metadata.cache.maximum-size:100000}") long maximumSize,
+                         @Value("${storage.metadata.cache.ttl:1m}") Duration ttl,
+                         @Value("${storage.metadata.cache.negative-ttl:10s}") Duration negativeTtl) {
+        this.resources = buildCache(maximumSize, ttl, negativeTtl);
+        this.objects = buildCache(maximumSize, ttl, negativeTtl);
+    }
+
+    public Optional<ResourceMetadata> getResource(String objectName, Supplier<Optional<ResourceMetadata>> loader) {
+        return get(this.resources, objectName, loader);
+    }
+
+    public Optional<FileMetadata> getObject(String objectName, Supplier<Optional<FileMetadata>> loader) {
+        return get(this.objects, objectName, loader);
+    }
+
+    /**
+     * Сбрасывает объект и все его родительские директории: у них могли закэшироваться промахи
+     */
+    public void invalidate(String objectName) {
+        this.invalidations.incrementAndGet();
+
+        for (String name = objectName; name.contains("/"); name = ResourcePathParseUtils.getParentPath(name)) {
+            this.resources.invalidate(name);
+            this.objects.invalidate(name);
+        }
+    }
+
+    /**
+     * Сбрасывает все объекты под префиксом и родительские директории префикса
+     */
+    public void invalidatePrefix(String prefix) {
+        this.invalidations.incrementAndGet();
+        this.resources.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        this.objects.asMap().keySet().removeIf(key -> key.startsWith(prefix));
+        invalidate(prefix);
+    }
+
+    public CacheStats resourceStats() {
+        return this.resources.stats();
+    }
+
+    public CacheStats objectStats() {
+        return this.objects.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.resources, "metadata.catalog");
+        CaffeineCacheMetrics.monitor(registry, this.objects, "metadata.objects");
+    }
+
+    @Scheduled(fixedDelayString = "${storage.metadata.cache.stats-interval:10m}", initialDelayString = "${storage.metadata.cache.stats-interval:10m}")
+    public void logStats() {
+        log.info("Metadata cache: catalog {} entries, {}; objects {} entries, {}",
+                this.resources.estimatedSize(), this.resources.stats(), this.objects.estimatedSize(), this.objects.stats());
+    }
+
+    /**
+     * Если во время загрузки кэш сбрасывался, загруженное значение могло устареть и убирается из кэша
+     */
+    private <T> Optional<T> get(Cache<String, Optional<T>> cache, String objectName, Supplier<Optional<T>> loader) {
+        Optional<T> cached = cache.getIfPresent(objectName);
+        if (cached != null) return cached;
+
+        long invalidationsBeforeLoad = this.invalidations.get();
+        Optional<T> loaded = loader.get();
+        cache.put(objectName, loaded);
+
+        if (this.invalidations.get() != invalidationsBeforeLoad) {
+            cache.invalidate(objectName);
+        }
+
+        return loaded;
+    }
+
+    private static <T> Cache<String, Optional<T>> buildCache(long maximumSize, Duration ttl, Duration negativeTtl) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new Expiry<String, Optional<T>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Optional<T> value, long currentTime) {
+                        return (value.isPresent() ? ttl : negativeTtl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Optional<T> value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Optional<T> value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,259 @@
+package com.cloudstorage.service.MetadataService;
+
+import com.cloudstorage.entity.CatalogBackfill;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.repository.CatalogBackfillRepository;
+import com.cloudstorage.repository.ResourceMetadataRepository;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Перестраивает каталог метаданных по содержимому бакета: добавляет недостающие записи,
+ * обновляет измененные и удаляет записи об объектах, которых в бакете нет. Файлы из блобов в листинге бакета не видны,
+ * их записи и родительские директории сохраняются как есть. Размер и число файлов поддерева директорий
+ * пересчитываются по файлам.
+ * Записи, измененные после начала листинга, сверка не трогает: листинг их уже не отражает, их исправит следующий запуск.
+ * Ошибка сверки одного пользователя не прерывает сверку остальных.
+ * Запускается по расписанию storage.metadata.reconcile-cron и для первичного заполнения каталога.
+ * Заполнение отмечается в t_catalog_backfill по каждому пользователю и целиком. Пока общей отметки нет,
+ * заполнение продолжается при каждом старте, а чтение каталога пользователя, до которого оно еще не дошло,
+ * ждет сверки этого пользователя (ensureBackfilled)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MetadataReconciler {
+
+    private static final Pattern USER_ROOT = Pattern.compile("^user-(\\d+)-files/$");
+
+    private static final String CATALOG_SCOPE = "catalog";
+
+    private final StorageBackend storageBackend;
+    private final ResourceMetadataRepository resourceMetadataRepository;
+    private final CatalogBackfillRepository catalogBackfillRepository;
+    private final MetadataCache metadataCache;
+
+    @Qualifier("jobExecutor")
+    private final ExecutorService jobExecutor;
+
+    private final Set<Integer> backfilledUsers = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, ReentrantLock> backfillLocks = new ConcurrentHashMap<>();
+    private volatile boolean backfilled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeBackfill() {
+        if (this.catalogBackfillRepository.existsById(CATALOG_SCOPE)) {
+            this.backfilled = true;
+        } else {
+            this.jobExecutor.execute(this::backfill);
+        }
+    }
+
+    /**
+     * Заполняет каталоги пользователей, которых еще нет в t_catalog_backfill. Общая отметка ставится,
+     * только если заполнились все, иначе заполнение продолжится при следующем старте
+     */
+    public void backfill() {
+        boolean complete = true;
+
+        try {
+            for (StorageObject storedObject : this.storageBackend.list("", false, null)) {
+                Matcher matcher = USER_ROOT.matcher(storedObject.objectName());
+
+                if (!matcher.matches()) continue;
+
+                try {
+                    ensureBackfilled(Integer.parseInt(matcher.group(1)));
+                } catch (Exception exception) {
+                    complete = false;
+                    log.warn("Failed to backfill metadata of {}", storedObject.objectName(), exception);
+                }
+            }
+        } catch (Exception exception) {
+            complete = false;
+            log.warn("Failed to backfill metadata catalog", exception);
+        }
+
+        if (complete) {
+            markCompleted(CATALOG_SCOPE);
+            this.backfilled = true;
+            this.backfilledUsers.clear();
+            this.backfillLocks.clear();
+            log.info("Metadata catalog backfill completed");
+        }
+    }
+
+    /**
+     * Возвращается, когда каталог пользователя заполнен. Если заполнение до него еще не дошло, сверяет его сразу
+     */
+    public void ensureBackfilled(int userId) {
+        if (this.backfilled || this.backfilledUsers.contains(userId)) return;
+
+        ReentrantLock lock = this.backfillLocks.computeIfAbsent(userId, id -> new ReentrantLock());
+        lock.lock();
+
+        try {
+            if (this.backfilledUsers.contains(userId)) return;
+
+            if (this.catalogBackfillRepository.existsById(CATALOG_SCOPE)) {
+                this.backfilled = true;
+                return;
+            }
+
+            String userScope = "user-%d-files/".formatted(userId);
+
+            if (!this.catalogBackfillRepository.existsById(userScope)) {
+                reconcile(userId);
+                markCompleted(userScope);
+            }
+
+            this.backfilledUsers.add(userId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(cron = "${storage.metadata.reconcile-cron:-}")
+    public void reconcileAll() {
+        try {
+            for (StorageObject storedObject : this.storageBackend.list("", false, null)) {
+                Matcher matcher = USER_ROOT.matcher(storedObject.objectName());
+
+                if (!matcher.matches()) continue;
+
+                try {
+                    reconcile(Integer.parseInt(matcher.group(1)));
+                } catch (Exception exception) {
+                    log.warn("Failed to reconcile metadata of {}", storedObject.objectName(), exception);
+                }
+            }
+        } catch (Exception exception) {
+            log.warn("Failed to reconcile metadata catalog", exception);
+        }
+    }
+
+    public void reconcile(int userId) {
+        String userPrefix = "user-%d-files/".formatted(userId);
+        Instant scanStart = Instant.now();
+        Map<String, ResourceMetadata> expected = new LinkedHashMap<>();
+
+        try {
+            for (StorageObject storedObject : this.storageBackend.list(userPrefix, true, null)) {
+                String path = storedObject.objectName().substring(userPrefix.length());
+
+                if (path.isEmpty()) continue;
+
+                Instant lastModified = storedObject.lastModified() != null ? storedObject.lastModified() : Instant.now();
+                boolean directory = storedObject.isDirectory();
+
+                expected.put(path, new ResourceMetadata(null, userId, path, ResourcePathParseUtils.getParentPath(path), ResourcePathParseUtils.getResourceName(path),
+                        directory ? "DIRECTORY" : "FILE", directory ? 0L : storedObject.size(), 0L, null,
+                        directory ? null : storedObject.etag(), null, lastModified, lastModified));
+
+                expectParents(expected, userId, path, lastModified);
+            }
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        Map<String, ResourceMetadata> actual = new HashMap<>();
+        this.resourceMetadataRepository.findAllByUserId(userId).forEach(metadata -> actual.put(metadata.getPath(), metadata));
+
+        for (ResourceMetadata metadata : actual.values()) {
+            if (metadata.getBlobDigest() != null || "FILE".equals(metadata.getType()) && isChangedAfter(metadata, scanStart)) {
+                expected.put(metadata.getPath(), metadata);
+                expectParents(expected, userId, metadata.getPath(), metadata.getUpdatedAt());
+            }
+        }
+
+        aggregateDirectories(expected);
+
+        List<ResourceMetadata> changed = new ArrayList<>();
+        for (ResourceMetadata metadata : expected.values()) {
+            ResourceMetadata current = actual.remove(metadata.getPath());
+
+            if (current == null) {
+                changed.add(metadata);
+            } else if (isChangedAfter(current, scanStart)) {
+                continue;
+            } else if (!current.getType().equals(metadata.getType())
+                    || !Objects.equals(current.getSize(), metadata.getSize())
+                    || !Objects.equals(current.getFileCount(), metadata.getFileCount())
+                    || !Objects.equals(current.getEtag(), metadata.getEtag())) {
+                current.setType(metadata.getType());
+                current.setSize(metadata.getSize());
+                current.setFileCount(metadata.getFileCount());
+                current.setEtag(metadata.getEtag());
+                current.setUpdatedAt(metadata.getUpdatedAt());
+                changed.add(current);
+            }
+        }
+
+        actual.values().removeIf(metadata -> isChangedAfter(metadata, scanStart));
+
+        this.resourceMetadataRepository.saveAll(changed);
+        this.resourceMetadataRepository.deleteAll(actual.values());
+        this.metadataCache.invalidatePrefix(userPrefix);
+
+        log.info("Reconciled metadata of user {}: {} entries, {} updated, {} removed",
+                userId, expected.size(), changed.size(), actual.size());
+    }
+
+    private void markCompleted(String scope) {
+        try {
+            this.catalogBackfillRepository.save(new CatalogBackfill(scope, Instant.now()));
+        } catch (DataIntegrityViolationException exception) {
+            // Отметку параллельно поставил другой экземпляр
+        }
+    }
+
+    private boolean isChangedAfter(ResourceMetadata metadata, Instant scanStart) {
+        return metadata.getUpdatedAt() != null && metadata.getUpdatedAt().isAfter(scanStart);
+    }
+
+    /**
+     * Записи директорий в expected всегда новые, поэтому агрегаты считаются прямо в них
+     */
+    private void aggregateDirectories(Map<String, ResourceMetadata> expected) {
+        for (ResourceMetadata metadata : expected.values()) {
+            if (!"FILE".equals(metadata.getType())) continue;
+
+            for (String parent = metadata.getParent(); !parent.isEmpty(); parent = ResourcePathParseUtils.getParentPath(parent)) {
+                ResourceMetadata directory = expected.get(parent);
+                directory.setSize(directory.getSize() + metadata.getSize());
+                directory.setFileCount(directory.getFileCount() + 1);
+            }
+        }
+    }
+
+    private void expectParents(Map<String, ResourceMetadata> expected, int userId, String path, Instant lastModified) {
+        for (String parent = ResourcePathParseUtils.getParentPath(path); !parent.isEmpty(); parent = ResourcePathParseUtils.getParentPath(parent)) {
+            expected.putIfAbsent(parent, new ResourceMetadata(null, userId, parent, ResourcePathParseUtils.getParentPath(parent), ResourcePathParseUtils.getResourceName(parent),
+                    "DIRECTORY", 0L, 0L, null, null, null, lastModified, lastModified));
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.cloudstorage.service.MetadataService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Каталог метаданных ресурсов в Postgres. Все методы принимают полные имена объектов в бакете (user-N-files/...)
+ */
+public interface MetadataService {
+    default void saveFile(String objectName, long size, String contentType, String etag) {
+        saveFile(objectName, size, contentType, etag, null);
+    }
+
+    /**
+     * blobDigest - блоб с содержимым файла, ссылку на который уже взял вызывающий, null - файл лежит в хранилище по своему пути.
+     * Ссылка на блоб перезаписанного файла освобождается
+     */
+    void saveFile(String objectName, long size, String contentType, String etag, String blobDigest);
+
+    void saveDirectory(String objectName);
+
+    void moveFile(String sourceObjectName, String targetObjectName);
+
+    void deleteFile(String objectName);
+
+    void relocateDirectory(String sourcePrefix, String targetPrefix);
+
+    void deleteDirectory(String prefix);
+
+    Optional<ResourceMetadata> find(String objectName);
+
+    boolean isFileExists(String objectName);
+
+    boolean isDirectoryExists(String prefix);
+
+    Set<String> findExistingObjects(Collection<String> objectNames);
+
+    /**
+     * Файлы директории, содержимое которых хранится в блобах, по возрастанию пути начиная после afterPath (путь в каталоге, "" - с начала)
+     */
+    List<ResourceMetadata> findBlobFiles(String prefix, String afterPath, int limit);
+
+    /**
+     * Keyset-пагинация содержимого директории: следующая страница начинается после позиции position
+     */
+    Window<ResourceMetadata> getDirectoryContent(String prefix, ScrollPosition position, Sort sort, int limit);
+
+    /**
+     * Файлы и папки пользователя, в имени которых есть query (без учета регистра).
+     * Сначала идут совпадения с начала имени, внутри групп - по имени и пути
+     */
+    List<ResourceMetadata> search(int userId, String query, int page, int limit);
+}
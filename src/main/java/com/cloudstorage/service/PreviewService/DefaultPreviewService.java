@@ -0,0 +1,297 @@
+package com.cloudstorage.service.PreviewService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.metrics.MeteredOperation;
+import com.cloudstorage.metrics.StorageMetrics;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.IIOException;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Превью строится по содержимому блоба и хранится рядом с ним, поэтому переименование и перенос файла его не затрагивают,
+ * перезапись файла дает новый блоб и новое превью, а старое удаляется сборщиком блобов вместе с блобом.
+ * Файлы, которые лежат в хранилище по своему пути (загруженные по частям), превью не получают.
+ * Пустой объект превью означает, что содержимое не удалось декодировать: повторно оно не разбирается
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultPreviewService implements PreviewService {
+
+    private static final byte[] NO_PREVIEW = new byte[0];
+
+    private final StorageBackend storageBackend;
+    private final BlobService blobService;
+    private final MetadataService metadataService;
+    private final AuthService authService;
+    private final PreviewCache previewCache;
+
+    @Qualifier("previewExecutor")
+    private final ExecutorService previewExecutor;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    @Value("${storage.preview.size:256}")
+    private int previewSize;
+
+    @Value("${storage.preview.max-source-size:32MB}")
+    private DataSize maxSourceSize;
+
+    @Value("${storage.preview.max-pixels:50000000}")
+    private long maxPixels;
+
+    /**
+     * Одно содержимое не ставится в очередь дважды, пока предыдущая задача не завершилась
+     */
+    @Override
+    public void schedule(String digest, String contentType, long size) {
+        if (!isPreviewable(contentType, size) || this.previewCache.get(digest) != null || !this.pending.add(digest)) {
+            return;
+        }
+
+        try {
+            this.previewExecutor.execute(() -> {
+                try {
+                    generate(digest);
+                } finally {
+                    this.pending.remove(digest);
+                }
+            });
+        } catch (RejectedExecutionException exception) {
+            this.pending.remove(digest);
+            log.debug("Preview queue is full, preview of {} is postponed", digest);
+        }
+    }
+
+    @Override
+    @MeteredOperation(StorageMetrics.PREVIEW)
+    public Optional<Preview> getPreview(String path) throws NoSuchFileException {
+        ResourceMetadata file = this.metadataService.find(getUserPrefix() + ResourcePathParseUtils.requireRelativePath(path))
+                .filter(resource -> "FILE".equals(resource.getType()))
+                .orElseThrow(() -> new NoSuchFileException("minio.file.error.resource_not_found"));
+
+        String digest = file.getBlobDigest();
+
+        if (digest == null || !isPreviewable(file.getContentType(), file.getSize())) {
+            throw new NoSuchFileException("previews.error.not_available");
+        }
+
+        byte[] content = this.previewCache.get(digest);
+
+        if (content == null) {
+            content = loadPreview(digest);
+
+            if (content == null) {
+                schedule(digest, file.getContentType(), file.getSize());
+                return Optional.empty();
+            }
+
+            this.previewCache.put(digest, content);
+        }
+
+        if (content.length == 0) {
+            throw new NoSuchFileException("previews.error.not_available");
+        }
+
+        return Optional.of(new Preview(digest, content));
+    }
+
+    /**
+     * Превью могло появиться, пока задача ждала в очереди (например, построено другим экземпляром приложения)
+     */
+    private void generate(String digest) {
+        String previewObjectName = StoredBlob.sideObjectName(digest, StoredBlob.PREVIEW_SUFFIX);
+
+        if (this.storageBackend.stat(previewObjectName).isPresent()) {
+            return;
+        }
+
+        byte[] preview;
+
+        try (InputStream content = this.blobService.get(digest, 0, null)) {
+            preview = render(content);
+        } catch (NoSuchFileException exception) {
+            // блоб удален, пока задача ждала в очереди
+            return;
+        } catch (IOException exception) {
+            log.warn("Failed to read blob {} for preview", digest, exception);
+            return;
+        }
+
+        try {
+            this.storageBackend.put(previewObjectName, new ByteArrayInputStream(preview), preview.length, Preview.CONTENT_TYPE);
+            this.previewCache.put(digest, preview);
+        } catch (Exception exception) {
+            log.warn("Failed to store preview {}", previewObjectName, exception);
+        }
+    }
+
+    /**
+     * Изображение декодируется с прореживанием пикселей примерно до двойного размера превью, так что память
+     * не зависит от разрешения исходника, затем масштабируется с интерполяцией. Прозрачные области заливаются белым.
+     * ImageIO скрывает ошибки чтения за IIOException или пустым списком декодеров, поэтому они отслеживаются
+     * на исходном потоке: сбой чтения блоба пробрасывается, и пустое превью пишется только для неразборчивого содержимого
+     */
+    private byte[] render(InputStream content) throws IOException {
+        ReadFailureTrackingInputStream tracked = new ReadFailureTrackingInputStream(content);
+        BufferedImage source;
+
+        try (ImageInputStream input = ImageIO.createImageInputStream(tracked)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+
+            if (readers == null || !readers.hasNext()) {
+                tracked.rethrowFailure();
+                return NO_PREVIEW;
+            }
+
+            ImageReader reader = readers.next();
+
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                if ((long) width * height > maxPixels) {
+                    return NO_PREVIEW;
+                }
+
+                int step = Math.max(1, Math.max(width, height) / (previewSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+
+                source = reader.read(0, param);
+            } catch (IIOException | RuntimeException exception) {
+                tracked.rethrowFailure();
+                log.debug("Failed to decode image for preview", exception);
+                return NO_PREVIEW;
+            } finally {
+                reader.dispose();
+            }
+        }
+
+        double scale = Math.min(1.0, (double) previewSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage preview = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = preview.createGraphics();
+
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, Color.WHITE, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+
+        if (!ImageIO.write(preview, "jpg", encoded)) {
+            throw new IllegalStateException("JPEG writer is not available");
+        }
+
+        return encoded.toByteArray();
+    }
+
+    private byte[] loadPreview(String digest) {
+        try (InputStream content = this.storageBackend.get(StoredBlob.sideObjectName(digest, StoredBlob.PREVIEW_SUFFIX))) {
+            return content.readAllBytes();
+        } catch (NoSuchFileException exception) {
+            return null;
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    private boolean isPreviewable(String contentType, long size) {
+        return contentType != null && contentType.startsWith("image/") && size > 0 && size <= maxSourceSize.toBytes();
+    }
+
+    private String getUserPrefix() {
+        return "user-%d-files/".formatted(this.authService.getUserIdFromSession());
+    }
+
+    /**
+     * Запоминает первую ошибку чтения исходного потока, даже если декодер ее перехватил
+     */
+    private static class ReadFailureTrackingInputStream extends FilterInputStream {
+
+        private IOException failure;
+
+        ReadFailureTrackingInputStream(InputStream content) {
+            super(content);
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return super.read();
+            } catch (IOException exception) {
+                throw track(exception);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException exception) {
+                throw track(exception);
+            }
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            try {
+                return super.skip(count);
+            } catch (IOException exception) {
+                throw track(exception);
+            }
+        }
+
+        void rethrowFailure() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private IOException track(IOException exception) {
+            if (failure == null) {
+                failure = exception;
+            }
+
+            return exception;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.cloudstorage.service.PreviewService;
+
+/**
+ * Уменьшенная копия изображения в JPEG. etag - дайджест исходного содержимого, превью от него однозначно зависит
+ */
+public record Preview(
+        String etag,
+        byte[] content
+) {
+
+    public static final String CONTENT_TYPE = "image/jpeg";
+}
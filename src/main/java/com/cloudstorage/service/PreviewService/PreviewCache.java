@@ -0,0 +1,42 @@
+package com.cloudstorage.service.PreviewService;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Превью в памяти процесса по дайджесту исходного содержимого. Содержимое блоба не меняется, поэтому записи
+ * не сбрасываются, а только вытесняются по суммарному размеру. Статистика публикуется в метриках cache.* с тегом cache=previews
+ */
+@Component
+public class PreviewCache implements MeterBinder {
+
+    private final Cache<String, byte[]> previews;
+
+    public PreviewCache(@Value("${storage.preview.cache.maximum-size:64MB}") DataSize maximumSize) {
+        this.previews = Caffeine.newBuilder()
+                .maximumWeight(maximumSize.toBytes())
+                // пустая отметка "превью нет" весит хотя бы 1, иначе такие записи не вытеснялись бы совсем
+                .<String, byte[]>weigher((digest, content) -> Math.max(1, content.length))
+                .recordStats()
+                .build();
+    }
+
+    public byte[] get(String digest) {
+        return this.previews.getIfPresent(digest);
+    }
+
+    public void put(String digest, byte[] content) {
+        this.previews.put(digest, content);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, this.previews, "previews");
+    }
+}
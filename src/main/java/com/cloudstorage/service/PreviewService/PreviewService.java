@@ -0,0 +1,17 @@
+package com.cloudstorage.service.PreviewService;
+
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+
+public interface PreviewService {
+
+    /**
+     * Ставит построение превью содержимого в очередь, если это изображение подходящего размера
+     */
+    void schedule(String digest, String contentType, long size);
+
+    /**
+     * Пустой результат - превью еще строится
+     */
+    Optional<Preview> getPreview(String path) throws NoSuchFileException;
+}
@@ -0,0 +1,63 @@
+package com.cloudstorage.service.QuotaService;
+
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Счетчик занятого места меняет DefaultMetadataService вместе с записями файлов в каталоге, поэтому проверка квоты -
+ * одно чтение строки пользователя. Проверка ничего не резервирует: параллельные загрузки одного пользователя
+ * могут превысить квоту не больше чем на свой размер. Если изменение каталога прошло, а счетчика нет,
+ * расхождение исправляет пересчет по расписанию storage.quota.reconcile-cron
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultQuotaService implements QuotaService {
+
+    private final UserRepository userRepository;
+
+    @Value("${storage.quota.default:10GB}")
+    private DataSize defaultQuota;
+
+    @Override
+    public void checkQuota(int userId, long bytes) {
+        if (bytes > getAvailableBytes(userId)) {
+            throw new QuotaExceededException("quota.error.exceeded");
+        }
+    }
+
+    /**
+     * Для пользователя без записи действует квота по умолчанию и ничего не занято
+     */
+    @Override
+    public long getAvailableBytes(int userId) {
+        return this.userRepository.findAvailableBytes(userId, defaultQuota.toBytes()).orElse(defaultQuota.toBytes());
+    }
+
+    @Override
+    public void addUsage(int userId, long bytes) {
+        if (bytes != 0) {
+            this.userRepository.addUsedBytes(userId, bytes);
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${storage.quota.reconcile-cron:-}")
+    public void reconcileUsage() {
+        try {
+            int corrected = this.userRepository.reconcileUsedBytes();
+
+            if (corrected > 0) {
+                log.info("Corrected storage usage of {} users", corrected);
+            }
+        } catch (Exception exception) {
+            log.warn("Failed to reconcile storage usage", exception);
+        }
+    }
+}
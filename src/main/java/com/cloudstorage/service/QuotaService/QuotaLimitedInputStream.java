@@ -0,0 +1,69 @@
+package com.cloudstorage.service.QuotaService;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ограничивает поток заранее неизвестного размера свободным местом пользователя: чтение за пределом limit
+ * прерывается ошибкой, после которой isExceeded() возвращает true
+ */
+public class QuotaLimitedInputStream extends FilterInputStream {
+
+    private final long limit;
+    private long read;
+    private boolean exceeded;
+
+    public QuotaLimitedInputStream(InputStream in, long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+
+        if (value != -1) {
+            count(1);
+        }
+
+        return value;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int count = super.read(buffer, offset, length);
+
+        if (count > 0) {
+            count(count);
+        }
+
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        count(skipped);
+
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public boolean isExceeded() {
+        return exceeded;
+    }
+
+    private void count(long bytes) throws IOException {
+        read += bytes;
+
+        if (read > limit) {
+            exceeded = true;
+            throw new IOException("Storage quota exceeded after " + read + " bytes");
+        }
+    }
+}
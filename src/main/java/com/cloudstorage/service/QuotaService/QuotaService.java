@@ -0,0 +1,21 @@
+package com.cloudstorage.service.QuotaService;
+
+/**
+ * Квоты и занятое пользователями место. Занятое место - сумма размеров файлов пользователя в каталоге
+ */
+public interface QuotaService {
+
+    /**
+     * Бросает QuotaExceededException, если bytes не помещаются в свободное место пользователя
+     */
+    void checkQuota(int userId, long bytes);
+
+    long getAvailableBytes(int userId);
+
+    void addUsage(int userId, long bytes);
+
+    /**
+     * Пересчитывает занятое место всех пользователей по каталогу
+     */
+    void reconcileUsage();
+}
@@ -0,0 +1,26 @@
+package com.cloudstorage.service;
+
+import lombok.Getter;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.io.Serial;
+import java.util.Collection;
+
+/**
+ * Principal сессии. Id пользователя определяется один раз при входе и хранится в сессии вместе с principal,
+ * поэтому для построения префикса пользователя в бакете не нужен запрос в Postgres
+ */
+@Getter
+public class SecurityUser extends User {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private final Integer id;
+
+    public SecurityUser(Integer id, String username, String password, Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+}
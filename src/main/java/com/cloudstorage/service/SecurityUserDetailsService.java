@@ -3,6 +3,7 @@ package com.cloudstorage.service;
 import com.cloudstorage.entity.User;
 import com.cloudstorage.repository.UserRepository;
 import lombok.AllArgsConstructor;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -18,10 +19,7 @@ public class SecurityUserDetailsService implements UserDetailsService {
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.getByUsername(username).orElseThrow(() -> new UsernameNotFoundException("users.errors.not_found"));
 
-        return org.springframework.security.core.userdetails.User
-                .withUsername(username)
-                .password(user.getPassword())
-                .roles("USER")
-                .build();
+        return new SecurityUser(user.getId(), username, user.getPassword(),
+                AuthorityUtils.createAuthorityList("ROLE_USER"));
     }
 }
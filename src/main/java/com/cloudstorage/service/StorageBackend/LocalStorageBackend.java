@@ -0,0 +1,496 @@
+package com.cloudstorage.service.StorageBackend;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Хранилище в каталоге storage.local.root для установки на одном сервере без MinIO.
+ * Ключ объекта - путь файла относительно корня, маркер папки - сам каталог.
+ * Запись идет во временный файл, который атомарно переносится на место, поэтому читатели не видят недописанных файлов.
+ * Переименование и перемещение файлов и папок - один Files.move, файлы отдаются через FileChannel.transferTo.
+ * Служебные файлы (временные файлы, части multipart-загрузок) лежат в .storage/ и в листинг не попадают
+ */
+@Component
+@ConditionalOnProperty(name = "storage.backend", havingValue = "local")
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final String SYSTEM_DIRECTORY = ".storage";
+
+    @Value("${storage.local.root:data}")
+    private Path root;
+
+    private Path temporaryDirectory;
+    private Path uploadsDirectory;
+
+    @PostConstruct
+    public void init() {
+        try {
+            root = root.toAbsolutePath().normalize();
+            temporaryDirectory = Files.createDirectories(root.resolve(SYSTEM_DIRECTORY).resolve("tmp"));
+            uploadsDirectory = Files.createDirectories(root.resolve(SYSTEM_DIRECTORY).resolve("uploads"));
+        } catch (IOException exception) {
+            throw new UncheckedIOException("Failed to initialize storage in " + root, exception);
+        }
+    }
+
+    @Override
+    public StorageObject put(String objectName, InputStream content, long size, String contentType) {
+        Path target = resolve(objectName);
+
+        try {
+            if (objectName.endsWith("/")) {
+                Files.createDirectories(target);
+                return stat(objectName).orElseThrow();
+            }
+
+            Path temporary = createTemporaryFile();
+
+            try {
+                long written = Files.copy(content, temporary, StandardCopyOption.REPLACE_EXISTING);
+
+                if (size >= 0 && written != size) {
+                    throw new IOException("Expected " + size + " bytes for " + objectName + ", got " + written);
+                }
+
+                publish(temporary, target);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+            return toStorageObject(objectName, target, Files.readAttributes(target, BasicFileAttributes.class), contentType);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String objectName) {
+        Path path = resolve(objectName);
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+            if (attributes.isDirectory() != objectName.endsWith("/")) {
+                return Optional.empty();
+            }
+
+            return Optional.of(toStorageObject(objectName, path, attributes,
+                    attributes.isDirectory() ? null : Files.probeContentType(path)));
+        } catch (NoSuchFileException exception) {
+            return Optional.empty();
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public InputStream get(String objectName, long offset, Long length) throws NoSuchFileException {
+        Path path = resolve(objectName);
+
+        if (objectName.endsWith("/") || Files.isDirectory(path)) {
+            throw new NoSuchFileException(objectName);
+        }
+
+        try {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+            long end = length != null ? Math.min(channel.size(), offset + length) : channel.size();
+
+            return new FileChannelInputStream(channel, offset, end);
+        } catch (NoSuchFileException exception) {
+            throw exception;
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Обходится только поддерево последней папки префикса, результат сортируется по ключу, как листинг S3
+     */
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive, String startAfter) {
+        Path directory = resolve(prefix.substring(0, prefix.lastIndexOf('/') + 1));
+
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+
+        List<StorageObject> objects = new ArrayList<>();
+
+        try (Stream<Path> paths = recursive ? Files.walk(directory) : Stream.concat(Stream.of(directory), Files.list(directory))) {
+            paths.forEach(path -> {
+                if (path.equals(root) || path.startsWith(root.resolve(SYSTEM_DIRECTORY))) return;
+
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    String objectName = toObjectName(path, attributes.isDirectory());
+
+                    if (objectName.startsWith(prefix) && (startAfter == null || objectName.compareTo(startAfter) > 0)) {
+                        objects.add(toStorageObject(objectName, path, attributes, null));
+                    }
+                } catch (NoSuchFileException exception) {
+                    // файл удален во время обхода
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+            });
+        } catch (IOException | UncheckedIOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        objects.sort(Comparator.comparing(StorageObject::objectName));
+
+        return objects;
+    }
+
+    @Override
+    public void copy(String sourceObjectName, String targetObjectName, long size) {
+        Path source = resolve(sourceObjectName);
+        Path target = resolve(targetObjectName);
+
+        try {
+            if (sourceObjectName.endsWith("/")) {
+                Files.createDirectories(target);
+                return;
+            }
+
+            Path temporary = createTemporaryFile();
+
+            try {
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                     FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    transfer(in, 0, in.size(), out);
+                }
+
+                publish(temporary, target);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void move(String sourceObjectName, String targetObjectName, long size) {
+        if (sourceObjectName.endsWith("/")) {
+            movePrefix(sourceObjectName, targetObjectName);
+            return;
+        }
+
+        try {
+            publish(resolve(sourceObjectName), resolve(targetObjectName));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Маркер папки удаляется только вместе с последним вложенным объектом: без каталога вложенные файлы хранить негде
+     */
+    @Override
+    public void delete(String objectName) {
+        try {
+            Files.deleteIfExists(resolve(objectName));
+        } catch (DirectoryNotEmptyException exception) {
+            // у папки остались вложенные объекты
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void delete(Collection<String> objectNames) {
+        for (String objectName : objectNames) {
+            try {
+                delete(objectName);
+            } catch (RuntimeException exception) {
+                throw new IllegalStateException("Failed to remove " + objectName + ": " + exception.getMessage(), exception);
+            }
+        }
+    }
+
+    @Override
+    public boolean movePrefix(String sourcePrefix, String targetPrefix) {
+        if (!sourcePrefix.endsWith("/") || !targetPrefix.endsWith("/")) return false;
+
+        try {
+            publish(resolve(sourcePrefix), resolve(targetPrefix));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean deletePrefix(String prefix) {
+        if (!prefix.endsWith("/")) return false;
+
+        try {
+            FileSystemUtils.deleteRecursively(resolve(prefix));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        return true;
+    }
+
+    /**
+     * Части хранятся файлами с номером части в отдельном каталоге загрузки и склеиваются через transferTo при завершении
+     */
+    @Override
+    public String createMultipartUpload(String objectName, String contentType) {
+        resolve(objectName);
+        String uploadId = UUID.randomUUID().toString();
+
+        try {
+            Files.createDirectory(uploadsDirectory.resolve(uploadId));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        return uploadId;
+    }
+
+    @Override
+    public void uploadPart(String objectName, String uploadId, int partNumber, InputStream content, long length) {
+        Path upload = resolveUpload(uploadId);
+
+        try {
+            Path temporary = createTemporaryFile();
+
+            try {
+                try (OutputStream output = Files.newOutputStream(temporary)) {
+                    long written = IOUtils.copyLarge(content, output, 0, length);
+
+                    if (written != length) {
+                        throw new EOFException("Expected " + length + " bytes for part " + partNumber + " of " + objectName + ", got " + written);
+                    }
+                }
+
+                publish(temporary, upload.resolve(Integer.toString(partNumber)));
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public List<StoragePart> listParts(String objectName, String uploadId) {
+        List<StoragePart> parts = new ArrayList<>();
+
+        try (Stream<Path> paths = Files.list(resolveUpload(uploadId))) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                parts.add(new StoragePart(Integer.parseInt(path.getFileName().toString()), attributes.size(), etag(attributes)));
+            }
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        parts.sort(Comparator.comparingInt(StoragePart::partNumber));
+
+        return parts;
+    }
+
+    @Override
+    public StorageObject completeMultipartUpload(String objectName, String uploadId, List<StoragePart> parts) {
+        Path upload = resolveUpload(uploadId);
+        Path target = resolve(objectName);
+
+        try {
+            Path temporary = createTemporaryFile();
+
+            try {
+                try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    for (StoragePart part : parts) {
+                        try (FileChannel in = FileChannel.open(upload.resolve(Integer.toString(part.partNumber())), StandardOpenOption.READ)) {
+                            transfer(in, 0, in.size(), out);
+                        }
+                    }
+                }
+
+                publish(temporary, target);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+
+            FileSystemUtils.deleteRecursively(upload);
+
+            return toStorageObject(objectName, target, Files.readAttributes(target, BasicFileAttributes.class), null);
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectName, String uploadId) {
+        try {
+            FileSystemUtils.deleteRecursively(resolveUpload(uploadId));
+        } catch (IOException exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Ключ не может выйти за свой первый сегмент (префикс владельца user-N-files/ или blobs/): ключи с ..,
+     * ведущие в другую директорию или за корень хранилища, и абсолютные пути отклоняются
+     */
+    private Path resolve(String objectName) {
+        Path path = root.resolve(objectName).normalize();
+        int slash = objectName.indexOf('/');
+        Path owner = root.resolve(slash < 0 ? objectName : objectName.substring(0, slash)).normalize();
+
+        if (!owner.startsWith(root) || !path.startsWith(owner) || path.startsWith(root.resolve(SYSTEM_DIRECTORY))) {
+            throw new IllegalArgumentException("validation.error.path.invalid_path");
+        }
+
+        return path;
+    }
+
+    private Path resolveUpload(String uploadId) {
+        Path upload = uploadsDirectory.resolve(uploadId).normalize();
+
+        if (!upload.getParent().equals(uploadsDirectory) || !Files.isDirectory(upload)) {
+            throw new IllegalArgumentException("uploads.error.not_found");
+        }
+
+        return upload;
+    }
+
+    private Path createTemporaryFile() throws IOException {
+        return Files.createTempFile(temporaryDirectory, "object-", ".tmp");
+    }
+
+    /**
+     * Временный файл и хранилище на одной файловой системе, поэтому перенос атомарный и существующий объект заменяется целиком
+     */
+    private void publish(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String toObjectName(Path path, boolean directory) {
+        String objectName = root.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/");
+
+        return directory ? objectName + "/" : objectName;
+    }
+
+    private StorageObject toStorageObject(String objectName, Path path, BasicFileAttributes attributes, String contentType) {
+        Instant lastModified = attributes.lastModifiedTime().toInstant();
+
+        if (attributes.isDirectory()) {
+            return new StorageObject(objectName, 0, null, null, lastModified);
+        }
+
+        return new StorageObject(objectName, attributes.size(), contentType, etag(attributes), lastModified);
+    }
+
+    /**
+     * Как у nginx: время изменения и размер, без чтения содержимого
+     */
+    private String etag(BasicFileAttributes attributes) {
+        return Long.toHexString(attributes.lastModifiedTime().toMillis()) + "-" + Long.toHexString(attributes.size());
+    }
+
+    private static long transfer(FileChannel in, long position, long count, WritableByteChannel out) throws IOException {
+        long transferred = 0;
+
+        while (transferred < count) {
+            long written = in.transferTo(position + transferred, count - transferred, out);
+            if (written <= 0) break;
+            transferred += written;
+        }
+
+        return transferred;
+    }
+
+    /**
+     * Поток по диапазону файла. transferTo отдает данные через FileChannel.transferTo: в файл или сокет ядро копирует
+     * их напрямую (sendfile/copy_file_range), в остальные потоки - через буфер канала, без чтения в массивы приложения
+     */
+    private static class FileChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileChannelInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            if (position >= end) return -1;
+
+            int read = channel.read(ByteBuffer.wrap(buffer, offset, (int) Math.min(length, end - position)), position);
+            if (read > 0) position += read;
+
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            long transferred = transfer(channel, position, end - position, Channels.newChannel(out));
+            position += transferred;
+            return transferred;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,409 @@
+package com.cloudstorage.service.StorageBackend;
+
+import com.google.common.collect.ImmutableMultimap;
+import io.minio.*;
+import io.minio.errors.ErrorResponseException;
+import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import io.minio.messages.Item;
+import io.minio.messages.ListPartsResult;
+import io.minio.messages.Part;
+import lombok.RequiredArgsConstructor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Хранилище в бакете MinIO/S3. Копирование выполняется на стороне MinIO, данные не проходят через приложение
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "storage.backend", havingValue = "minio", matchIfMissing = true)
+public class MinioStorageBackend implements StorageBackend {
+
+    private static final int PART_URL_EXPIRY_SECONDS = 60 * 60;
+
+    private final MinioClient minioClient;
+    private final MinioAsyncClient minioAsyncClient;
+    private final OkHttpClient minioHttpClient;
+
+    @Value("${minio.bucket.name}")
+    private String bucketName;
+
+    @Value("${storage.upload.streaming.part-size:16MB}")
+    private DataSize streamingPartSize;
+
+    /**
+     * Объект неизвестного размера загружается multipart-ом частями по streamingPartSize:
+     * в памяти держится не больше одной части
+     */
+    @Override
+    public StorageObject put(String objectName, InputStream content, long size, String contentType) {
+        BoundedInputStream countingContent;
+
+        try {
+            countingContent = BoundedInputStream.builder()
+                    .setInputStream(content)
+                    .get();
+
+            PutObjectArgs.Builder args = PutObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .stream(countingContent, size, size < 0 ? streamingPartSize.toBytes() : -1);
+
+            if (contentType != null) {
+                args.contentType(contentType);
+            }
+
+            ObjectWriteResponse response = this.minioClient.putObject(args.build());
+
+            return new StorageObject(objectName, countingContent.getCount(), contentType, response.etag(), null);
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String objectName) {
+        try {
+            StatObjectResponse response = this.minioClient.statObject(StatObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build());
+
+            return Optional.of(new StorageObject(objectName,
+                    response.size(),
+                    response.contentType(),
+                    response.etag(),
+                    response.lastModified().toInstant()));
+        } catch (ErrorResponseException exception) {
+            return Optional.empty();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Диапазон передается в MinIO как Range-запрос, поэтому с диска читаются только нужные байты
+     */
+    @Override
+    public InputStream get(String objectName, long offset, Long length) throws NoSuchFileException {
+        try {
+            GetObjectArgs.Builder args = GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName);
+
+            if (offset > 0 || length != null) {
+                args.offset(offset).length(length);
+            }
+
+            return this.minioClient.getObject(args.build());
+        } catch (ErrorResponseException exception) {
+            throw new NoSuchFileException(objectName);
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public Iterable<StorageObject> list(String prefix, boolean recursive, String startAfter) {
+        ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .recursive(recursive);
+
+        if (startAfter != null) {
+            args.startAfter(startAfter);
+        }
+
+        Iterable<Result<Item>> results = this.minioClient.listObjects(args.build());
+
+        return () -> new Iterator<>() {
+            private final Iterator<Result<Item>> iterator = results.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public StorageObject next() {
+                return toStorageObject(iterator.next());
+            }
+        };
+    }
+
+    /**
+     * CopyObject в S3 ограничен 5 ГБ, объекты больше копируются через composeObject (multipart copy)
+     */
+    @Override
+    public void copy(String sourceObjectName, String targetObjectName, long size) {
+        try {
+            if (size > ObjectWriteArgs.MAX_PART_SIZE) {
+                String contentType = this.minioClient.statObject(StatObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(sourceObjectName)
+                        .build()).contentType();
+
+                this.minioClient.composeObject(
+                        ComposeObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(targetObjectName)
+                                .sources(List.of(ComposeSource.builder()
+                                        .bucket(bucketName)
+                                        .object(sourceObjectName)
+                                        .build()))
+                                .headers(contentType != null ? Map.of(HttpHeaders.CONTENT_TYPE, contentType) : Map.of())
+                                .build()
+                );
+            } else {
+                this.minioClient.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(targetObjectName)
+                                .source(CopySource.builder()
+                                        .bucket(bucketName)
+                                        .object(sourceObjectName)
+                                        .build())
+                                .build()
+                );
+            }
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void delete(String objectName) {
+        try {
+            this.minioClient.removeObject(RemoveObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .build()
+            );
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Один запрос multi-delete, S3 принимает не больше 1000 ключей за раз
+     */
+    @Override
+    public void delete(Collection<String> objectNames) {
+        if (objectNames.isEmpty()) return;
+
+        try {
+            for (Result<DeleteError> result : this.minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
+                            .bucket(bucketName)
+                            .objects(objectNames.stream().map(DeleteObject::new).toList())
+                            .build()
+            )) {
+                DeleteError error = result.get();
+                throw new IllegalStateException("Failed to remove " + error.objectName() + ": " + error.message());
+            }
+        } catch (IllegalStateException exception) {
+            throw exception;
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Низкоуровневые операции multipart-загрузки публичны только в асинхронном клиенте
+     */
+    @Override
+    public String createMultipartUpload(String objectName, String contentType) {
+        try {
+            return this.minioAsyncClient.createMultipartUploadAsync(bucketName, null, objectName,
+                    contentType != null ? ImmutableMultimap.of(HttpHeaders.CONTENT_TYPE, contentType) : null,
+                    null).get().result().uploadId();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+        try {
+            this.minioAsyncClient.uploadPartAsync(bucketName, null, objectName, data, data.length,
+                    uploadId, partNumber, null, null).get();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * SDK MinIO принимает часть только целиком в памяти, поэтому часть известного размера отправляется
+     * своим PUT по подписанной ссылке через общий HTTP-клиент: тело читается из content по мере отправки
+     */
+    @Override
+    public void uploadPart(String objectName, String uploadId, int partNumber, InputStream content, long length) {
+        try {
+            String url = this.minioClient.getPresignedObjectUrl(GetPresignedObjectUrlArgs.builder()
+                    .method(Method.PUT)
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .extraQueryParams(Map.of("uploadId", uploadId, "partNumber", Integer.toString(partNumber)))
+                    .expiry(PART_URL_EXPIRY_SECONDS)
+                    .build());
+
+            Request request = new Request.Builder()
+                    .url(url)
+                    .put(new PartRequestBody(content, length))
+                    .build();
+
+            try (Response response = this.minioHttpClient.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("Upload of part " + partNumber + " of " + objectName + " failed with status " + response.code());
+                }
+            }
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public boolean supportsPartCopy() {
+        return true;
+    }
+
+    @Override
+    public void uploadPartCopy(String objectName, String uploadId, int partNumber, String sourceObjectName, long offset, long length) {
+        try {
+            this.minioAsyncClient.uploadPartCopyAsync(bucketName, null, objectName, uploadId, partNumber,
+                    ImmutableMultimap.of(
+                            "x-amz-copy-source", S3Escaper.encodePath(bucketName + "/" + sourceObjectName),
+                            "x-amz-copy-source-range", "bytes=" + offset + "-" + (offset + length - 1)),
+                    null).get();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public List<StoragePart> listParts(String objectName, String uploadId) {
+        List<StoragePart> parts = new ArrayList<>();
+        Integer partNumberMarker = null;
+
+        try {
+            while (true) {
+                ListPartsResult result = this.minioAsyncClient.listPartsAsync(bucketName, null, objectName,
+                        1000, partNumberMarker, uploadId, null, null).get().result();
+                result.partList().forEach(part -> parts.add(new StoragePart(part.partNumber(), part.partSize(), part.etag())));
+
+                if (!result.isTruncated()) break;
+
+                partNumberMarker = result.nextPartNumberMarker();
+            }
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        return parts;
+    }
+
+    @Override
+    public StorageObject completeMultipartUpload(String objectName, String uploadId, List<StoragePart> parts) {
+        try {
+            ObjectWriteResponse response = this.minioAsyncClient.completeMultipartUploadAsync(bucketName, null, objectName, uploadId,
+                    parts.stream().map(part -> new Part(part.partNumber(), part.etag())).toArray(Part[]::new),
+                    null, null).get();
+
+            return new StorageObject(objectName, parts.stream().mapToLong(StoragePart::size).sum(), null, response.etag(), null);
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    @Override
+    public void abortMultipartUpload(String objectName, String uploadId) {
+        try {
+            this.minioAsyncClient.abortMultipartUploadAsync(bucketName, null, objectName,
+                    uploadId, null, null).get();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+    }
+
+    private StorageObject toStorageObject(Result<Item> result) {
+        Item item;
+
+        try {
+            item = result.get();
+        } catch (Exception exception) {
+            throw new RuntimeException(exception.getMessage(), exception);
+        }
+
+        if (item.isDir()) {
+            return new StorageObject(item.objectName(), 0, null, null, null);
+        }
+
+        return new StorageObject(item.objectName(),
+                item.size(),
+                null,
+                item.etag(),
+                item.lastModified() != null ? item.lastModified().toInstant() : null);
+    }
+
+    /**
+     * Одноразовое тело: OkHttp не повторяет запрос, поток content повторно не прочитать
+     */
+    private static class PartRequestBody extends RequestBody {
+
+        private final InputStream content;
+        private final long length;
+
+        private PartRequestBody(InputStream content, long length) {
+            this.content = content;
+            this.length = length;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public long contentLength() {
+            return length;
+        }
+
+        @Override
+        public boolean isOneShot() {
+            return true;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            long written = IOUtils.copyLarge(content, sink.outputStream(), 0, length);
+
+            if (written != length) {
+                throw new EOFException("Expected " + length + " bytes, got " + written);
+            }
+        }
+    }
+}
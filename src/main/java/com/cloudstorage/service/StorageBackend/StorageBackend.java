@@ -0,0 +1,106 @@
+package com.cloudstorage.service.StorageBackend;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Хранилище объектов, через которое сервисы работают с содержимым файлов. Ключи - пути вида user-1-files/a/b.txt,
+ * ключ с завершающим / - маркер папки. Реализация выбирается свойством storage.backend:
+ * minio (по умолчанию) - бакет MinIO/S3, local - каталог на диске приложения для установки на одном сервере.
+ * Ошибки хранилища пробрасываются как RuntimeException
+ */
+public interface StorageBackend {
+
+    /**
+     * size = -1, если размер заранее неизвестен. Возвращает записанный объект с фактическим размером
+     */
+    StorageObject put(String objectName, InputStream content, long size, String contentType);
+
+    Optional<StorageObject> stat(String objectName);
+
+    default InputStream get(String objectName) throws NoSuchFileException {
+        return get(objectName, 0, null);
+    }
+
+    /**
+     * Чтение диапазона объекта, length = null - до конца объекта
+     */
+    InputStream get(String objectName, long offset, Long length) throws NoSuchFileException;
+
+    /**
+     * Объекты, ключ которых начинается с prefix, в лексикографическом порядке ключей, начиная после startAfter
+     * (null - с начала). Без recursive возвращаются только непосредственные потомки, вложенные папки - ключами с завершающим /
+     */
+    Iterable<StorageObject> list(String prefix, boolean recursive, String startAfter);
+
+    void copy(String sourceObjectName, String targetObjectName, long size);
+
+    default void move(String sourceObjectName, String targetObjectName, long size) {
+        copy(sourceObjectName, targetObjectName, size);
+        delete(sourceObjectName);
+    }
+
+    /**
+     * Отсутствие объекта ошибкой не считается
+     */
+    void delete(String objectName);
+
+    /**
+     * Удаление пачкой, при ошибке исключение содержит первый неудаленный ключ
+     */
+    void delete(Collection<String> objectNames);
+
+    /**
+     * Перенос всех объектов папки одной операцией. false - хранилище так не умеет, объекты переносятся по одному
+     */
+    default boolean movePrefix(String sourcePrefix, String targetPrefix) {
+        return false;
+    }
+
+    /**
+     * Удаление всех объектов папки одной операцией. false - хранилище так не умеет, объекты удаляются по листингу
+     */
+    default boolean deletePrefix(String prefix) {
+        return false;
+    }
+
+    String createMultipartUpload(String objectName, String contentType);
+
+    /**
+     * Повторная загрузка части с тем же номером перезаписывает ее
+     */
+    default void uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+        uploadPart(objectName, uploadId, partNumber, new ByteArrayInputStream(data), data.length);
+    }
+
+    /**
+     * Часть известного размера передается в хранилище потоком, не собираясь в памяти. Из content читается ровно length байт.
+     * Если content закончился раньше, часть не сохраняется, а причина исключения - EOFException
+     */
+    void uploadPart(String objectName, String uploadId, int partNumber, InputStream content, long length);
+
+    /**
+     * true - часть multipart-загрузки можно скопировать из диапазона другого объекта на стороне хранилища (uploadPartCopy)
+     */
+    default boolean supportsPartCopy() {
+        return false;
+    }
+
+    /**
+     * Часть копируется из диапазона [offset, offset + length) объекта sourceObjectName на стороне хранилища (UploadPartCopy),
+     * байты через приложение не проходят. Ограничения S3: часть, кроме последней, не меньше 5 МБ и не больше 5 ГБ
+     */
+    default void uploadPartCopy(String objectName, String uploadId, int partNumber, String sourceObjectName, long offset, long length) {
+        throw new IllegalStateException("Storage backend does not support part copy");
+    }
+
+    List<StoragePart> listParts(String objectName, String uploadId);
+
+    StorageObject completeMultipartUpload(String objectName, String uploadId, List<StoragePart> parts);
+
+    void abortMultipartUpload(String objectName, String uploadId);
+}
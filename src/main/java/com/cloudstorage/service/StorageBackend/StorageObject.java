@@ -0,0 +1,19 @@
+package com.cloudstorage.service.StorageBackend;
+
+import java.time.Instant;
+
+/**
+ * Объект хранилища. Ключ с завершающим / - маркер папки, contentType в листинге не заполняется
+ */
+public record StorageObject(
+        String objectName,
+        long size,
+        String contentType,
+        String etag,
+        Instant lastModified
+) {
+
+    public boolean isDirectory() {
+        return objectName.endsWith("/");
+    }
+}
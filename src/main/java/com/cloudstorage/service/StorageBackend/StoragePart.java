@@ -0,0 +1,10 @@
+package com.cloudstorage.service.StorageBackend;
+
+/**
+ * Загруженная часть multipart-загрузки, номера частей начинаются с 1
+ */
+public record StoragePart(
+        int partNumber,
+        long size,
+        String etag
+) {}
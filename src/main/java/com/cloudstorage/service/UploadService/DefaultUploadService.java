@@ -0,0 +1,208 @@
+package com.cloudstorage.service.UploadService;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.UploadSessionPayload;
+import com.cloudstorage.entity.UploadSession;
+import com.cloudstorage.repository.UploadSessionRepository;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.FileService.FileService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import com.cloudstorage.service.StorageBackend.StoragePart;
+import com.cloudstorage.utils.ResourcePathParseUtils;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Докачиваемая загрузка поверх multipart upload хранилища: каждый кусок потоком отправляется как отдельная часть,
+ * на диск приложения ничего не пишется и в памяти кусок целиком не держится. Сессии хранятся в Postgres, брошенные сессии периодически удаляются
+ * вместе с незавершенными multipart-загрузками. Место под файл проверяется при создании сессии по заявленному размеру,
+ * вместе с размерами других незавершенных загрузок пользователя
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DefaultUploadService implements UploadService {
+
+    private static final int MAX_PARTS = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    private final StorageBackend storageBackend;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final FileService fileService;
+    private final AuthService authService;
+    private final MetadataService metadataService;
+    private final QuotaService quotaService;
+
+    @Value("${storage.upload.chunk-size:16MB}")
+    private DataSize chunkSize;
+
+    @Value("${storage.upload.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${storage.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    @Override
+    public UploadSessionPayload createUpload(String path, String name, long size, String contentType) throws FileAlreadyExistsException {
+        if (name.isBlank() || name.contains("/")) {
+            throw new IllegalArgumentException("uploads.error.invalid_name");
+        }
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("validation.error.files.blank_file");
+        }
+
+        // Части меньше 5 МБ S3 не принимает (кроме последней), больше 10000 частей в одной загрузке быть не может
+        long sessionChunkSize = Math.max(Math.max(chunkSize.toBytes(), MIN_PART_SIZE),
+                (size + MAX_PARTS - 1) / MAX_PARTS);
+
+        if (sessionChunkSize > maxChunkSize.toBytes()) {
+            throw new IllegalArgumentException("uploads.error.too_large_file");
+        }
+
+        String objectName = getUserPrefix() + ResourcePathParseUtils.requireRelativePath(path + name);
+
+        if (this.fileService.isFileExists(objectName)) {
+            throw new FileAlreadyExistsException(name, path, "minio.file.error.already_exists");
+        }
+
+        if (this.uploadSessionRepository.existsByObjectName(objectName)) {
+            throw new FileAlreadyExistsException(name, path, "uploads.error.already_in_progress");
+        }
+
+        int userId = this.authService.getUserIdFromSession();
+        this.quotaService.checkQuota(userId, size + this.uploadSessionRepository.sumSizeByUserId(userId));
+
+        String uploadId = this.storageBackend.createMultipartUpload(objectName, contentType);
+
+        Instant now = Instant.now();
+        UploadSession session = new UploadSession(UUID.randomUUID(), userId,
+                objectName, uploadId, size, sessionChunkSize, contentType, now, now);
+
+        return createPayload(this.uploadSessionRepository.save(session), List.of());
+    }
+
+    @Override
+    public UploadSessionPayload uploadChunk(UUID id, long offset, InputStream content, long length) throws NoSuchFileException {
+        UploadSession session = getUserSession(id);
+
+        if (offset < 0 || offset >= session.getSize() || offset % session.getChunkSize() != 0
+                || length != Math.min(session.getChunkSize(), session.getSize() - offset)) {
+            throw new IllegalArgumentException("uploads.error.invalid_chunk");
+        }
+
+        // Повторная отправка того же куска перезаписывает часть, поэтому клиент может безопасно повторять запрос
+        try {
+            this.storageBackend.uploadPart(session.getObjectName(), session.getUploadId(),
+                    (int) (offset / session.getChunkSize()) + 1, content, length);
+        } catch (RuntimeException exception) {
+            if (exception.getCause() instanceof EOFException) {
+                throw new IllegalArgumentException("uploads.error.invalid_chunk");
+            }
+
+            throw exception;
+        }
+
+        session.setUpdatedAt(Instant.now());
+
+        return createPayload(this.uploadSessionRepository.save(session), listParts(session));
+    }
+
+    @Override
+    public UploadSessionPayload getUpload(UUID id) throws NoSuchFileException {
+        UploadSession session = getUserSession(id);
+
+        return createPayload(session, listParts(session));
+    }
+
+    @Override
+    public FilePayload completeUpload(UUID id) throws NoSuchFileException, FileAlreadyExistsException {
+        UploadSession session = getUserSession(id);
+        List<StoragePart> parts = listParts(session);
+
+        long expectedParts = (session.getSize() + session.getChunkSize() - 1) / session.getChunkSize();
+        long uploadedBytes = parts.stream().mapToLong(StoragePart::size).sum();
+
+        if (parts.size() != expectedParts || uploadedBytes != session.getSize()) {
+            throw new IllegalArgumentException("uploads.error.incomplete");
+        }
+
+        String path = ResourcePathParseUtils.getPathWithoutUserPrefix(session.getObjectName());
+        String name = ResourcePathParseUtils.getFileName(session.getObjectName());
+
+        if (this.fileService.isFileExists(session.getObjectName())) {
+            throw new FileAlreadyExistsException(name, path, "minio.file.error.already_exists");
+        }
+
+        StorageObject storedObject = this.storageBackend.completeMultipartUpload(session.getObjectName(), session.getUploadId(), parts);
+
+        this.metadataService.saveFile(session.getObjectName(), session.getSize(), session.getContentType(), storedObject.etag());
+        this.uploadSessionRepository.delete(session);
+
+        return new FilePayload(path, name, session.getSize(), "FILE");
+    }
+
+    @Override
+    public void abortUpload(UUID id) throws NoSuchFileException {
+        UploadSession session = getUserSession(id);
+
+        abortMultipartUpload(session);
+        this.uploadSessionRepository.delete(session);
+    }
+
+    @Scheduled(fixedDelayString = "${storage.upload.gc-interval:1h}", initialDelayString = "${storage.upload.gc-interval:1h}")
+    public void removeAbandonedUploads() {
+        for (UploadSession session : this.uploadSessionRepository.findAllByUpdatedAtBefore(Instant.now().minus(sessionTtl))) {
+            try {
+                abortMultipartUpload(session);
+                this.uploadSessionRepository.delete(session);
+                log.info("Removed abandoned upload {} of {}", session.getId(), session.getObjectName());
+            } catch (Exception exception) {
+                log.warn("Failed to remove abandoned upload {} of {}", session.getId(), session.getObjectName(), exception);
+            }
+        }
+    }
+
+    private UploadSession getUserSession(UUID id) throws NoSuchFileException {
+        return this.uploadSessionRepository.findByIdAndUserId(id, this.authService.getUserIdFromSession())
+                .orElseThrow(() -> new NoSuchFileException("uploads.error.not_found"));
+    }
+
+    private List<StoragePart> listParts(UploadSession session) {
+        return this.storageBackend.listParts(session.getObjectName(), session.getUploadId());
+    }
+
+    private void abortMultipartUpload(UploadSession session) {
+        this.storageBackend.abortMultipartUpload(session.getObjectName(), session.getUploadId());
+    }
+
+    private UploadSessionPayload createPayload(UploadSession session, List<StoragePart> parts) {
+        return new UploadSessionPayload(session.getId().toString(),
+                ResourcePathParseUtils.getPathWithoutUserPrefix(session.getObjectName()),
+                ResourcePathParseUtils.getFileName(session.getObjectName()),
+                session.getSize(),
+                session.getChunkSize(),
+                parts.stream().mapToLong(StoragePart::size).sum(),
+                parts.stream().map(part -> (part.partNumber() - 1) * session.getChunkSize()).sorted().toList());
+    }
+
+    private String getUserPrefix() {
+        return "user-%d-files/".formatted(this.authService.getUserIdFromSession());
+    }
+}
@@ -0,0 +1,21 @@
+package com.cloudstorage.service.UploadService;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.UploadSessionPayload;
+
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
+import java.util.UUID;
+
+public interface UploadService {
+    UploadSessionPayload createUpload(String path, String name, long size, String contentType) throws FileAlreadyExistsException;
+
+    UploadSessionPayload uploadChunk(UUID id, long offset, InputStream content, long length) throws NoSuchFileException;
+
+    UploadSessionPayload getUpload(UUID id) throws NoSuchFileException;
+
+    FilePayload completeUpload(UUID id) throws NoSuchFileException, FileAlreadyExistsException;
+
+    void abortUpload(UUID id) throws NoSuchFileException;
+}
@@ -1,48 +1,136 @@
 package com.cloudstorage.utils;
 
-import java.util.Arrays;
-import java.util.stream.Collectors;
-
+/**
+ * Разбор путей объектов поиском индексов / без split и stream: результат - одна подстрока исходного пути.
+ * Завершающие / не учитываются, как и у split("/"), которым методы разбирали путь раньше
+ */
 public class ResourcePathParseUtils {
 
     public static String getFileName(String fullFilePath) {
-        if(fullFilePath.endsWith("/")) return "";
-        if(!fullFilePath.contains("/")) return fullFilePath;
-
-        String[] parts = fullFilePath.split("/");
+        if (fullFilePath.endsWith("/")) return "";
 
-        return parts[parts.length - 1];
+        return fullFilePath.substring(fullFilePath.lastIndexOf('/') + 1);
     }
 
+    /**
+     * "a/b/c.txt" -> "a/b/", "c.txt" -> "/"
+     */
     public static String getFilePath(String fullFilePath) {
-        String[] parts = fullFilePath.split("/");
-
-        if(parts.length == 1) return "/";
+        int end = trimmedLength(fullFilePath);
+        int slash = fullFilePath.lastIndexOf('/', end - 1);
 
-        return Arrays.stream(parts)
-                .limit(parts.length - 1)
-                .collect(Collectors.joining("/")) + "/";
+        return slash < 0 ? "/" : fullFilePath.substring(0, slash + 1);
     }
 
+    /**
+     * Родительская директория без первого сегмента (префикса пользователя):
+     * "user-1-files/a/b/c.txt" -> "a/b/", "user-1-files/a/b/" -> "a/", "user-1-files/c.txt" -> "/"
+     */
     public static String getPathWithoutUserPrefix(String fullFilePath) {
-        String[] parts = fullFilePath.split("/");
+        int end = trimmedLength(fullFilePath);
+        int first = fullFilePath.indexOf('/');
 
-        if(parts.length <= 1) return "/";
+        if (first < 0 || first >= end) return "/";
 
-        return Arrays.stream(parts)
-                .skip(1)
-                .limit(parts.length - 2)
-                .collect(Collectors.joining("/", "", "/"));
+        int last = fullFilePath.lastIndexOf('/', end - 1);
+
+        return first == last ? "/" : fullFilePath.substring(first + 1, last + 1);
     }
 
     public static String getDirectoryPathWithoutUserPrefix(String fullDirectoryPath) {
-        String[] parts = fullDirectoryPath.split("/");
+        return getPathWithoutUserPrefix(fullDirectoryPath);
+    }
+
+    /**
+     * Последний непустой сегмент пути: "a/b/" -> "b", "a/b.txt" -> "b.txt", "/" -> "/"
+     */
+    public static String getDirectoryName(String fullDirectoryPath) {
+        if (fullDirectoryPath.equals("/")) return "/";
+
+        int end = trimmedLength(fullDirectoryPath);
+
+        return fullDirectoryPath.substring(fullDirectoryPath.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * true, если путь без завершающих / состоит из одного сегмента: "a/", "a"
+     */
+    public static boolean isTopLevel(String path) {
+        int end = trimmedLength(path);
+
+        return path.lastIndexOf('/', end - 1) < 0;
+    }
+
+    /**
+     * Родительская директория пути от корня пользователя: "a/b/c.txt" -> "a/b/", "a/b/" -> "a/", "a/" -> ""
+     */
+    public static String getParentPath(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+        int slash = path.lastIndexOf('/', end - 1);
+
+        return slash < 0 ? "" : path.substring(0, slash + 1);
+    }
+
+    /**
+     * Последний сегмент пути без завершающего /: "a/b/c.txt" -> "c.txt", "a/b/" -> "b"
+     */
+    public static String getResourceName(String path) {
+        int end = path.endsWith("/") ? path.length() - 1 : path.length();
+
+        return path.substring(path.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * Путь от корня пользователя, который приписывается к префиксу user-N-files/. Ведущие разделители отбрасываются:
+     * "/a/b.txt" - тот же путь, что и "a/b.txt". Сегменты . и .. (в том числе разделенные обратным слешем) отклоняются:
+     * иначе ключ объекта указывал бы в директорию другого пользователя
+     */
+    public static String requireRelativePath(String path) {
+        int first = 0;
+
+        while (first < path.length() && (path.charAt(first) == '/' || path.charAt(first) == '\\')) {
+            first++;
+        }
+
+        path = path.substring(first);
+        int start = 0;
+
+        while (start <= path.length()) {
+            int end = nextSeparator(path, start);
+
+            if (isDotSegment(path, start, end)) {
+                throw new IllegalArgumentException("validation.error.path.invalid_path");
+            }
+
+            start = end + 1;
+        }
+
+        return path;
+    }
+
+    private static int nextSeparator(String path, int from) {
+        for (int i = from; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' || c == '\\') return i;
+        }
+
+        return path.length();
+    }
+
+    private static boolean isDotSegment(String path, int start, int end) {
+        int length = end - start;
+
+        return (length == 1 || length == 2) && path.charAt(start) == '.' && path.charAt(end - 1) == '.';
+    }
+
+    /**
+     * Длина пути без завершающих /
+     */
+    private static int trimmedLength(String path) {
+        int end = path.length();
 
-        if(parts.length <= 2) return "/";
+        while (end > 0 && path.charAt(end - 1) == '/') end--;
 
-        return Arrays.stream(parts)
-                .skip(1)
-                .limit(parts.length - 2)
-                .collect(Collectors.joining("/", "", "/"));
+        return end;
     }
 }
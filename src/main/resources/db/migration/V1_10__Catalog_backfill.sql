@@ -0,0 +1,7 @@
+-- Отметки заполнения каталога по содержимому хранилища: c_scope = 'catalog' - заполнение завершено целиком,
+-- 'user-N-files/' - заполнен каталог пользователя. Пока общей отметки нет, заполнение продолжается при старте
+create table if not exists storage.t_catalog_backfill
+(
+    c_scope varchar(64) primary key,
+    c_completed_at timestamp not null
+);
@@ -0,0 +1,2 @@
+-- Тип содержимого, заявленный при создании докачиваемой загрузки, попадает в каталог при ее завершении
+alter table storage.t_upload_session add column if not exists c_content_type varchar;
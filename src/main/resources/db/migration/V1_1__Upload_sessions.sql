@@ -0,0 +1,15 @@
+create schema if not exists storage;
+
+create table if not exists storage.t_upload_session
+(
+    id uuid primary key,
+    c_user_id int not null references user_management.t_user (id) on delete cascade,
+    c_object_name varchar not null unique,
+    c_upload_id varchar not null,
+    c_size bigint not null check ( c_size > 0 ),
+    c_chunk_size bigint not null check ( c_chunk_size > 0 ),
+    c_created_at timestamp not null,
+    c_updated_at timestamp not null
+);
+
+create index if not exists idx_upload_session_updated_at on storage.t_upload_session (c_updated_at);
@@ -0,0 +1,17 @@
+create table if not exists storage.t_resource
+(
+    id bigserial primary key,
+    c_user_id int not null,
+    c_path varchar not null,
+    c_parent varchar not null,
+    c_name varchar not null,
+    c_type varchar(9) not null check ( c_type in ('FILE', 'DIRECTORY') ),
+    c_size bigint not null default 0,
+    c_content_type varchar,
+    c_etag varchar,
+    c_created_at timestamp not null,
+    c_updated_at timestamp not null,
+    unique (c_user_id, c_path)
+);
+
+create index if not exists idx_resource_user_parent on storage.t_resource (c_user_id, c_parent);
@@ -0,0 +1,4 @@
+-- Постраничный листинг директории сортируется по имени с путем в качестве уникального ключа
+drop index if exists storage.idx_resource_user_parent;
+
+create index if not exists idx_resource_user_parent_name on storage.t_resource (c_user_id, c_parent, c_name, c_path);
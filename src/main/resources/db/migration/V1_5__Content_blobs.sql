@@ -0,0 +1,14 @@
+-- Содержимое файлов хранится один раз под своим SHA-256, файлы каталога ссылаются на него по c_blob_digest.
+-- Файлы без c_blob_digest лежат в хранилище по своему пути, как до появления блобов
+create table if not exists storage.t_blob
+(
+    c_digest varchar(64) primary key,
+    c_size bigint not null,
+    c_ref_count int not null check ( c_ref_count >= 0 ),
+    c_created_at timestamp not null,
+    c_updated_at timestamp not null
+);
+
+alter table storage.t_resource add column if not exists c_blob_digest varchar(64);
+
+create index if not exists idx_resource_blob_digest on storage.t_resource (c_blob_digest);
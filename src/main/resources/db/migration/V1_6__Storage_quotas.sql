@@ -0,0 +1,5 @@
+-- Занятое пользователем место - сумма логических размеров его файлов в каталоге, одинаковое содержимое считается
+-- у каждого файла. Счетчик меняется вместе с каталогом и периодически пересчитывается по нему.
+-- c_quota_bytes null - квота по умолчанию storage.quota.default
+alter table user_management.t_user add column if not exists c_used_bytes bigint default 0 not null;
+alter table user_management.t_user add column if not exists c_quota_bytes bigint;
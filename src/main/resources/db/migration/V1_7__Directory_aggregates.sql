@@ -0,0 +1,10 @@
+-- У директорий c_size - суммарный размер файлов всего поддерева, c_file_count - число этих файлов.
+-- Агрегаты меняются вместе с файлами у всех предков, здесь они один раз считаются по существующему каталогу
+alter table storage.t_resource add column if not exists c_file_count bigint default 0 not null;
+
+update storage.t_resource d
+set c_size = (select coalesce(sum(f.c_size), 0) from storage.t_resource f
+              where f.c_user_id = d.c_user_id and f.c_type = 'FILE' and left(f.c_path, length(d.c_path)) = d.c_path),
+    c_file_count = (select count(*) from storage.t_resource f
+                    where f.c_user_id = d.c_user_id and f.c_type = 'FILE' and left(f.c_path, length(d.c_path)) = d.c_path)
+where d.c_type = 'DIRECTORY';
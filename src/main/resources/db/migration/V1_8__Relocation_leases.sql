@@ -0,0 +1,8 @@
+-- Аренда переносов папок: чекпоинт переноса в хранилище продолжает только экземпляр приложения,
+-- который держит аренду. Аренду, которую владелец перестал продлевать, забирает другой экземпляр
+create table if not exists storage.t_relocation_lease
+(
+    c_id varchar(36) primary key,
+    c_owner varchar(36) not null,
+    c_leased_until timestamp not null
+);
@@ -0,0 +1,5 @@
+-- Блоб потоковой загрузки остается во временном объекте, куда он был записан: ключ хранится в c_object_name.
+-- Пустой c_object_name - блоб лежит под ключом из своего дайджеста
+alter table storage.t_blob add column if not exists c_object_name varchar(1024);
+
+create index if not exists idx_blob_object_name on storage.t_blob (c_object_name);
@@ -0,0 +1,194 @@
+package com.cloudstorage.benchmark;
+
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.DirectoryService.DirectoryService;
+import com.cloudstorage.service.FileService.FileService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.UserService.UserService;
+import io.minio.*;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.wait.strategy.HttpWaitStrategy;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.InputStream;
+import java.time.Duration;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Сравнение времени переименования файла: старый путь (getObject -> removeObject -> putObject через приложение),
+ * файл по своему пути (copyObject на стороне MinIO + removeObject и перенос записи каталога)
+ * и файл в блобе (меняется только каталог). Файлы заводятся в каталоге, иначе renameFile их не находит.
+ * Запуск: mvn test -Pbenchmark
+ */
+@Testcontainers
+@SpringBootTest
+class RenameFileBenchmark {
+
+    private static final String ADMIN_ACCESS_KEY = "admin";
+    private static final String ADMIN_SECRET_KEY = "12345678";
+    private static final String TEST_BUCKET_NAME = "user-files";
+    private static final String USER_PREFIX = "user-123-files/";
+    private static final long[] SIZES = {1L << 20, 100L << 20, 1L << 30};
+    private static final int ITERATIONS = 3;
+
+    private static GenericContainer<?> minioServer;
+
+    private static MinioClient client;
+
+    @MockitoBean
+    private UserService userService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private MetadataService metadataService;
+
+    @Autowired
+    private BlobService blobService;
+
+    @MockitoBean
+    private DirectoryService directoryService;
+
+    @MockitoBean
+    private AuthService authService;
+
+    @DynamicPropertySource
+    public static void configureProperties(DynamicPropertyRegistry registry) {
+        registry.add("minio.accessKey", () -> ADMIN_ACCESS_KEY);
+        registry.add("minio.secretKey", () -> ADMIN_SECRET_KEY);
+        registry.add("minio.bucket.name", () -> TEST_BUCKET_NAME);
+
+        int port = 9000;
+        minioServer = new GenericContainer<>("minio/minio:latest")
+                .withEnv("MINIO_ACCESS_KEY", ADMIN_ACCESS_KEY)
+                .withEnv("MINIO_SECRET_KEY", ADMIN_SECRET_KEY)
+                .withCommand("server /data")
+                .withExposedPorts(port)
+                .waitingFor(new HttpWaitStrategy()
+                        .forPath("/minio/health/ready")
+                        .forPort(port)
+                        .withStartupTimeout(Duration.ofSeconds(30)));
+
+        minioServer.start();
+
+        String minioEndpoint = String.format("http://%s:%s", minioServer.getHost(), minioServer.getFirstMappedPort());
+        registry.add("minio.endpoint", () -> minioEndpoint);
+
+        client = MinioClient.builder()
+                .endpoint(minioEndpoint)
+                .credentials(ADMIN_ACCESS_KEY, ADMIN_SECRET_KEY)
+                .build();
+    }
+
+    @Test
+    void compareRenameLatency() throws Exception {
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        System.out.printf("%-12s %18s %18s %18s%n", "size", "old path, ms", "server copy, ms", "blob, ms");
+
+        for (long size : SIZES) {
+            long oldTotal = 0;
+            long newTotal = 0;
+            long blobTotal = 0;
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                String oldPathSource = "bench/old-%d-%d.bin".formatted(size, i);
+                upload(USER_PREFIX + oldPathSource, size);
+                long start = System.nanoTime();
+                legacyRename(USER_PREFIX + oldPathSource, USER_PREFIX + oldPathSource + ".renamed");
+                oldTotal += System.nanoTime() - start;
+
+                String newPathSource = "bench/new-%d-%d.bin".formatted(size, i);
+                upload(USER_PREFIX + newPathSource, size);
+                metadataService.saveFile(USER_PREFIX + newPathSource, size, "application/octet-stream", "etag-" + i);
+                start = System.nanoTime();
+                fileService.renameFile(newPathSource, newPathSource + ".renamed");
+                newTotal += System.nanoTime() - start;
+
+                String blobSource = "bench/blob-%d-%d.bin".formatted(size, i);
+                StoredBlob blob = blobService.store(new PatternInputStream(size), "application/octet-stream");
+                metadataService.saveFile(USER_PREFIX + blobSource, blob.size(), "application/octet-stream", blob.digest(), blob.digest());
+                start = System.nanoTime();
+                fileService.renameFile(blobSource, blobSource + ".renamed");
+                blobTotal += System.nanoTime() - start;
+            }
+
+            System.out.printf("%-12s %18d %18d %18d%n",
+                    (size >> 20) + " MB",
+                    Duration.ofNanos(oldTotal / ITERATIONS).toMillis(),
+                    Duration.ofNanos(newTotal / ITERATIONS).toMillis(),
+                    Duration.ofNanos(blobTotal / ITERATIONS).toMillis());
+        }
+    }
+
+    /**
+     * Реализация renameFile до перехода на серверное копирование
+     */
+    private void legacyRename(String from, String to) throws Exception {
+        StatObjectResponse info = client.statObject(StatObjectArgs.builder().bucket(TEST_BUCKET_NAME).object(from).build());
+
+        try (InputStream data = client.getObject(GetObjectArgs.builder().bucket(TEST_BUCKET_NAME).object(from).build())) {
+            client.removeObject(RemoveObjectArgs.builder().bucket(TEST_BUCKET_NAME).object(from).build());
+            client.putObject(PutObjectArgs.builder()
+                    .bucket(TEST_BUCKET_NAME)
+                    .object(to)
+                    .stream(data, info.size(), -1)
+                    .build());
+        }
+    }
+
+    private void upload(String objectName, long size) throws Exception {
+        client.putObject(PutObjectArgs.builder()
+                .bucket(TEST_BUCKET_NAME)
+                .object(objectName)
+                .stream(new PatternInputStream(size), size, -1)
+                .build());
+    }
+
+    @AfterAll
+    static void shutDown() {
+        if (minioServer.isRunning()) {
+            minioServer.stop();
+        }
+    }
+
+    /**
+     * Поток заданной длины, генерирующий данные на лету, чтобы не держать гигабайт в памяти
+     */
+    private static class PatternInputStream extends InputStream {
+        private long remaining;
+
+        PatternInputStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) return -1;
+            remaining--;
+            return (int) (remaining & 0x7F);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) return -1;
+            int count = (int) Math.min(len, remaining);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte) ((remaining - i) & 0x7F);
+            }
+            remaining -= count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.cloudstorage.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedThreadPerTaskExecutorTest {
+
+    @Test
+    void testExecute_limitsConcurrentTasks() throws Exception {
+        // Given
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(Executors.defaultThreadFactory(), 3);
+        Thread caller = Thread.currentThread();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AtomicInteger runByCaller = new AtomicInteger();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            tasks.add(CompletableFuture.runAsync(() -> {
+                if (Thread.currentThread() == caller) {
+                    runByCaller.incrementAndGet();
+                    sleep(10);
+                    return;
+                }
+
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+            }, executor));
+        }
+        CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+
+        // Then
+        assertTrue(maxRunning.get() <= 3);
+        assertTrue(runByCaller.get() > 0);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    void testExecute_nestedTasksDoNotDeadlockWhenSaturated() throws Exception {
+        // Given
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(Executors.defaultThreadFactory(), 1);
+
+        // When
+        CompletableFuture<Integer> outer = CompletableFuture.supplyAsync(
+                () -> CompletableFuture.supplyAsync(() -> 42, executor).join(), executor);
+
+        // Then
+        assertEquals(42, outer.get(1, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testShutdown_rejectsNewTasksAndWaitsForRunning() throws Exception {
+        // Given
+        BoundedThreadPerTaskExecutor executor = new BoundedThreadPerTaskExecutor(Executors.defaultThreadFactory(), 2);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // When
+        executor.shutdown();
+
+        // Then
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+        assertFalse(executor.awaitTermination(50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.cloudstorage.config.filter;
+
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadQuotaFilterTest {
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private HandlerExceptionResolver handlerExceptionResolver;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private UploadQuotaFilter uploadQuotaFilter;
+
+    @BeforeEach
+    void setUp() {
+        uploadQuotaFilter = new UploadQuotaFilter(authService, quotaService, handlerExceptionResolver);
+    }
+
+    @Test
+    void testDoFilter_bodyLargerThanQuotaIsRejectedBeforeParsing() throws Exception {
+        // Given
+        MockHttpServletRequest request = upload(2048);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authService.getUserIdFromSession()).thenReturn(1);
+        when(quotaService.getAvailableBytes(1)).thenReturn(1024L);
+
+        // When
+        uploadQuotaFilter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(handlerExceptionResolver).resolveException(eq(request), eq(response), isNull(), any(QuotaExceededException.class));
+        verifyNoInteractions(filterChain);
+    }
+
+    @Test
+    void testDoFilter_bodyWithinQuotaIsPassed() throws Exception {
+        // Given
+        MockHttpServletRequest request = upload(512);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        when(authService.getUserIdFromSession()).thenReturn(1);
+        when(quotaService.getAvailableBytes(1)).thenReturn(1024L);
+
+        // When
+        uploadQuotaFilter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(handlerExceptionResolver);
+    }
+
+    @Test
+    void testDoFilter_otherRequestsAreNotChecked() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource/stream");
+        request.setContent(new byte[2048]);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        uploadQuotaFilter.doFilter(request, response, filterChain);
+
+        // Then
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(quotaService);
+    }
+
+    private MockHttpServletRequest upload(int contentLength) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource");
+        request.setContent(new byte[contentLength]);
+        return request;
+    }
+}
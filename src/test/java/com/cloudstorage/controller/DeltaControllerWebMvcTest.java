@@ -0,0 +1,89 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.config.SecurityConfig;
+import com.cloudstorage.controller.payload.BlockSignaturePayload;
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.service.DeltaService.DeltaService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.InputStream;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = DeltaController.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = SecurityConfig.class))
+class DeltaControllerWebMvcTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SecurityFilterChain securityFilterChain;
+
+    @MockitoBean
+    private DeltaService deltaService;
+
+    @Test
+    void testGetSignature_returnsBlocks() throws Exception {
+        // When
+        when(deltaService.getSignature(eq("folder/disk.img")))
+                .thenReturn(new BlockSignaturePayload("folder/", "disk.img", 5L, "etag", 1048576L,
+                        List.of(new BlockSignaturePayload.Block(4294967295L, "5891b5b5"))));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/signature")
+                        .param("path", "folder/disk.img"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.etag").value("etag"))
+                .andExpect(jsonPath("$.blocks[0].weak").value(4294967295L));
+    }
+
+    @Test
+    void testApplyDelta_passesBaseAndBody() throws Exception {
+        // Given
+        byte[] delta = {0};
+
+        // When
+        when(deltaService.applyDelta(eq("folder/disk.img"), eq("etag"), any(InputStream.class)))
+                .thenReturn(new FilePayload("folder/", "disk.img", 5L, "FILE"));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/resource/delta")
+                        .param("path", "folder/disk.img")
+                        .param("base", "etag")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(delta))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(5));
+    }
+
+    @Test
+    void testApplyDelta_changedBase_returnsConflict() throws Exception {
+        // When
+        when(deltaService.applyDelta(eq("folder/disk.img"), eq("outdated"), any(InputStream.class)))
+                .thenThrow(new UnsupportedOperationException("deltas.error.base_changed"));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/resource/delta")
+                        .param("path", "folder/disk.img")
+                        .param("base", "outdated")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(new byte[] {0}))
+                .andExpect(status().isConflict());
+    }
+}
@@ -0,0 +1,135 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.config.SecurityConfig;
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.service.DirectoryService.DirectoryContentPage;
+import com.cloudstorage.service.DirectoryService.DirectoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = DirectoryController.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = SecurityConfig.class))
+class DirectoryControllerWebMvcTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SecurityFilterChain securityFilterChain;
+
+    @MockitoBean
+    private DirectoryService directoryService;
+
+    @Test
+    void testGetDirectoryContent_returnsPageWithNextCursor() throws Exception {
+        // Given
+        String path = "folder/";
+
+        // When
+        when(directoryService.getDirectoryContent(path, "abc", 2, "size", "desc")).thenReturn(
+                new DirectoryContentPage(List.of(
+                        new FilePayload(path, "big.bin", 300L, "FILE"),
+                        new FilePayload(path, "small.bin", 100L, "FILE")
+                ), "def")
+        );
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/directory")
+                        .param("path", path)
+                        .param("cursor", "abc")
+                        .param("limit", "2")
+                        .param("sort", "size")
+                        .param("order", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(DirectoryController.NEXT_CURSOR_HEADER, "def"))
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].name").value("big.bin"));
+    }
+
+    @Test
+    void testGetDirectoryContent_withoutCursorAndLimitReturnsFullListing() throws Exception {
+        // Given
+        String path = "folder/";
+
+        // When
+        when(directoryService.getDirectoryContent(path, null, null, "name", "asc")).thenReturn(
+                new DirectoryContentPage(List.of(new FilePayload(path, "test.txt", 123L, "FILE")), null)
+        );
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/directory")
+                        .param("path", path))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(DirectoryController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void testGetDirectoryContent_directoriesHaveSubtreeAggregates() throws Exception {
+        // Given
+        String path = "folder/";
+
+        // When
+        when(directoryService.getDirectoryContent(path, null, null, "size", "desc")).thenReturn(
+                new DirectoryContentPage(List.of(
+                        new FilePayload(path, "photos", 4096L, "DIRECTORY", 12L),
+                        new FilePayload(path, "test.txt", 123L, "FILE")
+                ), null)
+        );
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/directory")
+                        .param("path", path)
+                        .param("sort", "size")
+                        .param("order", "desc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].size").value(4096))
+                .andExpect(jsonPath("$[0].fileCount").value(12))
+                .andExpect(jsonPath("$[1].fileCount").doesNotExist());
+    }
+
+    @Test
+    void testGetDirectoryContent_cursorWithoutLimitUsesDefaultPageSize() throws Exception {
+        // Given
+        String path = "folder/";
+
+        // When
+        when(directoryService.getDirectoryContent(path, "abc", 1000, "name", "asc")).thenReturn(
+                new DirectoryContentPage(List.of(new FilePayload(path, "test.txt", 123L, "FILE")), null)
+        );
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/directory")
+                        .param("path", path)
+                        .param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void testGetDirectoryContent_invalidLimit() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/directory")
+                        .param("path", "folder/")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(directoryService, never()).getDirectoryContent(any(), any(), anyInt(), any(), any());
+    }
+}
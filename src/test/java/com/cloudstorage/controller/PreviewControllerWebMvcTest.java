@@ -0,0 +1,87 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.config.SecurityConfig;
+import com.cloudstorage.service.PreviewService.Preview;
+import com.cloudstorage.service.PreviewService.PreviewService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.nio.file.NoSuchFileException;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = PreviewController.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = SecurityConfig.class))
+class PreviewControllerWebMvcTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SecurityFilterChain securityFilterChain;
+
+    @MockitoBean
+    private PreviewService previewService;
+
+    @Test
+    void testGetPreview_returnsJpegWithEtag() throws Exception {
+        // When
+        when(previewService.getPreview(eq("photos/cat.png"))).thenReturn(Optional.of(new Preview("digest", new byte[] {1, 2, 3})));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/preview")
+                        .param("path", "photos/cat.png"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("image/jpeg"))
+                .andExpect(content().bytes(new byte[] {1, 2, 3}))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"digest\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, private"));
+    }
+
+    @Test
+    void testGetPreview_matchingEtag_returnsNotModified() throws Exception {
+        // When
+        when(previewService.getPreview(eq("photos/cat.png"))).thenReturn(Optional.of(new Preview("digest", new byte[] {1, 2, 3})));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/preview")
+                        .param("path", "photos/cat.png")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"digest\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void testGetPreview_notReady_returnsAccepted() throws Exception {
+        // When
+        when(previewService.getPreview(eq("photos/cat.png"))).thenReturn(Optional.empty());
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/preview")
+                        .param("path", "photos/cat.png"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    void testGetPreview_notAvailable_returnsNotFound() throws Exception {
+        // When
+        when(previewService.getPreview(eq("docs/report.pdf"))).thenThrow(new NoSuchFileException("previews.error.not_available"));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/preview")
+                        .param("path", "docs/report.pdf"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -1,17 +1,23 @@
 package com.cloudstorage.controller;
 
+import com.cloudstorage.config.MultipartConfig;
 import com.cloudstorage.config.SecurityConfig;
 import com.cloudstorage.controller.payload.DirectoryPayload;
 import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.JobPayload;
 import com.cloudstorage.service.DirectoryService.DirectoryService;
+import com.cloudstorage.service.FileService.FileMetadata;
 import com.cloudstorage.service.FileService.FileService;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -19,18 +25,25 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.io.ByteArrayInputStream;
+import java.time.Instant;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = ResourceController.class, excludeFilters = @ComponentScan.Filter(
         type = FilterType.ASSIGNABLE_TYPE,
         classes = SecurityConfig.class))
+@Import(MultipartConfig.class)
 class ResourceControllerWebMvcTest {
 
     @Autowired
@@ -63,6 +76,36 @@ class ResourceControllerWebMvcTest {
                 .andExpect(status().isCreated());
     }
 
+    @Test
+    void testUploadFileStream_partsPassedToServiceUnbuffered() throws Exception {
+        // Given
+        String boundary = "test-boundary";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"test.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "test dau\r\n"
+                + "--" + boundary + "--\r\n";
+
+        // When
+        when(fileService.uploadFileStream(eq("folder 1/"), any(FileItemInputIterator.class), anyLong())).thenAnswer(invocation -> {
+            FileItemInputIterator items = invocation.getArgument(1);
+            FileItemInput item = items.next();
+            byte[] content = item.getInputStream().readAllBytes();
+            return List.of(new FilePayload("folder 1/", item.getName(), (long) content.length, "FILE"));
+        });
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/resource/stream")
+                        .queryParam("path", "folder 1/")
+                        .contentType("multipart/form-data; boundary=" + boundary)
+                        .content(body.getBytes()))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].name").value("test.txt"))
+                .andExpect(jsonPath("$[0].size").value(8));
+
+        verify(fileService, times(1)).uploadFileStream(eq("folder 1/"), any(FileItemInputIterator.class), anyLong());
+    }
+
     @Test
     void testGetFileInfo_returnsCorrectInfo() throws Exception {
         // Given
@@ -99,6 +142,23 @@ class ResourceControllerWebMvcTest {
         verify(directoryService, times(1)).getDirectoryInfo(eq(directoryPath));
     }
 
+    @Test
+    void testGetDirectoryInfo_returnsSubtreeAggregates() throws Exception {
+        // Given
+        String directoryPath = "testFolder/";
+
+        // When
+        when(directoryService.getDirectoryInfo(directoryPath)).thenReturn(
+                new DirectoryPayload("/", "testFolder", "DIRECTORY", 2048L, 3L));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource")
+                        .param("path", directoryPath))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size").value(2048))
+                .andExpect(jsonPath("$.fileCount").value(3));
+    }
+
     @Test
     void testDeleteResource_successfulDeletion() throws Exception {
         // Given
@@ -110,6 +170,26 @@ class ResourceControllerWebMvcTest {
                 .andExpect(status().isNoContent());
     }
 
+    @Test
+    void testDeleteDirectoryAsync_returnsAcceptedWithJob() throws Exception {
+        // Given
+        String directoryPath = "testFolder/";
+
+        // When
+        when(directoryService.deleteDirectoryAsync(directoryPath)).thenReturn(
+                new JobPayload("job-id", "DELETE", "RUNNING", 0L, null));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/resource")
+                        .param("path", directoryPath)
+                        .param("async", "true"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/jobs/job-id"));
+
+        verify(directoryService, times(1)).deleteDirectoryAsync(eq(directoryPath));
+        verify(directoryService, never()).deleteDirectory(any());
+    }
+
     @Test
     void testDownloadFile_successfulDownloading() throws Exception {
         // Given
@@ -117,7 +197,9 @@ class ResourceControllerWebMvcTest {
         String fileContent = "inner text";
 
         // When
-        when(fileService.downloadFile(eq(filePath), any(HttpServletResponse.class)))
+        when(fileService.getFileMetadata(eq(filePath)))
+                .thenReturn(createFileMetadata(fileContent.length()));
+        when(fileService.downloadFile(eq(filePath), eq(0L), isNull()))
                 .thenReturn(new ByteArrayInputStream(fileContent.getBytes()));
 
         // Then
@@ -125,9 +207,102 @@ class ResourceControllerWebMvcTest {
                         .param("path", filePath))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/octet-stream"))
+                .andExpect(header().string("Content-Length", String.valueOf(fileContent.length())))
+                .andExpect(header().string("Accept-Ranges", "bytes"))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().bytes(fileContent.getBytes()));
+
+        verify(fileService, times(1)).downloadFile(eq(filePath), eq(0L), isNull());
+    }
+
+    @Test
+    void testDownloadFile_withRange_returnsPartialContent() throws Exception {
+        // Given
+        String filePath = "testFolder/test.txt";
+        String fileContent = "inner text";
+
+        // When
+        when(fileService.getFileMetadata(eq(filePath)))
+                .thenReturn(createFileMetadata(fileContent.length()));
+        when(fileService.downloadFile(eq(filePath), eq(2L), eq(3L)))
+                .thenReturn(new ByteArrayInputStream(fileContent.substring(2, 5).getBytes()));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/download")
+                        .param("path", filePath)
+                        .header("Range", "bytes=2-4"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string("Content-Range", "bytes 2-4/" + fileContent.length()))
+                .andExpect(header().string("Content-Length", "3"))
+                .andExpect(content().bytes(fileContent.substring(2, 5).getBytes()));
+
+        verify(fileService, times(1)).downloadFile(eq(filePath), eq(2L), eq(3L));
+    }
+
+    @Test
+    void testDownloadFile_withMalformedRange_returnsWholeFile() throws Exception {
+        // Given
+        String filePath = "testFolder/test.txt";
+        String fileContent = "inner text";
+
+        // When
+        when(fileService.getFileMetadata(eq(filePath)))
+                .thenReturn(createFileMetadata(fileContent.length()));
+        when(fileService.downloadFile(eq(filePath), eq(0L), isNull()))
+                .thenReturn(new ByteArrayInputStream(fileContent.getBytes()));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/download")
+                        .param("path", filePath)
+                        .header("Range", "bytes=abc"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Range"))
+                .andExpect(header().string("Content-Length", String.valueOf(fileContent.length())))
                 .andExpect(content().bytes(fileContent.getBytes()));
 
-        verify(fileService, times(1)).downloadFile(eq(filePath), any(HttpServletResponse.class));
+        verify(fileService, times(1)).downloadFile(eq(filePath), eq(0L), isNull());
+    }
+
+    @Test
+    void testDownloadFile_withRangeOutsideFile_returnsRangeNotSatisfiable() throws Exception {
+        // Given
+        String filePath = "testFolder/test.txt";
+        String fileContent = "inner text";
+
+        // When
+        when(fileService.getFileMetadata(eq(filePath)))
+                .thenReturn(createFileMetadata(fileContent.length()));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/download")
+                        .param("path", filePath)
+                        .header("Range", "bytes=100-200"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string("Content-Range", "bytes */" + fileContent.length()));
+
+        verify(fileService, never()).downloadFile(any(), anyLong(), any());
+    }
+
+    @Test
+    void testDownloadFile_withMatchingEtag_returnsNotModified() throws Exception {
+        // Given
+        String filePath = "testFolder/test.txt";
+
+        // When
+        when(fileService.getFileMetadata(eq(filePath)))
+                .thenReturn(createFileMetadata(10));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/download")
+                        .param("path", filePath)
+                        .header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+
+        verify(fileService, never()).downloadFile(any(), anyLong(), any());
+    }
+
+    private FileMetadata createFileMetadata(long size) {
+        return new FileMetadata("test.txt", size, "text/plain", "abc123", Instant.parse("2025-01-01T00:00:00Z"));
     }
 
     @Test
@@ -231,7 +406,7 @@ class ResourceControllerWebMvcTest {
         String query = "test";
 
         // When
-        when(fileService.findResources(query)).thenReturn(
+        when(fileService.findResources(query, 0, 50)).thenReturn(
                 List.of(new FilePayload("testFolder123/", "test.txt", 123L, "FILE"))
         );
 
@@ -240,4 +415,14 @@ class ResourceControllerWebMvcTest {
                         .param("query", query))
                 .andExpect(status().isOk());
  }
+
+    @Test
+    void testSearchResources_invalidPage() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/resource/search")
+                        .param("query", "test")
+                        .param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(fileService, never()).findResources(any(), anyInt(), anyInt());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,126 @@
+package com.cloudstorage.controller;
+
+import com.cloudstorage.config.SecurityConfig;
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.UploadSessionPayload;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.service.UploadService.UploadService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.http.MediaType;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = UploadController.class, excludeFilters = @ComponentScan.Filter(
+        type = FilterType.ASSIGNABLE_TYPE,
+        classes = SecurityConfig.class))
+class UploadControllerWebMvcTest {
+
+    private static final UUID UPLOAD_ID = UUID.fromString("6f1c2a9e-4b7d-4c2e-9a57-3f0d8f1e2b11");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private SecurityFilterChain securityFilterChain;
+
+    @MockitoBean
+    private UploadService uploadService;
+
+    @Test
+    void testCreateUpload_returnsCreatedWithLocation() throws Exception {
+        // Given
+        UploadSessionPayload upload = new UploadSessionPayload(UPLOAD_ID.toString(), "folder/", "video.mp4",
+                40L << 20, 16L << 20, 0L, List.of());
+
+        // When
+        when(uploadService.createUpload(eq("folder/"), eq("video.mp4"), eq(40L << 20), isNull()))
+                .thenReturn(upload);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/uploads")
+                        .param("path", "folder/")
+                        .param("name", "video.mp4")
+                        .param("size", String.valueOf(40L << 20)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Location", "/api/uploads/" + UPLOAD_ID))
+                .andExpect(jsonPath("$.chunkSize").value(16L << 20));
+    }
+
+    @Test
+    void testCreateUpload_quotaExceeded_returnsInsufficientStorage() throws Exception {
+        // When
+        when(uploadService.createUpload(eq("folder/"), eq("video.mp4"), eq(40L << 20), isNull()))
+                .thenThrow(new QuotaExceededException("quota.error.exceeded"));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/uploads")
+                        .param("path", "folder/")
+                        .param("name", "video.mp4")
+                        .param("size", String.valueOf(40L << 20)))
+                .andExpect(status().isInsufficientStorage());
+    }
+
+    @Test
+    void testUploadChunk_passesOffsetAndBody() throws Exception {
+        // Given
+        byte[] chunk = "chunk".getBytes();
+        UploadSessionPayload upload = new UploadSessionPayload(UPLOAD_ID.toString(), "folder/", "video.mp4",
+                40L << 20, 16L << 20, 5L, List.of(0L));
+
+        // When
+        when(uploadService.uploadChunk(eq(UPLOAD_ID), eq(0L), any(InputStream.class), eq((long) chunk.length)))
+                .thenReturn(upload);
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.put("/api/uploads/" + UPLOAD_ID)
+                        .param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(chunk))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.uploadedOffsets[0]").value(0));
+
+        verify(uploadService, times(1)).uploadChunk(eq(UPLOAD_ID), eq(0L), any(InputStream.class), eq((long) chunk.length));
+    }
+
+    @Test
+    void testCompleteUpload_returnsCreatedFile() throws Exception {
+        // When
+        when(uploadService.completeUpload(eq(UPLOAD_ID)))
+                .thenReturn(new FilePayload("folder/", "video.mp4", 40L << 20, "FILE"));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.post("/api/uploads/" + UPLOAD_ID + "/complete"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.name").value("video.mp4"));
+    }
+
+    @Test
+    void testAbortUpload_unknownSession_returnsNotFound() throws Exception {
+        // When
+        doThrow(new NoSuchFileException("uploads.error.not_found"))
+                .when(uploadService).abortUpload(eq(UPLOAD_ID));
+
+        // Then
+        mockMvc.perform(MockMvcRequestBuilders.delete("/api/uploads/" + UPLOAD_ID))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudstorage.metrics;
+
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MinioMetricsEventListenerTest {
+
+    private static final RequestBody EMPTY_BODY = RequestBody.create(new byte[0]);
+
+    @Test
+    void testResolveApi_bucketRequests() {
+        assertEquals("ListObjects", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files?list-type=2&prefix=user-1-files/").build()));
+        assertEquals("HeadBucket", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files").head().build()));
+        assertEquals("DeleteObjects", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/?delete").post(EMPTY_BODY).build()));
+    }
+
+    @Test
+    void testResolveApi_objectRequests() {
+        assertEquals("GetObject", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/a.txt").build()));
+        assertEquals("HeadObject", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/folder/").head().build()));
+        assertEquals("CopyObject", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/b.txt")
+                        .header("x-amz-copy-source", "/user-files/user-1-files/a.txt")
+                        .put(EMPTY_BODY).build()));
+        assertEquals("UploadPart", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/a.txt?partNumber=2&uploadId=abc")
+                        .put(EMPTY_BODY).build()));
+        assertEquals("CompleteMultipartUpload", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/a.txt?uploadId=abc")
+                        .post(EMPTY_BODY).build()));
+        assertEquals("DeleteObject", MinioMetricsEventListener.resolveApi(
+                new Request.Builder().url("http://minio:9000/user-files/user-1-files/a.txt").delete().build()));
+    }
+}
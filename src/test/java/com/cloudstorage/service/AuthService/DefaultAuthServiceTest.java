@@ -0,0 +1,57 @@
+package com.cloudstorage.service.AuthService;
+
+import com.cloudstorage.entity.User;
+import com.cloudstorage.repository.UserRepository;
+import com.cloudstorage.service.SecurityUser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultAuthServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private DefaultAuthService authService;
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testGetUserIdFromSession_readsIdFromPrincipal() {
+        // Given
+        SecurityUser principal = new SecurityUser(123, "test", "", AuthorityUtils.createAuthorityList("ROLE_USER"));
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities()));
+
+        // When + Then
+        assertEquals(123, authService.getUserIdFromSession());
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void testGetUserIdFromSession_legacyPrincipalFallsBackToDatabase() {
+        // Given
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("test", null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+        when(userRepository.getByUsername("test")).thenReturn(Optional.of(new User(123, "test", "test")));
+
+        // When + Then
+        assertEquals(123, authService.getUserIdFromSession());
+    }
+}
@@ -0,0 +1,189 @@
+package com.cloudstorage.service.BlobService;
+
+import com.cloudstorage.entity.Blob;
+import com.cloudstorage.repository.BlobRepository;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultBlobServiceTest {
+
+    private static final byte[] CONTENT = "hello, blobs".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @InjectMocks
+    private DefaultBlobService blobService;
+
+    @Test
+    void testStore_existingContentIsNotWritten() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(1);
+
+        // When
+        StoredBlob blob = blobService.store(new ByteArrayResource(CONTENT), CONTENT.length, "text/plain");
+
+        // Then
+        assertEquals(digest, blob.digest());
+        assertTrue(blob.deduplicated());
+        verifyNoInteractions(storageBackend);
+        verify(blobRepository, never()).create(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testStore_newContentIsWrittenUnderDigest() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0);
+
+        // When
+        StoredBlob blob = blobService.store(new ByteArrayResource(CONTENT), CONTENT.length, "text/plain");
+
+        // Then
+        assertFalse(blob.deduplicated());
+        assertEquals("blobs/" + digest.substring(0, 2) + "/" + digest, blob.objectName());
+        verify(storageBackend).put(eq(blob.objectName()), any(InputStream.class), eq((long) CONTENT.length), eq("text/plain"));
+        verify(blobRepository).create(eq(digest), eq((long) CONTENT.length), isNull(), any());
+    }
+
+    @Test
+    void testStore_concurrentRegistrationTakesReference() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0, 1);
+        when(blobRepository.create(eq(digest), anyLong(), any(), any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // When
+        StoredBlob blob = blobService.store(new ByteArrayResource(CONTENT), CONTENT.length, null);
+
+        // Then
+        assertEquals(digest, blob.digest());
+        verify(blobRepository, times(2)).acquire(eq(digest), any());
+    }
+
+    @Test
+    void testStoreStream_duplicateRemovesStagingObject() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        ArgumentCaptor<String> stagingName = ArgumentCaptor.forClass(String.class);
+        when(storageBackend.put(stagingName.capture(), any(InputStream.class), eq(-1L), any())).thenAnswer(invocation -> {
+            long size = invocation.getArgument(1, InputStream.class).readAllBytes().length;
+            return new StorageObject(invocation.getArgument(0), size, null, null, null);
+        });
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(1);
+
+        // When
+        StoredBlob blob = blobService.store(new ByteArrayInputStream(CONTENT), "text/plain");
+
+        // Then
+        assertEquals(digest, blob.digest());
+        assertEquals(CONTENT.length, blob.size());
+        assertTrue(blob.deduplicated());
+        verify(storageBackend).delete(stagingName.getValue());
+        verify(storageBackend, never()).move(any(), any(), anyLong());
+    }
+
+    @Test
+    void testStoreStream_newContentStaysWhereItWasWritten() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        ArgumentCaptor<String> stagingName = ArgumentCaptor.forClass(String.class);
+        givenStagedPut(stagingName);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0);
+
+        // When
+        StoredBlob blob = blobService.store(new ByteArrayInputStream(CONTENT), "text/plain");
+
+        // Then
+        assertFalse(blob.deduplicated());
+        verify(blobRepository).create(eq(digest), eq((long) CONTENT.length), eq(stagingName.getValue()), any());
+        verify(storageBackend, never()).move(any(), any(), anyLong());
+        verify(storageBackend, never()).copy(any(), any(), anyLong());
+        verify(storageBackend, never()).delete(anyString());
+    }
+
+    @Test
+    void testStoreStream_concurrentRegistrationRemovesOwnObject() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        ArgumentCaptor<String> stagingName = ArgumentCaptor.forClass(String.class);
+        givenStagedPut(stagingName);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0, 1);
+        when(blobRepository.create(eq(digest), anyLong(), anyString(), any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // When
+        blobService.store(new ByteArrayInputStream(CONTENT), "text/plain");
+
+        // Then
+        verify(storageBackend).delete(stagingName.getValue());
+    }
+
+    @Test
+    void testGet_readsStreamedBlobFromItsObject() throws Exception {
+        // Given
+        String digest = sha256(CONTENT);
+        when(blobRepository.findById(digest)).thenReturn(Optional.of(new Blob(digest, (long) CONTENT.length, 1, ".staging/s1", Instant.now(), Instant.now())));
+        when(storageBackend.get(".staging/s1", 0, null)).thenReturn(new ByteArrayInputStream(CONTENT));
+
+        // When
+        InputStream content = blobService.get(digest, 0, null);
+
+        // Then
+        assertArrayEquals(CONTENT, content.readAllBytes());
+    }
+
+    @Test
+    void testRemoveOrphans_registeredStagingObjectsAreKept() {
+        // Given
+        Instant old = Instant.now().minusSeconds(3600);
+        when(storageBackend.list("blobs/", true, null)).thenReturn(List.of());
+        when(storageBackend.list(".staging/", true, null)).thenReturn(List.of(
+                new StorageObject(".staging/blob", 1, null, null, old),
+                new StorageObject(".staging/leftover", 1, null, null, old)));
+        when(blobRepository.findObjectNames(List.of(".staging/blob", ".staging/leftover"))).thenReturn(List.of(".staging/blob"));
+
+        // When
+        int removed = blobService.removeOrphans(Instant.now());
+
+        // Then
+        assertEquals(1, removed);
+        verify(storageBackend).delete(List.of(".staging/leftover"));
+    }
+
+    private void givenStagedPut(ArgumentCaptor<String> stagingName) {
+        when(storageBackend.put(stagingName.capture(), any(InputStream.class), eq(-1L), any())).thenAnswer(invocation -> {
+            long size = invocation.getArgument(1, InputStream.class).readAllBytes().length;
+            return new StorageObject(invocation.getArgument(0), size, null, null, null);
+        });
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
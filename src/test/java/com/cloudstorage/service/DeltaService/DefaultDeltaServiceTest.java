@@ -0,0 +1,241 @@
+package com.cloudstorage.service.DeltaService;
+
+import com.cloudstorage.controller.payload.BlockSignaturePayload;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.metrics.StorageMetrics;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultDeltaServiceTest {
+
+    private static final String OBJECT_NAME = "user-1-files/docs/disk.img";
+    private static final String BASE_DIGEST = "ab".repeat(32);
+    private static final byte[] BASE = "aaaabbbbccccdd".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private MetadataService metadataService;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private StorageMetrics storageMetrics;
+
+    @InjectMocks
+    private DefaultDeltaService deltaService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(deltaService, "blockSize", DataSize.ofBytes(4));
+        when(authService.getUserIdFromSession()).thenReturn(1);
+        when(metadataService.find(OBJECT_NAME)).thenReturn(Optional.of(new ResourceMetadata(1L, 1, "docs/disk.img", "docs/", "disk.img",
+                "FILE", (long) BASE.length, 0L, "application/octet-stream", BASE_DIGEST, BASE_DIGEST, Instant.now(), Instant.now())));
+    }
+
+    @Test
+    void testGetSignature_computesBlocksAndStoresThemNextToBlob() throws Exception {
+        // Given
+        String signatureName = StoredBlob.sideObjectName(BASE_DIGEST, StoredBlob.SIGNATURE_SUFFIX);
+        when(storageBackend.get(signatureName)).thenThrow(new NoSuchFileException(signatureName));
+        when(blobService.objectName(BASE_DIGEST)).thenReturn(StoredBlob.objectName(BASE_DIGEST));
+        when(storageBackend.get(StoredBlob.objectName(BASE_DIGEST))).thenReturn(new ByteArrayInputStream(BASE));
+
+        // When
+        BlockSignaturePayload signature = deltaService.getSignature("docs/disk.img");
+
+        // Then
+        assertEquals(4, signature.blocks().size());
+        assertEquals(BASE_DIGEST, signature.etag());
+        assertEquals(RollingChecksum.of(BASE, 12, 2), signature.blocks().get(3).weak());
+        verify(storageBackend).put(eq(signatureName), any(InputStream.class), anyLong(), any());
+    }
+
+    @Test
+    void testApplyDelta_assemblesCopiedBlocksAndLiterals() throws Exception {
+        // Given
+        when(blobService.objectName(BASE_DIGEST)).thenReturn(StoredBlob.objectName(BASE_DIGEST));
+        when(storageBackend.get(eq(StoredBlob.objectName(BASE_DIGEST)), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int offset = (int) invocation.getArgument(1, Long.class).longValue();
+            int length = (int) invocation.getArgument(2, Long.class).longValue();
+            return new ByteArrayInputStream(BASE, offset, length);
+        });
+        ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+        when(blobService.store(any(InputStream.class), eq("application/octet-stream"))).thenAnswer(invocation -> {
+            invocation.getArgument(0, InputStream.class).transferTo(assembled);
+            return new StoredBlob("cd".repeat(32), assembled.size(), false);
+        });
+
+        byte[] delta = delta(out -> {
+            copy(out, 0, 1);
+            literal(out, "XXXX");
+            copy(out, 2, 2);
+        });
+
+        // When
+        var file = deltaService.applyDelta("docs/disk.img", BASE_DIGEST, new ByteArrayInputStream(delta));
+
+        // Then
+        assertEquals("aaaaXXXXccccdd", assembled.toString(StandardCharsets.UTF_8));
+        assertEquals(14, file.size());
+        verify(metadataService).saveFile(OBJECT_NAME, 14, "application/octet-stream", "cd".repeat(32), "cd".repeat(32));
+        verify(storageMetrics).recordBytes(StorageMetrics.DELTA, 4);
+        verify(storageBackend, never()).delete(anyString());
+    }
+
+    @Test
+    void testApplyDelta_changedBaseIsRejected() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> deltaService.applyDelta("docs/disk.img", "outdated", new ByteArrayInputStream(new byte[] {0})));
+        verifyNoInteractions(blobService);
+    }
+
+    @Test
+    void testApplyDelta_blocksOutsideBaseAreRejected() throws Exception {
+        // Given
+        when(blobService.store(any(InputStream.class), any())).thenAnswer(invocation -> invocation.getArgument(0, InputStream.class).readAllBytes());
+
+        byte[] delta = delta(out -> copy(out, 3, 2));
+
+        // When + Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> deltaService.applyDelta("docs/disk.img", BASE_DIGEST, new ByteArrayInputStream(delta)));
+        assertEquals("deltas.error.invalid_delta", exception.getMessage());
+        verify(metadataService, never()).saveFile(any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void testApplyDelta_growthBeyondQuotaIsRejected() throws Exception {
+        // Given
+        when(quotaService.getAvailableBytes(1)).thenReturn(2L);
+        when(blobService.objectName(BASE_DIGEST)).thenReturn(StoredBlob.objectName(BASE_DIGEST));
+        when(storageBackend.get(eq(StoredBlob.objectName(BASE_DIGEST)), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int offset = (int) invocation.getArgument(1, Long.class).longValue();
+            int length = (int) invocation.getArgument(2, Long.class).longValue();
+            return new ByteArrayInputStream(BASE, offset, length);
+        });
+        when(blobService.store(any(InputStream.class), any())).thenAnswer(invocation -> invocation.getArgument(0, InputStream.class).readAllBytes());
+
+        byte[] delta = delta(out -> {
+            copy(out, 0, 4);
+            literal(out, "XXX");
+        });
+
+        // When + Then
+        assertThrows(QuotaExceededException.class,
+                () -> deltaService.applyDelta("docs/disk.img", BASE_DIGEST, new ByteArrayInputStream(delta)));
+        verify(metadataService, never()).saveFile(any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    void testApplyDelta_longUnchangedRangesAreCopiedInStorage() throws Exception {
+        // Given
+        int mb = 1024 * 1024;
+        byte[] base = new byte[12 * mb];
+        new Random(42).nextBytes(base);
+        ReflectionTestUtils.setField(deltaService, "blockSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(deltaService, "partSize", DataSize.ofMegabytes(8));
+        when(metadataService.find(OBJECT_NAME)).thenReturn(Optional.of(new ResourceMetadata(1L, 1, "docs/disk.img", "docs/", "disk.img",
+                "FILE", (long) base.length, 0L, "application/octet-stream", BASE_DIGEST, BASE_DIGEST, Instant.now(), Instant.now())));
+        when(quotaService.getAvailableBytes(1)).thenReturn((long) mb);
+        when(blobService.objectName(BASE_DIGEST)).thenReturn(StoredBlob.objectName(BASE_DIGEST));
+        when(storageBackend.supportsPartCopy()).thenReturn(true);
+        when(storageBackend.createMultipartUpload(startsWith(StoredBlob.STAGING_PREFIX), eq("application/octet-stream"))).thenReturn("upload-1");
+        when(storageBackend.get(eq(StoredBlob.objectName(BASE_DIGEST)), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int offset = (int) invocation.getArgument(1, Long.class).longValue();
+            int length = (int) invocation.getArgument(2, Long.class).longValue();
+            return new ByteArrayInputStream(base, offset, length);
+        });
+        when(blobService.adopt(startsWith(StoredBlob.STAGING_PREFIX), anyString(), anyLong()))
+                .thenAnswer(invocation -> new StoredBlob(invocation.getArgument(1), invocation.getArgument(2), false));
+
+        byte[] delta = delta(out -> {
+            literal(out, "0123456789");
+            copy(out, 0, 12);
+        });
+
+        // When
+        var file = deltaService.applyDelta("docs/disk.img", BASE_DIGEST, new ByteArrayInputStream(delta));
+
+        // Then
+        long head = 5L * mb - 10;
+        verify(storageBackend).uploadPart(startsWith(StoredBlob.STAGING_PREFIX), eq("upload-1"), eq(1), argThat(part -> part.length == 5 * mb));
+        verify(storageBackend).uploadPartCopy(startsWith(StoredBlob.STAGING_PREFIX), eq("upload-1"), eq(2),
+                eq(StoredBlob.objectName(BASE_DIGEST)), eq(head), eq(base.length - head));
+        verify(storageBackend).completeMultipartUpload(startsWith(StoredBlob.STAGING_PREFIX), eq("upload-1"), any());
+
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        sha256.update("0123456789".getBytes(StandardCharsets.UTF_8));
+        sha256.update(base);
+        String digest = HexFormat.of().formatHex(sha256.digest());
+        assertEquals(base.length + 10, file.size());
+        verify(blobService).adopt(startsWith(StoredBlob.STAGING_PREFIX), eq(digest), eq(base.length + 10L));
+        verify(blobService, never()).store(any(InputStream.class), any());
+    }
+
+    private interface DeltaWriter {
+        void write(DataOutputStream out) throws Exception;
+    }
+
+    private static byte[] delta(DeltaWriter writer) throws Exception {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+
+        try (DataOutputStream out = new DataOutputStream(delta)) {
+            writer.write(out);
+            out.write(DeltaReader.END);
+        }
+
+        return delta.toByteArray();
+    }
+
+    private static void copy(DataOutputStream out, int block, int count) throws Exception {
+        out.write(DeltaReader.COPY);
+        out.writeInt(block);
+        out.writeInt(count);
+    }
+
+    private static void literal(DataOutputStream out, String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        out.write(DeltaReader.LITERAL);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
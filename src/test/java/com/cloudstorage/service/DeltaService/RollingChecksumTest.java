@@ -0,0 +1,33 @@
+package com.cloudstorage.service.DeltaService;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RollingChecksumTest {
+
+    @Test
+    void testRoll_matchesRecomputedWindow() {
+        // Given
+        byte[] data = new byte[4096];
+        new Random(42).nextBytes(data);
+        int window = 512;
+        RollingChecksum checksum = new RollingChecksum();
+        checksum.update(data, 0, window);
+
+        // When + Then
+        for (int start = 1; start + window <= data.length; start++) {
+            checksum.roll(data[start - 1], data[start + window - 1]);
+            assertEquals(RollingChecksum.of(Arrays.copyOfRange(data, start, start + window), 0, window), checksum.value());
+        }
+    }
+
+    @Test
+    void testOf_knownValue() {
+        // a = 'a' + 'b' + 'c' = 294, b = 97 + 195 + 294 = 586
+        assertEquals((586L << 16) | 294, RollingChecksum.of("abc".getBytes(), 0, 3));
+    }
+}
@@ -1,5 +1,6 @@
 package com.cloudstorage.service.DirectoryService;
 
+import com.cloudstorage.controller.payload.FilePayload;
 import com.cloudstorage.controller.payload.UserPayload;
 import com.cloudstorage.entity.User;
 import com.cloudstorage.service.AuthService.AuthService;
@@ -10,7 +11,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -18,11 +22,16 @@ import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.wait.strategy.HttpWaitStrategy;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.NoSuchFileException;
 import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -229,6 +238,21 @@ class DefaultDirectoryServiceTest {
         assertTrue(directoryService.isDirectoryExists(newFullDirectoryPath + directory + subfolder));
     }
 
+    @Test
+    public void testMoveDirectoryIntoItself_throwsException() throws NoSuchFileException {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String directory = "testMoving3/";
+        String fullDirectoryPath = "user-123-files/" + directory;
+
+        directoryService.createDirectory(directory);
+
+        // When + Then
+        assertThrows(UnsupportedOperationException.class, () -> directoryService.moveDirectory(directory, directory));
+        assertTrue(directoryService.isDirectoryExists(fullDirectoryPath));
+    }
+
     @Test
     public void testGetDirectoryContent_successfulGet() throws NoSuchFileException, FileAlreadyExistsException {
         // Given
@@ -249,7 +273,124 @@ class DefaultDirectoryServiceTest {
         fileService.uploadFile(directory, List.of(file));
 
         // When + Then
-        assertNotNull(directoryService.getDirectoryContent(directory));
-        assertEquals(1, directoryService.getDirectoryContent(directory).size());
+        assertNotNull(directoryService.getDirectoryContent(directory, null, 1000, "name", "asc").items());
+        assertEquals(1, directoryService.getDirectoryContent(directory, null, 1000, "name", "asc").items().size());
+    }
+
+    @Test
+    public void testGetDirectoryContentAfterMoving_returnsMovedResources() throws NoSuchFileException, FileAlreadyExistsException {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String directory = "testContentMoving/";
+        String directoryForMoving = "contentMoveHere/";
+
+        directoryService.createDirectory(directory);
+        directoryService.createDirectory(directoryForMoving);
+        fileService.uploadFile(directory + "inner/", List.of(
+                new MockMultipartFile("file", "test.txt", "text/plain", "test dau".getBytes())
+        ));
+
+        // When
+        directoryService.moveDirectory(directory, directoryForMoving);
+
+        // Then
+        List<FilePayload> content = directoryService.getDirectoryContent(directoryForMoving + directory, null, 1000, "name", "asc").items();
+        assertEquals(1, content.size());
+        assertEquals("inner", content.get(0).name());
+        assertEquals("DIRECTORY", content.get(0).type());
+
+        List<FilePayload> innerContent = directoryService.getDirectoryContent(directoryForMoving + directory + "inner/", null, 1000, "name", "asc").items();
+        assertEquals(1, innerContent.size());
+        assertEquals("test.txt", innerContent.get(0).name());
+        assertEquals(8, innerContent.get(0).size());
+    }
+
+    @Test
+    public void testGetDirectoryContentPaged_followsCursorInSortOrder() throws NoSuchFileException, FileAlreadyExistsException {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String directory = "testPagedContent/";
+
+        directoryService.createDirectory(directory);
+        directoryService.createDirectory(directory + "inner/");
+        fileService.uploadFile(directory, List.of(
+                new MockMultipartFile("file", "a.txt", "text/plain", "a".getBytes()),
+                new MockMultipartFile("file", "b.txt", "text/plain", "bbb".getBytes()),
+                new MockMultipartFile("file", "c.txt", "text/plain", "cc".getBytes())
+        ));
+
+        // When
+        DirectoryContentPage firstPage = directoryService.getDirectoryContent(directory, null, 2, "size", "desc");
+        DirectoryContentPage secondPage = directoryService.getDirectoryContent(directory, firstPage.nextCursor(), 2, "size", "desc");
+
+        // Then
+        assertEquals(List.of("b.txt", "c.txt"), firstPage.items().stream().map(FilePayload::name).toList());
+        assertEquals(List.of("a.txt", "inner"), secondPage.items().stream().map(FilePayload::name).toList());
+        assertNull(secondPage.nextCursor());
+        assertThrows(IllegalArgumentException.class,
+                () -> directoryService.getDirectoryContent(directory, firstPage.nextCursor(), 2, "name", "asc"));
+    }
+
+    @Test
+    public void testGetDirectoryContent_withoutLimitReturnsEverything() throws NoSuchFileException, FileAlreadyExistsException {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+        Object target = AopTestUtils.getTargetObject(directoryService);
+        ReflectionTestUtils.setField(target, "listingMaxLimit", 2);
+
+        String directory = "testFullContent/";
+
+        directoryService.createDirectory(directory);
+        fileService.uploadFile(directory, List.of(
+                new MockMultipartFile("file", "a.txt", "text/plain", "a".getBytes()),
+                new MockMultipartFile("file", "b.txt", "text/plain", "bbb".getBytes()),
+                new MockMultipartFile("file", "c.txt", "text/plain", "cc".getBytes())
+        ));
+
+        // When
+        DirectoryContentPage content;
+        try {
+            content = directoryService.getDirectoryContent(directory, null, null, "name", "asc");
+        } finally {
+            ReflectionTestUtils.setField(target, "listingMaxLimit", 1000);
+        }
+
+        // Then
+        assertEquals(List.of("a.txt", "b.txt", "c.txt"), content.items().stream().map(FilePayload::name).toList());
+        assertNull(content.nextCursor());
+    }
+
+    @Test
+    public void testDownloadDirectory_writesZipInListingOrder() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String directory = "testDownload/";
+
+        directoryService.createDirectory(directory);
+        fileService.uploadFile(directory, List.of(
+                new MockMultipartFile("file", "a.txt", "text/plain", "text content".getBytes()),
+                new MockMultipartFile("file", "b.jpg", "image/jpeg", new byte[]{1, 2, 3, 4})
+        ));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // When
+        directoryService.downloadDirectory(directory, response.getOutputStream(), response);
+
+        // Then
+        Map<String, Integer> entries = new LinkedHashMap<>();
+        try (ZipInputStream zipIn = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zipIn.getNextEntry()) != null) {
+                entries.put(entry.getName(), entry.getMethod());
+            }
+        }
+
+        assertEquals(List.of("a.txt", "b.jpg"), List.copyOf(entries.keySet()));
+        assertEquals(ZipEntry.DEFLATED, entries.get("a.txt"));
+        assertEquals(ZipEntry.STORED, entries.get("b.jpg"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,201 @@
+package com.cloudstorage.service.DirectoryService;
+
+import com.cloudstorage.repository.RelocationLeaseRepository;
+import com.cloudstorage.service.JobService.JobProgress;
+import com.cloudstorage.service.JobService.JobService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectoryRelocationEngineTest {
+
+    private static final String SOURCE = "user-1-files/old/";
+    private static final String TARGET = "user-1-files/new/";
+    private static final List<StorageObject> OBJECTS = List.of(object("a.txt"), object("b.txt"), object("c.txt"));
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private MetadataService metadataService;
+
+    @Mock
+    private RelocationLeaseRepository relocationLeaseRepository;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private JobProgress progress;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final ExecutorService storageExecutor = Executors.newFixedThreadPool(2);
+
+    private DirectoryRelocationEngine relocationEngine;
+
+    @BeforeEach
+    void setUp() {
+        relocationEngine = new DirectoryRelocationEngine(storageBackend, objectMapper, metadataService,
+                relocationLeaseRepository, jobService, storageExecutor);
+        ReflectionTestUtils.setField(relocationEngine, "pageSize", 2);
+        ReflectionTestUtils.setField(relocationEngine, "lease", Duration.ofMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageExecutor.shutdown();
+    }
+
+    @Test
+    void testRelocate_movesPagesAndReportsProgress() {
+        // Given
+        givenSourceObjects();
+        when(relocationLeaseRepository.renew(anyString(), anyString(), any(), any())).thenReturn(0, 1);
+        when(jobService.track(anyString(), eq(1), eq("RELOCATE"))).thenReturn(progress);
+
+        // When
+        long relocated = relocationEngine.relocate(1, SOURCE, TARGET);
+
+        // Then
+        assertEquals(3, relocated);
+        verify(storageBackend).copy(SOURCE + "a.txt", TARGET + "a.txt", 1);
+        verify(storageBackend).copy(SOURCE + "c.txt", TARGET + "c.txt", 1);
+        verify(storageBackend).delete(List.of(SOURCE + "a.txt", SOURCE + "b.txt"));
+        verify(storageBackend).delete(List.of(SOURCE + "c.txt"));
+        verify(progress).update(2);
+        verify(progress).update(3);
+        verify(progress).complete(3);
+        verify(metadataService).relocateDirectory(SOURCE, TARGET);
+        verify(relocationLeaseRepository).release(anyString(), anyString());
+    }
+
+    @Test
+    void testRelocate_lostLeaseStopsWithoutFailingJob() {
+        // Given
+        givenSourceObjects();
+        when(relocationLeaseRepository.renew(anyString(), anyString(), any(), any())).thenReturn(0);
+        when(relocationLeaseRepository.create(anyString(), anyString(), any()))
+                .thenReturn(1)
+                .thenThrow(new DataIntegrityViolationException("duplicate"));
+        when(jobService.track(anyString(), eq(1), eq("RELOCATE"))).thenReturn(progress);
+
+        // When + Then
+        assertThrows(IllegalStateException.class, () -> relocationEngine.relocate(1, SOURCE, TARGET));
+        verify(storageBackend, never()).copy(eq(SOURCE + "c.txt"), any(), anyLong());
+        verify(metadataService, never()).relocateDirectory(any(), any());
+        verify(progress, never()).fail(anyLong(), any());
+    }
+
+    @Test
+    void testResume_checkpointClaimedByAnotherInstanceIsSkipped() throws Exception {
+        // Given
+        when(storageBackend.list(".relocations/", false, null)).thenReturn(List.of(checkpointObject("r1")));
+        when(relocationLeaseRepository.renew(eq("r1"), anyString(), any(), any())).thenReturn(0);
+        when(relocationLeaseRepository.create(eq("r1"), anyString(), any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // When
+        relocationEngine.resumeInterruptedRelocations();
+
+        // Then
+        verify(storageBackend, never()).get(anyString());
+        verify(storageBackend, never()).copy(any(), any(), anyLong());
+        verifyNoInteractions(metadataService, jobService);
+    }
+
+    @Test
+    void testResume_claimedCheckpointContinuesAfterLastObject() throws Exception {
+        // Given
+        RelocationCheckpoint checkpoint = new RelocationCheckpoint("r1", 1, SOURCE, TARGET, SOURCE + "b.txt", 2);
+        when(storageBackend.list(".relocations/", false, null)).thenReturn(List.of(checkpointObject("r1")));
+        when(storageBackend.get(".relocations/r1")).thenReturn(json(checkpoint));
+        when(storageBackend.list(SOURCE, true, SOURCE + "b.txt")).thenReturn(OBJECTS.subList(2, 3));
+        when(storageBackend.list(SOURCE, true, SOURCE + "c.txt")).thenReturn(List.of());
+        when(relocationLeaseRepository.renew(eq("r1"), anyString(), any(), any())).thenReturn(1);
+        when(jobService.track("r1", 1, "RELOCATE")).thenReturn(progress);
+
+        // When
+        relocationEngine.resumeInterruptedRelocations();
+
+        // Then
+        verify(storageBackend).copy(SOURCE + "c.txt", TARGET + "c.txt", 1);
+        verify(storageBackend, never()).copy(eq(SOURCE + "a.txt"), any(), anyLong());
+        verify(progress).complete(3);
+        verify(metadataService).relocateDirectory(SOURCE, TARGET);
+        verify(storageBackend).delete(".relocations/r1");
+    }
+
+    @Test
+    void testRelocate_failureReleasesLeaseAndKeepsCheckpoint() {
+        // Given
+        givenSourceObjects();
+        when(relocationLeaseRepository.renew(anyString(), anyString(), any(), any())).thenReturn(1);
+        when(jobService.track(anyString(), eq(1), eq("RELOCATE"))).thenReturn(progress);
+        doThrow(new RuntimeException("copy failed")).when(storageBackend).copy(eq(SOURCE + "a.txt"), any(), anyLong());
+
+        // When + Then
+        assertThrows(RuntimeException.class, () -> relocationEngine.relocate(1, SOURCE, TARGET));
+        verify(relocationLeaseRepository).release(anyString(), anyString());
+        verify(progress).fail(0, "jobs.error.failed");
+        verify(storageBackend, never()).delete(startsWith(".relocations/"));
+    }
+
+    @Test
+    void testResume_stableNodeIdRenewsLeaseHeldBeforeRestart() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(relocationEngine, "nodeId", "node-1");
+        RelocationCheckpoint checkpoint = new RelocationCheckpoint("r1", null, SOURCE, TARGET, SOURCE + "c.txt", 3);
+        when(storageBackend.list(".relocations/", false, null)).thenReturn(List.of(checkpointObject("r1")));
+        when(storageBackend.get(".relocations/r1")).thenReturn(json(checkpoint));
+        when(storageBackend.list(SOURCE, true, SOURCE + "c.txt")).thenReturn(List.of());
+        when(relocationLeaseRepository.renew(eq("r1"), eq("node-1"), any(), any())).thenReturn(1);
+
+        // When
+        relocationEngine.resumeInterruptedRelocations();
+
+        // Then
+        verify(relocationLeaseRepository, never()).create(any(), any(), any());
+        verify(metadataService).relocateDirectory(SOURCE, TARGET);
+        verify(relocationLeaseRepository).release("r1", "node-1");
+    }
+
+    private void givenSourceObjects() {
+        when(storageBackend.movePrefix(SOURCE, TARGET)).thenReturn(false);
+        when(storageBackend.list(SOURCE, true, null)).thenReturn(OBJECTS);
+        lenient().when(storageBackend.list(SOURCE, true, SOURCE + "b.txt")).thenReturn(OBJECTS.subList(2, 3));
+        lenient().when(storageBackend.list(SOURCE, true, SOURCE + "c.txt")).thenReturn(List.of());
+    }
+
+    private InputStream json(RelocationCheckpoint checkpoint) throws Exception {
+        return new ByteArrayInputStream(objectMapper.writeValueAsBytes(checkpoint));
+    }
+
+    private static StorageObject checkpointObject(String id) {
+        return new StorageObject(".relocations/" + id, 1, null, null, null);
+    }
+
+    private static StorageObject object(String name) {
+        return new StorageObject(SOURCE + name, 1, null, null, null);
+    }
+}
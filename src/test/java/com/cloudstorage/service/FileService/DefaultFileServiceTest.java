@@ -5,21 +5,26 @@ import com.cloudstorage.service.AuthService.AuthService;
 import com.cloudstorage.service.DirectoryService.DirectoryService;
 import com.cloudstorage.service.UserService.UserService;
 import io.minio.MinioClient;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.web.multipart.MultipartFile;
 import org.testcontainers.containers.GenericContainer;
 import org.testcontainers.containers.wait.strategy.HttpWaitStrategy;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.NoSuchFileException;
 import java.time.Duration;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.when;
@@ -129,6 +134,72 @@ class DefaultFileServiceTest {
         assertTrue(fileService.isFileExists(fullFilePath));
     }
 
+    @Test
+    public void TestUploadFile_manyFiles_uploadedInRequestOrder() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String filePath = "bulk/";
+        List<MultipartFile> files = IntStream.range(0, 50)
+                .mapToObj(i -> (MultipartFile) new MockMultipartFile("file", "photo-" + i + ".jpg", "image/jpeg", ("photo " + i).getBytes()))
+                .toList();
+
+        // When
+        List<FilePayload> createdFiles = fileService.uploadFile(filePath, files);
+
+        // Then
+        assertEquals(50, createdFiles.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals("photo-" + i + ".jpg", createdFiles.get(i).name());
+            assertTrue(fileService.isFileExists("user-123-files/" + filePath + "photo-" + i + ".jpg"));
+        }
+    }
+
+    @Test
+    public void TestUploadFile_existingFile_nothingUploaded() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String filePath = "conflict/";
+        fileService.uploadFile(filePath, List.of(new MockMultipartFile("file", "existing.txt", "text/plain", "old".getBytes())));
+
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("file", "new.txt", "text/plain", "new".getBytes()),
+                new MockMultipartFile("file", "existing.txt", "text/plain", "new".getBytes()));
+
+        // When + Then
+        assertThrows(FileAlreadyExistsException.class, () -> fileService.uploadFile(filePath, files));
+        assertFalse(fileService.isFileExists("user-123-files/" + filePath + "new.txt"));
+    }
+
+    @Test
+    public void TestUploadFileStream_existingFile_rollsBackUploadedParts() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String filePath = "stream/";
+        fileService.uploadFile(filePath, List.of(new MockMultipartFile("file", "existing.txt", "text/plain", "old".getBytes())));
+
+        String boundary = "test-boundary";
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"new.txt\"\r\n\r\n"
+                + "new\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"files\"; filename=\"existing.txt\"\r\n\r\n"
+                + "new\r\n"
+                + "--" + boundary + "--\r\n";
+
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/resource/stream");
+        request.setContentType("multipart/form-data; boundary=" + boundary);
+        request.setContent(body.getBytes());
+
+        // When + Then
+        assertThrows(FileAlreadyExistsException.class,
+                () -> fileService.uploadFileStream(filePath, new JakartaServletFileUpload<>().getItemIterator(request), request.getContentLengthLong()));
+        assertFalse(fileService.isFileExists("user-123-files/" + filePath + "new.txt"));
+        assertTrue(fileService.isFileExists("user-123-files/" + filePath + "existing.txt"));
+    }
+
     @Test
     public void TestGetFileInfo_successfulGet() throws Exception {
         // Given
@@ -179,6 +250,38 @@ class DefaultFileServiceTest {
         assertFalse(fileService.isFileExists(fullFilePath));
     }
 
+    @Test
+    public void TestMetadataCache_invalidatedByUploadAndDeletion() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String filePath = "test/";
+        String filename = "testCache.txt";
+        String fullFilePath = "user-123-files/" + filePath + filename;
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                filename,
+                "text/plain",
+                "test dau".getBytes()
+        );
+
+        assertFalse(fileService.isFileExists(fullFilePath));
+        assertThrows(NoSuchFileException.class, () -> fileService.getFileMetadata(filePath + filename));
+
+        // When + Then
+        fileService.uploadFile(filePath, List.of(file));
+
+        assertTrue(fileService.isFileExists(fullFilePath));
+        assertEquals(8, fileService.getFileMetadata(filePath + filename).size());
+
+        fileService.deleteFile(filePath + filename);
+
+        assertFalse(fileService.isFileExists(fullFilePath));
+        assertThrows(NoSuchFileException.class, () -> fileService.getFileInfo(filePath + filename));
+        assertThrows(NoSuchFileException.class, () -> fileService.getFileMetadata(filePath + filename));
+    }
+
     @Test
     public void TestDownloadFile_successfulDownloading() throws Exception {
         // Given
@@ -198,7 +301,34 @@ class DefaultFileServiceTest {
         fileService.uploadFile(filePath, List.of(file));
 
         // When + Then
-        assertNotNull(fileService.downloadFile(filePath + filename, new MockHttpServletResponse()));
+        assertNotNull(fileService.downloadFile(filePath + filename, 0, null));
+    }
+
+    @Test
+    public void TestDownloadFileRange_returnsRequestedBytes() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        String filePath = "test/";
+        String filename = "testRangeDownloading.txt";
+
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                filename,
+                "text/plain",
+                "test dau".getBytes()
+        );
+
+        fileService.uploadFile(filePath, List.of(file));
+
+        // When
+        FileMetadata metadata = fileService.getFileMetadata(filePath + filename);
+        byte[] range = fileService.downloadFile(filePath + filename, 5, 3L).readAllBytes();
+
+        // Then
+        assertEquals(8, metadata.size());
+        assertNotNull(metadata.etag());
+        assertArrayEquals("dau".getBytes(), range);
     }
 
     @Test
@@ -298,11 +428,32 @@ class DefaultFileServiceTest {
         fileService.uploadFile(filePath, List.of(file));
 
         // When + Then
-        List<FilePayload> foundFiles = fileService.findResources(filename);
+        List<FilePayload> foundFiles = fileService.findResources(filename, 0, 50);
 
         assertEquals(1, foundFiles.size());
     }
 
+    @Test
+    public void TestSearching_caseInsensitiveWithDirectoriesAndPaging() throws Exception {
+        // Given
+        when(authService.getUserIdFromSession()).thenReturn(123);
+
+        fileService.uploadFile("reportsArchive/", List.of(
+                new MockMultipartFile("file", "Quarter_Report.pdf", "application/pdf", "test dau".getBytes()),
+                new MockMultipartFile("file", "report_draft.txt", "text/plain", "test dau".getBytes())
+        ));
+
+        // When
+        List<FilePayload> firstPage = fileService.findResources("REPORT", 0, 2);
+        List<FilePayload> secondPage = fileService.findResources("REPORT", 1, 2);
+
+        // Then
+        assertEquals(List.of("report_draft.txt", "reportsArchive"), firstPage.stream().map(FilePayload::name).toList());
+        assertEquals("DIRECTORY", firstPage.get(1).type());
+        assertEquals(List.of("Quarter_Report.pdf"), secondPage.stream().map(FilePayload::name).toList());
+        assertTrue(fileService.findResources("t_r", 0, 50).stream().noneMatch(found -> found.name().equals("Quarter_Report.pdf")));
+    }
+
     @AfterAll
     static void shutDown() {
         if (minioServer.isRunning()) {
@@ -0,0 +1,152 @@
+package com.cloudstorage.service.JobService;
+
+import com.cloudstorage.controller.payload.JobPayload;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultJobServiceTest {
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private ExecutorService jobExecutor;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<String> savedJobs = new ArrayList<>();
+
+    private DefaultJobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        jobService = new DefaultJobService(redisTemplate, objectMapper, authService, jobExecutor);
+        ReflectionTestUtils.setField(jobService, "ttl", Duration.ofHours(24));
+
+        lenient().when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(redisTemplate.opsForSet()).thenReturn(setOperations);
+        lenient().when(authService.getUserIdFromSession()).thenReturn(1);
+        lenient().doAnswer(invocation -> savedJobs.add(invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void testTrack_jobIsListedForOwner() {
+        // When
+        JobProgress progress = jobService.track("r1", 1, "RELOCATE");
+        progress.update(1000);
+
+        // Then
+        verify(setOperations).add("storage:jobs:user:1", "r1");
+        verify(redisTemplate).expire("storage:jobs:user:1", Duration.ofHours(24));
+        assertTrue(savedJobs.get(savedJobs.size() - 1).contains("\"processedObjects\":1000"));
+    }
+
+    @Test
+    void testGetJobs_expiredJobsAreDroppedFromList() throws Exception {
+        // Given
+        String job = objectMapper.writeValueAsString(new StorageJob("r1", 1, "RELOCATE", "RUNNING", 5, null));
+        when(setOperations.members("storage:jobs:user:1")).thenReturn(new LinkedHashSet<>(List.of("r1", "r2")));
+        when(valueOperations.multiGet(List.of("storage:jobs:r1", "storage:jobs:r2"))).thenReturn(Arrays.asList(job, null));
+
+        // When
+        List<JobPayload> jobs = jobService.getJobs();
+
+        // Then
+        assertEquals(List.of(new JobPayload("r1", "RELOCATE", "RUNNING", 5L, null)), jobs);
+        verify(setOperations).remove("storage:jobs:user:1", "r2");
+    }
+
+    @Test
+    void testGetJob_otherUsersJobIsNotFound() throws Exception {
+        // Given
+        when(valueOperations.get("storage:jobs:r1"))
+                .thenReturn(objectMapper.writeValueAsString(new StorageJob("r1", 2, "DELETE", "RUNNING", 0, null)));
+
+        // When + Then
+        assertThrows(NoSuchFileException.class, () -> jobService.getJob("r1"));
+    }
+
+    @Test
+    void testSubmit_completedJobStoresProcessedCount() {
+        // Given
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(jobExecutor).execute(any(Runnable.class));
+
+        // When
+        JobPayload job = jobService.submit("DELETE", progress -> progress.accept(42));
+
+        // Then
+        assertEquals("RUNNING", job.status());
+        assertTrue(savedJobs.get(savedJobs.size() - 1).contains("\"status\":\"COMPLETED\""));
+        assertTrue(savedJobs.get(savedJobs.size() - 1).contains("\"processedObjects\":42"));
+    }
+
+    @Test
+    void testSubmit_failedJobStoresMessageKeyInsteadOfExceptionText() {
+        // Given
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(jobExecutor).execute(any(Runnable.class));
+
+        // When
+        jobService.submit("DELETE", progress -> {
+            progress.accept(7);
+            throw new IllegalStateException("Connection refused: minio.internal:9000");
+        });
+
+        // Then
+        String stored = savedJobs.get(savedJobs.size() - 1);
+        assertTrue(stored.contains("\"status\":\"FAILED\""));
+        assertTrue(stored.contains("\"processedObjects\":7"));
+        assertTrue(stored.contains("\"message\":\"jobs.error.failed\""));
+        assertFalse(stored.contains("minio.internal"));
+    }
+
+    @Test
+    void testSubmit_rejectedJobIsMarkedFailed() {
+        // Given
+        doThrow(new RejectedExecutionException()).when(jobExecutor).execute(any(Runnable.class));
+
+        // When + Then
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit("DELETE", progress -> {}));
+        String stored = savedJobs.get(savedJobs.size() - 1);
+        assertTrue(stored.contains("\"status\":\"FAILED\""));
+        assertTrue(stored.contains("\"message\":\"jobs.error.rejected\""));
+    }
+}
@@ -0,0 +1,168 @@
+package com.cloudstorage.service.MetadataService;
+
+import com.cloudstorage.entity.CatalogBackfill;
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.repository.CatalogBackfillRepository;
+import com.cloudstorage.repository.ResourceMetadataRepository;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.StorageBackend.StorageObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetadataReconcilerTest {
+
+    private static final Instant OLD = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private ResourceMetadataRepository resourceMetadataRepository;
+
+    @Mock
+    private CatalogBackfillRepository catalogBackfillRepository;
+
+    @Mock
+    private MetadataCache metadataCache;
+
+    @Mock
+    private ExecutorService jobExecutor;
+
+    @InjectMocks
+    private MetadataReconciler metadataReconciler;
+
+    @Test
+    void testReconcileAll_failureOfOneUserDoesNotStopOthers() {
+        // Given
+        when(storageBackend.list("", false, null)).thenReturn(List.of(
+                new StorageObject("user-1-files/", 0, null, null, OLD),
+                new StorageObject("user-2-files/", 0, null, null, OLD)));
+        when(storageBackend.list("user-1-files/", true, null)).thenThrow(new RuntimeException("listing failed"));
+        when(storageBackend.list("user-2-files/", true, null)).thenReturn(List.of(
+                new StorageObject("user-2-files/a.txt", 3, null, "etag-a", OLD)));
+
+        // When
+        metadataReconciler.reconcileAll();
+
+        // Then
+        List<ResourceMetadata> saved = captureSaved();
+        assertEquals(List.of("a.txt"), saved.stream().map(ResourceMetadata::getPath).toList());
+        assertEquals(2, saved.get(0).getUserId());
+        verify(resourceMetadataRepository, never()).findAllByUserId(1);
+    }
+
+    @Test
+    void testReconcile_rowsWrittenDuringScanAreKept() {
+        // Given
+        Instant fresh = Instant.now().plusSeconds(60);
+        when(storageBackend.list("user-1-files/", true, null)).thenReturn(List.of(
+                new StorageObject("user-1-files/a.txt", 3, null, "etag-a", OLD),
+                new StorageObject("user-1-files/d/", 0, null, null, OLD)));
+
+        ResourceMetadata staleFile = file("a.txt", 3, "etag-old", OLD);
+        ResourceMetadata removedFile = file("gone.txt", 5, "etag-gone", OLD);
+        ResourceMetadata uploadedFile = file("d/new.txt", 7, "etag-new", fresh);
+        ResourceMetadata updatedDirectory = directory("d/", 7, 1, fresh);
+        when(resourceMetadataRepository.findAllByUserId(1))
+                .thenReturn(List.of(staleFile, removedFile, uploadedFile, updatedDirectory));
+
+        // When
+        metadataReconciler.reconcile(1);
+
+        // Then
+        List<ResourceMetadata> saved = captureSaved();
+        assertEquals(List.of(staleFile), saved);
+        assertEquals("etag-a", staleFile.getEtag());
+        assertEquals(7L, updatedDirectory.getSize());
+        assertEquals(1L, updatedDirectory.getFileCount());
+
+        ArgumentCaptor<Iterable<ResourceMetadata>> deleted = ArgumentCaptor.captor();
+        verify(resourceMetadataRepository).deleteAll(deleted.capture());
+        assertEquals(List.of(removedFile), toList(deleted.getValue()));
+    }
+
+    @Test
+    void testResumeBackfill_unfinishedBackfillIsResumedOnStartup() {
+        // Given
+        when(catalogBackfillRepository.existsById("catalog")).thenReturn(false);
+
+        // When
+        metadataReconciler.resumeBackfill();
+
+        // Then
+        verify(jobExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testBackfill_failedUserLeavesBackfillUnfinished() {
+        // Given
+        when(storageBackend.list("", false, null)).thenReturn(List.of(
+                new StorageObject("user-1-files/", 0, null, null, OLD),
+                new StorageObject("user-2-files/", 0, null, null, OLD),
+                new StorageObject("user-3-files/", 0, null, null, OLD)));
+        when(catalogBackfillRepository.existsById(anyString()))
+                .thenAnswer(invocation -> "user-3-files/".equals(invocation.getArgument(0)));
+        when(storageBackend.list("user-1-files/", true, null)).thenThrow(new RuntimeException("listing failed"));
+        when(storageBackend.list("user-2-files/", true, null)).thenReturn(List.of());
+
+        // When
+        metadataReconciler.backfill();
+
+        // Then
+        ArgumentCaptor<CatalogBackfill> marked = ArgumentCaptor.forClass(CatalogBackfill.class);
+        verify(catalogBackfillRepository).save(marked.capture());
+        assertEquals("user-2-files/", marked.getValue().getScope());
+        verify(storageBackend, never()).list("user-3-files/", true, null);
+    }
+
+    @Test
+    void testEnsureBackfilled_readWaitsForUserReconcileOnce() {
+        // Given
+        when(storageBackend.list("user-1-files/", true, null)).thenReturn(List.of(
+                new StorageObject("user-1-files/a.txt", 3, null, "etag-a", OLD)));
+
+        // When
+        metadataReconciler.ensureBackfilled(1);
+        metadataReconciler.ensureBackfilled(1);
+
+        // Then
+        assertEquals(List.of("a.txt"), captureSaved().stream().map(ResourceMetadata::getPath).toList());
+        verify(catalogBackfillRepository).save(argThat(backfill -> "user-1-files/".equals(backfill.getScope())));
+    }
+
+    private List<ResourceMetadata> captureSaved() {
+        ArgumentCaptor<Iterable<ResourceMetadata>> saved = ArgumentCaptor.captor();
+        verify(resourceMetadataRepository).saveAll(saved.capture());
+        return toList(saved.getValue());
+    }
+
+    private List<ResourceMetadata> toList(Iterable<ResourceMetadata> metadata) {
+        List<ResourceMetadata> result = new ArrayList<>();
+        metadata.forEach(result::add);
+        return result;
+    }
+
+    private ResourceMetadata file(String path, long size, String etag, Instant updatedAt) {
+        return new ResourceMetadata(null, 1, path, path.contains("/") ? path.substring(0, path.lastIndexOf('/') + 1) : "",
+                path.substring(path.lastIndexOf('/') + 1), "FILE", size, 0L, null, etag, null, updatedAt, updatedAt);
+    }
+
+    private ResourceMetadata directory(String path, long size, long fileCount, Instant updatedAt) {
+        return new ResourceMetadata(null, 1, path, "", path.substring(0, path.length() - 1), "DIRECTORY",
+                size, fileCount, null, null, null, updatedAt, updatedAt);
+    }
+}
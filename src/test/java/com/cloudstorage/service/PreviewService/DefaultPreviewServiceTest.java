@@ -0,0 +1,196 @@
+package com.cloudstorage.service.PreviewService;
+
+import com.cloudstorage.entity.ResourceMetadata;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.BlobService.BlobService;
+import com.cloudstorage.service.BlobService.StoredBlob;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultPreviewServiceTest {
+
+    private static final String DIGEST = "ab".repeat(32);
+    private static final String PREVIEW_NAME = StoredBlob.sideObjectName(DIGEST, StoredBlob.PREVIEW_SUFFIX);
+
+    @Mock
+    private StorageBackend storageBackend;
+
+    @Mock
+    private BlobService blobService;
+
+    @Mock
+    private MetadataService metadataService;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private PreviewCache previewCache;
+
+    @Mock
+    private ExecutorService previewExecutor;
+
+    @InjectMocks
+    private DefaultPreviewService previewService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(previewService, "previewSize", 256);
+        ReflectionTestUtils.setField(previewService, "maxSourceSize", DataSize.ofMegabytes(32));
+        ReflectionTestUtils.setField(previewService, "maxPixels", 50_000_000L);
+    }
+
+    @Test
+    void testSchedule_storesDownscaledJpegNextToBlob() throws Exception {
+        // Given
+        runTasksInPlace();
+        byte[] original = png(1200, 600);
+        when(storageBackend.stat(PREVIEW_NAME)).thenReturn(Optional.empty());
+        when(blobService.get(DIGEST, 0, null)).thenReturn(new ByteArrayInputStream(original));
+        ArgumentCaptor<InputStream> content = ArgumentCaptor.forClass(InputStream.class);
+
+        // When
+        previewService.schedule(DIGEST, "image/png", original.length);
+
+        // Then
+        verify(storageBackend).put(eq(PREVIEW_NAME), content.capture(), anyLong(), eq(Preview.CONTENT_TYPE));
+        BufferedImage preview = ImageIO.read(content.getValue());
+        assertEquals(256, preview.getWidth());
+        assertEquals(128, preview.getHeight());
+        verify(previewCache).put(eq(DIGEST), any());
+    }
+
+    @Test
+    void testSchedule_undecodableContentIsMarkedWithEmptyPreview() throws Exception {
+        // Given
+        runTasksInPlace();
+        byte[] original = "not an image".getBytes(StandardCharsets.UTF_8);
+        when(storageBackend.stat(PREVIEW_NAME)).thenReturn(Optional.empty());
+        when(blobService.get(DIGEST, 0, null)).thenReturn(new ByteArrayInputStream(original));
+
+        // When
+        previewService.schedule(DIGEST, "image/png", original.length);
+
+        // Then
+        verify(storageBackend).put(eq(PREVIEW_NAME), any(InputStream.class), eq(0L), eq(Preview.CONTENT_TYPE));
+    }
+
+    @Test
+    void testSchedule_blobReadFailureIsNotMarkedAsUndecodable() throws Exception {
+        // Given
+        runTasksInPlace();
+        byte[] header = Arrays.copyOf(png(1200, 600), 64);
+        InputStream content = new SequenceInputStream(new ByteArrayInputStream(header), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        when(storageBackend.stat(PREVIEW_NAME)).thenReturn(Optional.empty());
+        when(blobService.get(DIGEST, 0, null)).thenReturn(content);
+
+        // When
+        previewService.schedule(DIGEST, "image/png", 1000);
+
+        // Then
+        verify(storageBackend, never()).put(anyString(), any(InputStream.class), anyLong(), anyString());
+        verify(previewCache, never()).put(anyString(), any());
+    }
+
+    @Test
+    void testSchedule_nonImageIsIgnored() {
+        // When
+        previewService.schedule(DIGEST, "application/pdf", 100);
+
+        // Then
+        verifyNoInteractions(previewExecutor, storageBackend);
+    }
+
+    @Test
+    void testGetPreview_missingPreviewIsScheduled() throws Exception {
+        // Given
+        givenFile(DIGEST);
+        when(storageBackend.get(PREVIEW_NAME)).thenThrow(new NoSuchFileException(PREVIEW_NAME));
+
+        // When
+        Optional<Preview> preview = previewService.getPreview("photos/cat.png");
+
+        // Then
+        assertTrue(preview.isEmpty());
+        verify(previewExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void testGetPreview_cachedPreviewIsReturnedWithDigestEtag() throws Exception {
+        // Given
+        givenFile(DIGEST);
+        when(previewCache.get(DIGEST)).thenReturn(new byte[] {1, 2, 3});
+
+        // When
+        Optional<Preview> preview = previewService.getPreview("photos/cat.png");
+
+        // Then
+        assertTrue(preview.isPresent());
+        assertEquals(DIGEST, preview.get().etag());
+        verifyNoInteractions(storageBackend);
+    }
+
+    @Test
+    void testGetPreview_fileOutsideBlobsHasNoPreview() {
+        // Given
+        givenFile(null);
+
+        // When + Then
+        NoSuchFileException exception = assertThrows(NoSuchFileException.class, () -> previewService.getPreview("photos/cat.png"));
+        assertEquals("previews.error.not_available", exception.getMessage());
+        verifyNoInteractions(previewExecutor);
+    }
+
+    private void givenFile(String digest) {
+        when(authService.getUserIdFromSession()).thenReturn(1);
+        when(metadataService.find("user-1-files/photos/cat.png")).thenReturn(Optional.of(new ResourceMetadata(1L, 1, "photos/cat.png",
+                "photos/", "cat.png", "FILE", 100L, 0L, "image/png", "etag", digest, Instant.now(), Instant.now())));
+    }
+
+    private void runTasksInPlace() {
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(previewExecutor).execute(any(Runnable.class));
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB), "png", encoded);
+
+        return encoded.toByteArray();
+    }
+}
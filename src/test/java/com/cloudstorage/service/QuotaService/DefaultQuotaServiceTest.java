@@ -0,0 +1,76 @@
+package com.cloudstorage.service.QuotaService;
+
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DefaultQuotaServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private DefaultQuotaService quotaService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(quotaService, "defaultQuota", DataSize.ofBytes(100));
+    }
+
+    @Test
+    void testCheckQuota_fitsIntoAvailableSpace() {
+        // Given
+        when(userRepository.findAvailableBytes(1, 100)).thenReturn(Optional.of(10L));
+
+        // When + Then
+        assertDoesNotThrow(() -> quotaService.checkQuota(1, 10));
+    }
+
+    @Test
+    void testCheckQuota_exceedingUploadIsRejected() {
+        // Given
+        when(userRepository.findAvailableBytes(1, 100)).thenReturn(Optional.of(10L));
+
+        // When + Then
+        QuotaExceededException exception = assertThrows(QuotaExceededException.class, () -> quotaService.checkQuota(1, 11));
+        assertEquals("quota.error.exceeded", exception.getMessage());
+    }
+
+    @Test
+    void testAddUsage_zeroChangeIsNotWritten() {
+        // When
+        quotaService.addUsage(1, 0);
+
+        // Then
+        verify(userRepository, never()).addUsedBytes(anyInt(), anyLong());
+    }
+
+    @Test
+    void testQuotaLimitedInputStream_readBeyondLimitFails() throws Exception {
+        // Given
+        QuotaLimitedInputStream content = new QuotaLimitedInputStream(new ByteArrayInputStream(new byte[8]), 4);
+
+        // When
+        assertThrows(IOException.class, content::readAllBytes);
+
+        // Then
+        assertTrue(content.isExceeded());
+    }
+}
@@ -0,0 +1,176 @@
+package com.cloudstorage.service.StorageBackend;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageBackendTest {
+
+    @TempDir
+    private Path root;
+
+    private LocalStorageBackend storageBackend;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new LocalStorageBackend();
+        ReflectionTestUtils.setField(storageBackend, "root", root);
+        storageBackend.init();
+    }
+
+    @Test
+    void testPutAndGet_readsWholeObjectAndRange() throws Exception {
+        // Given
+        put("user-1-files/docs/a.txt", "0123456789");
+
+        // When
+        StorageObject storedObject = storageBackend.stat("user-1-files/docs/a.txt").orElseThrow();
+
+        // Then
+        assertEquals(10, storedObject.size());
+        assertNotNull(storedObject.etag());
+        assertEquals("0123456789", read(storageBackend.get("user-1-files/docs/a.txt")));
+        assertEquals("345", read(storageBackend.get("user-1-files/docs/a.txt", 3, 3L)));
+        assertEquals("789", read(storageBackend.get("user-1-files/docs/a.txt", 7, null)));
+        assertTrue(storageBackend.stat("user-1-files/docs/").isPresent());
+        assertTrue(storageBackend.stat("user-1-files/docs").isEmpty());
+        assertThrows(NoSuchFileException.class, () -> storageBackend.get("user-1-files/docs/b.txt"));
+    }
+
+    @Test
+    void testGet_transferToCopiesOnlyRange() throws Exception {
+        // Given
+        put("user-1-files/a.txt", "0123456789");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        long transferred;
+        try (InputStream content = storageBackend.get("user-1-files/a.txt", 2, 5L)) {
+            transferred = content.transferTo(out);
+        }
+
+        // Then
+        assertEquals(5, transferred);
+        assertEquals("23456", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testList_returnsSortedKeysWithDirectoryMarkers() {
+        // Given
+        storageBackend.put("user-1-files/", InputStream.nullInputStream(), 0, null);
+        storageBackend.put("user-1-files/b/", InputStream.nullInputStream(), 0, null);
+        put("user-1-files/b/c.txt", "c");
+        put("user-1-files/a.txt", "a");
+        put("user-2-files/d.txt", "d");
+
+        // When
+        List<String> recursive = names(storageBackend.list("user-1-files/", true, null));
+        List<String> topLevel = names(storageBackend.list("", false, null));
+        List<String> afterMarker = names(storageBackend.list("user-1-files/", true, "user-1-files/b/"));
+
+        // Then
+        assertEquals(List.of("user-1-files/", "user-1-files/a.txt", "user-1-files/b/", "user-1-files/b/c.txt"), recursive);
+        assertEquals(List.of("user-1-files/", "user-2-files/"), topLevel);
+        assertEquals(List.of("user-1-files/b/c.txt"), afterMarker);
+    }
+
+    @Test
+    void testMoveAndMovePrefix_renameInPlace() throws Exception {
+        // Given
+        put("user-1-files/a/x.txt", "x");
+        put("user-1-files/a/nested/y.txt", "y");
+
+        // When
+        storageBackend.move("user-1-files/a/x.txt", "user-1-files/a/z.txt", 1);
+        boolean moved = storageBackend.movePrefix("user-1-files/a/", "user-1-files/b/c/");
+
+        // Then
+        assertTrue(moved);
+        assertEquals("x", read(storageBackend.get("user-1-files/b/c/z.txt")));
+        assertEquals("y", read(storageBackend.get("user-1-files/b/c/nested/y.txt")));
+        assertTrue(storageBackend.stat("user-1-files/a/").isEmpty());
+    }
+
+    @Test
+    void testCopyAndDelete() throws Exception {
+        // Given
+        put("user-1-files/a.txt", "content");
+
+        // When
+        storageBackend.copy("user-1-files/a.txt", "user-1-files/copy/a.txt", 7);
+        storageBackend.delete(List.of("user-1-files/a.txt", "user-1-files/missing.txt"));
+
+        // Then
+        assertTrue(storageBackend.stat("user-1-files/a.txt").isEmpty());
+        assertEquals("content", read(storageBackend.get("user-1-files/copy/a.txt")));
+        assertTrue(storageBackend.deletePrefix("user-1-files/copy/"));
+        assertTrue(storageBackend.stat("user-1-files/copy/").isEmpty());
+    }
+
+    @Test
+    void testMultipartUpload_concatenatesPartsInOrder() throws Exception {
+        // Given
+        String uploadId = storageBackend.createMultipartUpload("user-1-files/big.bin", null);
+
+        // When
+        storageBackend.uploadPart("user-1-files/big.bin", uploadId, 2, "world".getBytes(StandardCharsets.UTF_8));
+        storageBackend.uploadPart("user-1-files/big.bin", uploadId, 1, "hello ".getBytes(StandardCharsets.UTF_8));
+        List<StoragePart> parts = storageBackend.listParts("user-1-files/big.bin", uploadId);
+        StorageObject storedObject = storageBackend.completeMultipartUpload("user-1-files/big.bin", uploadId, parts);
+
+        // Then
+        assertEquals(List.of(1, 2), parts.stream().map(StoragePart::partNumber).toList());
+        assertEquals(11, storedObject.size());
+        assertEquals("hello world", read(storageBackend.get("user-1-files/big.bin")));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.listParts("user-1-files/big.bin", uploadId));
+    }
+
+    @Test
+    void testResolve_rejectsPathsOutsideRoot() {
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.stat("user-1-files/../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.stat(".storage/tmp/"));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.listParts("x", "../tmp"));
+    }
+
+    @Test
+    void testResolve_rejectsPathsIntoAnotherOwnersDirectory() throws Exception {
+        // Given
+        put("user-2-files/secret.txt", "secret");
+
+        // When + Then
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.stat("user-1-files/../user-2-files/secret.txt"));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.get("user-1-files/../user-2-files/secret.txt"));
+        assertThrows(IllegalArgumentException.class, () -> put("user-1-files/a/../../user-2-files/secret.txt", "overwritten"));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.createMultipartUpload("user-1-files/../user-2-files/big.bin", null));
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.stat("/user-2-files/secret.txt"));
+        assertEquals("secret", read(storageBackend.get("user-2-files/secret.txt")));
+        assertTrue(storageBackend.stat("user-1-files/a/../b.txt").isEmpty());
+    }
+
+    private void put(String objectName, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        storageBackend.put(objectName, new ByteArrayInputStream(bytes), bytes.length, "text/plain");
+    }
+
+    private static String read(InputStream content) throws Exception {
+        try (content) {
+            return new String(content.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static List<String> names(Iterable<StorageObject> objects) {
+        return StreamSupport.stream(objects.spliterator(), false).map(StorageObject::objectName).toList();
+    }
+}
@@ -0,0 +1,228 @@
+package com.cloudstorage.service.UploadService;
+
+import com.cloudstorage.controller.payload.FilePayload;
+import com.cloudstorage.controller.payload.UploadSessionPayload;
+import com.cloudstorage.entity.UploadSession;
+import com.cloudstorage.exception.QuotaExceededException;
+import com.cloudstorage.repository.UploadSessionRepository;
+import com.cloudstorage.service.AuthService.AuthService;
+import com.cloudstorage.service.FileService.FileService;
+import com.cloudstorage.service.MetadataService.MetadataService;
+import com.cloudstorage.service.QuotaService.QuotaService;
+import com.cloudstorage.service.StorageBackend.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.returnsFirstArg;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Части пишутся в настоящее локальное хранилище, репозитории сессий и каталог замоканы
+ */
+@ExtendWith(MockitoExtension.class)
+class DefaultUploadServiceTest {
+
+    private static final String OBJECT_NAME = "user-1-files/docs/big.bin";
+    private static final long CHUNK = DataSize.ofMegabytes(5).toBytes();
+    private static final long SIZE = 2 * CHUNK + 3;
+
+    @TempDir
+    private Path root;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private FileService fileService;
+
+    @Mock
+    private AuthService authService;
+
+    @Mock
+    private MetadataService metadataService;
+
+    @Mock
+    private QuotaService quotaService;
+
+    private LocalStorageBackend storageBackend;
+
+    private DefaultUploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new LocalStorageBackend();
+        ReflectionTestUtils.setField(storageBackend, "root", root);
+        storageBackend.init();
+
+        uploadService = new DefaultUploadService(storageBackend, uploadSessionRepository, fileService, authService, metadataService, quotaService);
+        ReflectionTestUtils.setField(uploadService, "chunkSize", DataSize.ofBytes(CHUNK));
+        ReflectionTestUtils.setField(uploadService, "maxChunkSize", DataSize.ofMegabytes(64));
+        ReflectionTestUtils.setField(uploadService, "sessionTtl", Duration.ofHours(24));
+
+        lenient().when(authService.getUserIdFromSession()).thenReturn(1);
+        lenient().when(uploadSessionRepository.save(any())).thenAnswer(returnsFirstArg());
+    }
+
+    @Test
+    void testCreateUpload_quotaIncludesPendingSessions() throws Exception {
+        // Given
+        when(uploadSessionRepository.sumSizeByUserId(1)).thenReturn(100L);
+
+        // When
+        UploadSessionPayload upload = uploadService.createUpload("docs/", "big.bin", SIZE, "video/mp4");
+
+        // Then
+        verify(quotaService).checkQuota(1, SIZE + 100);
+        verify(uploadSessionRepository).save(argThat(session -> "video/mp4".equals(session.getContentType())));
+        assertEquals(CHUNK, upload.chunkSize());
+        assertEquals("docs/", upload.path());
+    }
+
+    @Test
+    void testCreateUpload_quotaExceededCreatesNoSession() {
+        // Given
+        doThrow(new QuotaExceededException("quota.error.exceeded")).when(quotaService).checkQuota(eq(1), anyLong());
+
+        // When + Then
+        assertThrows(QuotaExceededException.class, () -> uploadService.createUpload("docs/", "big.bin", SIZE, null));
+        verify(uploadSessionRepository, never()).save(any());
+    }
+
+    @Test
+    void testCreateUpload_chunkGrowsToFitPartLimit() throws Exception {
+        // Given
+        long size = 10_000 * CHUNK + 1;
+
+        // When
+        UploadSessionPayload upload = uploadService.createUpload("docs/", "big.bin", size, null);
+
+        // Then
+        assertEquals(CHUNK + 1, upload.chunkSize());
+        assertThrows(IllegalArgumentException.class,
+                () -> uploadService.createUpload("docs/", "huge.bin", 10_000 * DataSize.ofMegabytes(65).toBytes(), null));
+    }
+
+    @Test
+    void testUploadChunk_rejectsMisalignedOrWrongSizedChunks() {
+        // Given
+        UploadSession session = givenSession(Instant.now());
+
+        // When + Then
+        assertInvalidChunk(session, -CHUNK, CHUNK);
+        assertInvalidChunk(session, 1, CHUNK);
+        assertInvalidChunk(session, CHUNK, CHUNK - 1);
+        assertInvalidChunk(session, 2 * CHUNK, CHUNK);
+        assertInvalidChunk(session, SIZE, 3);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.uploadChunk(session.getId(), 2 * CHUNK, new ByteArrayInputStream(new byte[2]), 3));
+        assertEquals("uploads.error.invalid_chunk", exception.getMessage());
+    }
+
+    @Test
+    void testUploadChunk_offsetsMapToPartsInAnyOrder() throws Exception {
+        // Given
+        UploadSession session = givenSession(Instant.now());
+
+        // When
+        uploadService.uploadChunk(session.getId(), 2 * CHUNK, chunk('c', 3), 3);
+        UploadSessionPayload upload = uploadService.uploadChunk(session.getId(), 0, chunk('a', CHUNK), CHUNK);
+
+        // Then
+        assertEquals(List.of(0L, 2 * CHUNK), upload.uploadedOffsets());
+        assertEquals(CHUNK + 3, upload.uploadedBytes());
+    }
+
+    @Test
+    void testCompleteUpload_missingChunkIsRejected() throws Exception {
+        // Given
+        UploadSession session = givenSession(Instant.now());
+        uploadService.uploadChunk(session.getId(), 0, chunk('a', CHUNK), CHUNK);
+        uploadService.uploadChunk(session.getId(), 2 * CHUNK, chunk('c', 3), 3);
+
+        // When + Then
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> uploadService.completeUpload(session.getId()));
+        assertEquals("uploads.error.incomplete", exception.getMessage());
+        verify(metadataService, never()).saveFile(any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void testCompleteUpload_assemblesPartsInOffsetOrder() throws Exception {
+        // Given
+        UploadSession session = givenSession(Instant.now());
+        uploadService.uploadChunk(session.getId(), 2 * CHUNK, chunk('c', 3), 3);
+        uploadService.uploadChunk(session.getId(), CHUNK, chunk('b', CHUNK), CHUNK);
+        uploadService.uploadChunk(session.getId(), 0, chunk('a', CHUNK), CHUNK);
+
+        // When
+        FilePayload file = uploadService.completeUpload(session.getId());
+
+        // Then
+        assertEquals(SIZE, file.size());
+        assertEquals("docs/", file.path());
+        assertEquals("big.bin", file.name());
+
+        try (InputStream content = storageBackend.get(OBJECT_NAME, CHUNK - 1, 2L)) {
+            assertArrayEquals(new byte[] {'a', 'b'}, content.readAllBytes());
+        }
+
+        verify(metadataService).saveFile(eq(OBJECT_NAME), eq(SIZE), eq("video/mp4"), any());
+        verify(uploadSessionRepository).delete(session);
+    }
+
+    @Test
+    void testRemoveAbandonedUploads_failureDoesNotStopOtherSessions() {
+        // Given
+        UploadSession broken = new UploadSession(UUID.randomUUID(), 1, "user-1-files/broken.bin", "missing-upload",
+                SIZE, CHUNK, null, Instant.EPOCH, Instant.EPOCH);
+        UploadSession abandoned = givenSession(Instant.EPOCH);
+        when(uploadSessionRepository.findAllByUpdatedAtBefore(any())).thenReturn(List.of(broken, abandoned));
+
+        // When
+        uploadService.removeAbandonedUploads();
+
+        // Then
+        verify(uploadSessionRepository).delete(abandoned);
+        verify(uploadSessionRepository, never()).delete(broken);
+        assertThrows(IllegalArgumentException.class, () -> storageBackend.listParts(OBJECT_NAME, abandoned.getUploadId()));
+    }
+
+    private UploadSession givenSession(Instant updatedAt) {
+        String uploadId = storageBackend.createMultipartUpload(OBJECT_NAME, null);
+        UploadSession session = new UploadSession(UUID.randomUUID(), 1, OBJECT_NAME, uploadId, SIZE, CHUNK, "video/mp4", updatedAt, updatedAt);
+        lenient().when(uploadSessionRepository.findByIdAndUserId(session.getId(), 1)).thenReturn(Optional.of(session));
+
+        return session;
+    }
+
+    private void assertInvalidChunk(UploadSession session, long offset, long length) {
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> uploadService.uploadChunk(session.getId(), offset, chunk('x', Math.max(length, 0)), length));
+        assertEquals("uploads.error.invalid_chunk", exception.getMessage());
+    }
+
+    private static InputStream chunk(char filler, long length) {
+        byte[] data = new byte[(int) length];
+        Arrays.fill(data, (byte) filler);
+
+        return new ByteArrayInputStream(data);
+    }
+}
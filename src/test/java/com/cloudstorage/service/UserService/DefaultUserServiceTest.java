@@ -2,10 +2,16 @@ package com.cloudstorage.service.UserService;
 
 import com.cloudstorage.config.MinioBucketInitializer;
 import com.cloudstorage.config.MinioConfig;
+import com.cloudstorage.config.MinioConnectionPoolMonitor;
 import com.cloudstorage.controller.payload.UserPayload;
 import com.cloudstorage.entity.User;
+import com.cloudstorage.service.DirectoryService.DirectoryArchiveWriter;
+import com.cloudstorage.service.DirectoryService.DirectoryRelocationEngine;
 import com.cloudstorage.service.DirectoryService.DirectoryService;
 import com.cloudstorage.service.FileService.FileService;
+import com.cloudstorage.service.MetadataService.MetadataReconciler;
+import com.cloudstorage.service.StorageBackend.StorageBackend;
+import com.cloudstorage.service.UploadService.UploadService;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,6 +49,24 @@ class DefaultUserServiceTest {
     @MockitoBean
     private MinioBucketInitializer minioBucketInitializer;
 
+    @MockitoBean
+    private DirectoryRelocationEngine directoryRelocationEngine;
+
+    @MockitoBean
+    private DirectoryArchiveWriter directoryArchiveWriter;
+
+    @MockitoBean
+    private UploadService uploadService;
+
+    @MockitoBean
+    private MetadataReconciler metadataReconciler;
+
+    @MockitoBean
+    private MinioConnectionPoolMonitor minioConnectionPoolMonitor;
+
+    @MockitoBean
+    private StorageBackend storageBackend;
+
     private BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
 
     @DynamicPropertySource
@@ -0,0 +1,98 @@
+package com.cloudstorage.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ожидаемые значения совпадают с прежней реализацией на split("/") и Collectors.joining
+ */
+class ResourcePathParseUtilsTest {
+
+    @Test
+    void testGetFileName() {
+        assertEquals("c.txt", ResourcePathParseUtils.getFileName("user-1-files/a/b/c.txt"));
+        assertEquals("c.txt", ResourcePathParseUtils.getFileName("c.txt"));
+        assertEquals("c.txt", ResourcePathParseUtils.getFileName("a//c.txt"));
+        assertEquals("", ResourcePathParseUtils.getFileName("user-1-files/a/b/"));
+        assertEquals("", ResourcePathParseUtils.getFileName(""));
+    }
+
+    @Test
+    void testGetFilePath() {
+        assertEquals("user-1-files/a/b/", ResourcePathParseUtils.getFilePath("user-1-files/a/b/c.txt"));
+        assertEquals("a/", ResourcePathParseUtils.getFilePath("a/b/"));
+        assertEquals("a/", ResourcePathParseUtils.getFilePath("a/b//"));
+        assertEquals("a//", ResourcePathParseUtils.getFilePath("a//b"));
+        assertEquals("/", ResourcePathParseUtils.getFilePath("/a"));
+        assertEquals("/", ResourcePathParseUtils.getFilePath("c.txt"));
+        assertEquals("/", ResourcePathParseUtils.getFilePath("a/"));
+        assertEquals("/", ResourcePathParseUtils.getFilePath(""));
+    }
+
+    @Test
+    void testGetPathWithoutUserPrefix() {
+        assertEquals("a/b/", ResourcePathParseUtils.getPathWithoutUserPrefix("user-1-files/a/b/c.txt"));
+        assertEquals("a/", ResourcePathParseUtils.getPathWithoutUserPrefix("user-1-files/a/b/"));
+        assertEquals("/", ResourcePathParseUtils.getPathWithoutUserPrefix("user-1-files/c.txt"));
+        assertEquals("/", ResourcePathParseUtils.getPathWithoutUserPrefix("user-1-files/a/"));
+        assertEquals("/", ResourcePathParseUtils.getPathWithoutUserPrefix("user-1-files/"));
+        assertEquals("/", ResourcePathParseUtils.getPathWithoutUserPrefix("c.txt"));
+        assertEquals("/", ResourcePathParseUtils.getPathWithoutUserPrefix(""));
+        assertEquals("/b/", ResourcePathParseUtils.getPathWithoutUserPrefix("a//b/c"));
+    }
+
+    @Test
+    void testGetDirectoryPathWithoutUserPrefix() {
+        assertEquals("a/", ResourcePathParseUtils.getDirectoryPathWithoutUserPrefix("user-1-files/a/b/"));
+        assertEquals("/", ResourcePathParseUtils.getDirectoryPathWithoutUserPrefix("user-1-files/a/"));
+        assertEquals("/", ResourcePathParseUtils.getDirectoryPathWithoutUserPrefix("user-1-files/"));
+    }
+
+    @Test
+    void testGetDirectoryName() {
+        assertEquals("b", ResourcePathParseUtils.getDirectoryName("user-1-files/a/b/"));
+        assertEquals("b", ResourcePathParseUtils.getDirectoryName("a/b//"));
+        assertEquals("a", ResourcePathParseUtils.getDirectoryName("a"));
+        assertEquals("c.txt", ResourcePathParseUtils.getDirectoryName("a/b/c.txt"));
+        assertEquals("/", ResourcePathParseUtils.getDirectoryName("/"));
+    }
+
+    @Test
+    void testIsTopLevel() {
+        assertTrue(ResourcePathParseUtils.isTopLevel("a/"));
+        assertTrue(ResourcePathParseUtils.isTopLevel("a"));
+        assertTrue(ResourcePathParseUtils.isTopLevel(""));
+        assertFalse(ResourcePathParseUtils.isTopLevel("a/b/"));
+        assertFalse(ResourcePathParseUtils.isTopLevel("/a"));
+    }
+
+    @Test
+    void testGetParentPathAndResourceName() {
+        assertEquals("a/b/", ResourcePathParseUtils.getParentPath("a/b/c.txt"));
+        assertEquals("a/", ResourcePathParseUtils.getParentPath("a/b/"));
+        assertEquals("", ResourcePathParseUtils.getParentPath("a/"));
+        assertEquals("c.txt", ResourcePathParseUtils.getResourceName("a/b/c.txt"));
+        assertEquals("b", ResourcePathParseUtils.getResourceName("a/b/"));
+        assertEquals("a", ResourcePathParseUtils.getResourceName("a/"));
+    }
+
+    @Test
+    void testRequireRelativePath() {
+        assertEquals("a/b.txt", ResourcePathParseUtils.requireRelativePath("a/b.txt"));
+        assertEquals("a/..b/...txt", ResourcePathParseUtils.requireRelativePath("a/..b/...txt"));
+        assertEquals("", ResourcePathParseUtils.requireRelativePath(""));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("../user-2-files/secret.txt"));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("a/../../user-2-files/"));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("a/.."));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("./a.txt"));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("a\\..\\..\\b"));
+        assertEquals("a/b.txt", ResourcePathParseUtils.requireRelativePath("/a/b.txt"));
+        assertEquals("a/", ResourcePathParseUtils.requireRelativePath("\\/a/"));
+        assertEquals("", ResourcePathParseUtils.requireRelativePath("/"));
+        assertThrows(IllegalArgumentException.class, () -> ResourcePathParseUtils.requireRelativePath("/../user-2-files/"));
+    }
+}